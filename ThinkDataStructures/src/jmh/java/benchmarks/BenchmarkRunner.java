@@ -0,0 +1,158 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jfree.data.xy.XYDataItem;
+import org.jfree.data.xy.XYSeries;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import chapter4.Profiler;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler and writes two JSON files:
+ * the raw JMH results and, for every benchmark with a problem size param `n`,
+ * the log-log slope of runtime against `n` as computed by Profiler.estimateSlope.
+ *
+ * Usage: BenchmarkRunner outputDir [JMH options]
+ *
+ */
+public class BenchmarkRunner {
+
+    // name of the problem size parameter used to fit the slope
+    private static final String SIZE_PARAM = "n";
+
+    private static final String ALLOC_RATE = "\u00b7gc.alloc.rate.norm";
+
+    /**
+     * @param args
+     * @throws RunnerException
+     * @throws CommandLineOptionException
+     * @throws IOException
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        File dir = new File(args[0]);
+        dir.mkdirs();
+
+        String[] jmhArgs = new String[args.length - 1];
+        System.arraycopy(args, 1, jmhArgs, 0, jmhArgs.length);
+
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(jmhArgs))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(dir, "results.json").getPath())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        File slopes = new File(dir, "slopes.json");
+        writeSlopes(results, slopes);
+        System.out.println("Slopes written to " + slopes);
+    }
+
+    /**
+     * Groups the results by benchmark and every param except `n`, fits a slope
+     * to each group and writes the groups as a JSON array.
+     *
+     * @param results
+     * @param file
+     * @throws IOException
+     */
+    public static void writeSlopes(Collection<RunResult> results, File file) throws IOException {
+        // sorted so the output diffs cleanly between commits
+        Map<String, List<RunResult>> groups = new TreeMap<String, List<RunResult>>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            if (params.getParam(SIZE_PARAM) == null) {
+                continue;
+            }
+            String key = groupKey(params);
+            if (!groups.containsKey(key)) {
+                groups.put(key, new ArrayList<RunResult>());
+            }
+            groups.get(key).add(result);
+        }
+
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("[");
+            int i = 0;
+            for (Map.Entry<String, List<RunResult>> entry : groups.entrySet()) {
+                List<RunResult> group = entry.getValue();
+                BenchmarkParams first = group.get(0).getParams();
+
+                XYSeries series = new XYSeries(entry.getKey());
+                for (RunResult result : group) {
+                    int n = Integer.parseInt(result.getParams().getParam(SIZE_PARAM));
+                    series.add(n, result.getPrimaryResult().getScore());
+                }
+                double slope = Profiler.estimateSlope(series);
+                System.out.printf("%-70s slope = %.3f%n", entry.getKey(), slope);
+
+                out.println("  {");
+                out.println("    \"benchmark\": " + quote(first.getBenchmark()) + ",");
+                out.println("    \"params\": {" + paramsJson(first) + "},");
+                out.println("    \"unit\": " + quote(group.get(0).getPrimaryResult().getScoreUnit()) + ",");
+                out.println("    \"slope\": " + slope + ",");
+                out.println("    \"points\": [");
+                for (int j = 0; j < group.size(); j++) {
+                    RunResult result = group.get(j);
+                    XYDataItem item = series.getDataItem(j);
+                    Result<?> alloc = result.getSecondaryResults().get(ALLOC_RATE);
+                    out.print("      {\"n\": " + (long) item.getXValue()
+                            + ", \"score\": " + item.getYValue()
+                            + ", \"allocBytesPerOp\": " + (alloc == null ? "null" : alloc.getScore()) + "}");
+                    out.println(j < group.size() - 1 ? "," : "");
+                }
+                out.println("    ]");
+                out.println(++i < groups.size() ? "  }," : "  }");
+            }
+            out.println("]");
+        }
+    }
+
+    /**
+     * Returns the benchmark name followed by every param except `n`.
+     */
+    private static String groupKey(BenchmarkParams params) {
+        StringBuilder sb = new StringBuilder(params.getBenchmark());
+        for (String key : params.getParamsKeys()) {
+            if (!key.equals(SIZE_PARAM)) {
+                sb.append(' ').append(key).append('=').append(params.getParam(key));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String paramsJson(BenchmarkParams params) {
+        StringBuilder sb = new StringBuilder();
+        for (String key : params.getParamsKeys()) {
+            if (!key.equals(SIZE_PARAM)) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(quote(key)).append(": ").append(quote(params.getParam(key)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
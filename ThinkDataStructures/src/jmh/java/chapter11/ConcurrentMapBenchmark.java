@@ -0,0 +1,90 @@
+package chapter11;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Four threads share one map of word counts, as crawler threads would
+ * share a term map: `get` only reads, `merge` increments a counter, and
+ * `mixed` does nine reads for each increment.
+ *
+ * The synchronized map is a MyFixedHashMap behind
+ * Collections.synchronizedMap; a plain MyHashMap adds up its sub-maps on
+ * every put, which would measure that rather than the lock.  Run with
+ * `-t` to change the number of threads; on a machine with fewer cores
+ * than threads, striping can't beat one lock by much.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentMapBenchmark {
+
+    @Param({"MyConcurrentHashMap", "ConcurrentHashMap", "SynchronizedMyHashMap"})
+    public String impl;
+
+    @Param({"100000"})
+    public int keys;
+
+    private Map<Integer, Integer> map;
+    private Integer[] words;
+
+    @Setup
+    public void makeMap() {
+        if (impl.equals("MyConcurrentHashMap")) {
+            map = new MyConcurrentHashMap<Integer, Integer>();
+        } else if (impl.equals("ConcurrentHashMap")) {
+            map = new ConcurrentHashMap<Integer, Integer>();
+        } else {
+            map = Collections.synchronizedMap(new MyFixedHashMap<Integer, Integer>());
+        }
+        words = new Integer[keys];
+        for (int i = 0; i < keys; i++) {
+            words[i] = i;
+            map.put(words[i], 0);
+        }
+    }
+
+    private Integer randomWord() {
+        return words[ThreadLocalRandom.current().nextInt(keys)];
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(randomWord());
+    }
+
+    @Benchmark
+    public Integer merge() {
+        return map.merge(randomWord(), 1, Integer::sum);
+    }
+
+    @Benchmark
+    public Integer mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(10) == 0) {
+            return map.merge(randomWord(), 1, Integer::sum);
+        }
+        return map.get(randomWord());
+    }
+}
@@ -0,0 +1,86 @@
+package chapter11;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Iterates the entrySet, keySet and values views of a million-entry map.
+ * BenchmarkRunner adds the GC profiler; the gc.alloc.rate.norm column
+ * should show a few dozen bytes per call, for the view and its iterator,
+ * and nothing per entry.  Before the views were live, keySet and values
+ * copied the whole map into a HashSet.
+ *
+ * MyOpenHashMap keeps no entry objects, so its entrySet makes one per
+ * entry, but they don't escape the loop and the JIT usually removes them.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapIterationBenchmark {
+
+    @Param({"MyFixedHashMap", "MyOpenHashMap", "HashMap"})
+    public String impl;
+
+    @Param({"1000000"})
+    public int size;
+
+    private Map<Integer, Integer> map;
+
+    @Setup
+    public void makeMap() {
+        if (impl.equals("MyFixedHashMap")) {
+            map = new MyFixedHashMap<Integer, Integer>();
+        } else if (impl.equals("MyOpenHashMap")) {
+            map = new MyOpenHashMap<Integer, Integer>();
+        } else {
+            map = new HashMap<Integer, Integer>();
+        }
+        for (int i = 0; i < size; i++) {
+            map.put(i, i);
+        }
+    }
+
+    @Benchmark
+    public long entrySet() {
+        long total = 0;
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            total += entry.getKey() + entry.getValue();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long keySet() {
+        long total = 0;
+        for (Integer key : map.keySet()) {
+            total += key;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long values() {
+        long total = 0;
+        for (Integer value : map.values()) {
+            total += value;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,97 @@
+package chapter11;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chapter2.MyArrayList;
+
+/**
+ * Runs a parallel stream over a list or over the entries of a map in a
+ * ForkJoinPool with 1, 2, 4 or 8 threads, to see how well the
+ * spliterators split.  A parallel stream started from inside a pool runs
+ * its tasks in that pool, so `threads` sets the parallelism.
+ *
+ * Each element gets a few rounds of multiply and xor-shift, so the work is
+ * bound by the CPU rather than by memory bandwidth.  On a machine with
+ * fewer cores than `threads`, the extra threads can't help.
+ *
+ * The map is a MyFixedHashMap, which has the same sub-maps and
+ * spliterator as MyHashMap but keeps count of its size, so building a
+ * million entries doesn't take quadratic time.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelStreamBenchmark {
+
+    @Param({"MyArrayList", "ArrayList", "MyFixedHashMap", "HashMap"})
+    public String impl;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"1000000"})
+    public int size;
+
+    private List<Integer> list;
+    private Map<Integer, Integer> map;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void makeCollection() {
+        if (impl.equals("MyArrayList") || impl.equals("ArrayList")) {
+            list = impl.equals("MyArrayList") ? new MyArrayList<Integer>() : new ArrayList<Integer>();
+            for (int i = 0; i < size; i++) {
+                list.add(i);
+            }
+        } else {
+            map = impl.equals("MyFixedHashMap") ? new MyFixedHashMap<Integer, Integer>() : new HashMap<Integer, Integer>();
+            for (int i = 0; i < size; i++) {
+                map.put(i, i);
+            }
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static long work(long x) {
+        for (int i = 0; i < 8; i++) {
+            x *= 0x9E3779B97F4A7C15L;
+            x ^= x >>> 29;
+        }
+        return x;
+    }
+
+    @Benchmark
+    public long sum() {
+        if (list != null) {
+            return pool.submit(() -> list.parallelStream().mapToLong(x -> work(x)).sum()).join();
+        }
+        return pool.submit(() -> map.entrySet().parallelStream().mapToLong(e -> work(e.getValue())).sum()).join();
+    }
+}
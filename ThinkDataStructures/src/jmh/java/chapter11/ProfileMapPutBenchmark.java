@@ -0,0 +1,59 @@
+package chapter11;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chapter11.Profiler.Timeable;
+
+/**
+ * Runs every Timeable in ProfileMapPut under JMH.
+ *
+ * One operation is one call to `timeMe(n)`, so the log-log slope of the
+ * score against `n` matches the slope Profiler estimates.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfileMapPutBenchmark {
+
+    @Param({"HashMapPut", "MyHashMapPut", "MyFixedHashMapPut", "MyOpenHashMapPut", "CollisionPut"})
+    public String profile;
+
+    @Param({"1000", "2000", "4000", "8000", "16000"})
+    public int n;
+
+    private Timeable timeable;
+
+    @Setup(Level.Trial)
+    public void makeTimeable() {
+        timeable = ProfileMapPut.timeables().get(profile).get();
+    }
+
+    // timeMe(n) runs for microseconds or more, so the per-invocation setup
+    // cost stays well below the timer resolution
+    @Setup(Level.Invocation)
+    public void setup() {
+        timeable.setup(n);
+    }
+
+    @Benchmark
+    public void timeMe() {
+        timeable.timeMe(n);
+    }
+}
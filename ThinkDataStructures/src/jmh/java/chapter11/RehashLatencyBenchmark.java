@@ -0,0 +1,74 @@
+package chapter11;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Samples the latency of single puts into a map that keeps growing, so the
+ * puts that trigger a resize show up in the high percentiles (p0.999 in the
+ * JMH output).  Compare MyFixedHashMap, which rehashes in one go, with
+ * MyIncrementalHashMap.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RehashLatencyBenchmark {
+
+    @Param({"MyFixedHashMap", "MyIncrementalHashMap"})
+    public String impl;
+
+    // the map starts over after this many keys
+    @Param({"1048576"})
+    public int maxSize;
+
+    private String[] keys;
+    private Map<String, Integer> map;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void makeKeys() {
+        keys = new String[maxSize];
+        for (int j = 0; j < maxSize; j++) {
+            keys[j] = String.format("%10d", j);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void makeMap() {
+        map = newMap();
+        i = 0;
+    }
+
+    private Map<String, Integer> newMap() {
+        if (impl.equals("MyIncrementalHashMap")) {
+            return new MyIncrementalHashMap<String, Integer>();
+        }
+        return new MyFixedHashMap<String, Integer>();
+    }
+
+    @Benchmark
+    public Integer put() {
+        if (i == maxSize) {
+            map = newMap();
+            i = 0;
+        }
+        return map.put(keys[i], i++);
+    }
+}
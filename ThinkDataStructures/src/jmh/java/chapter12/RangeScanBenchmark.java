@@ -0,0 +1,66 @@
+package chapter12;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scans 1% of the keys of a tree through subMap.  With lazy views the time
+ * should grow with the size of the range, not the size of the tree.
+ *
+ * Run with `-p size=10000000` for the full-size case; it needs a few GB of heap.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RangeScanBenchmark {
+
+    @Param({"MyTreeMap", "TreeMap"})
+    public String impl;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private NavigableMap<Integer, Integer> map;
+    private int from;
+
+    @Setup
+    public void makeMap() {
+        if (impl.equals("TreeMap")) {
+            map = new TreeMap<Integer, Integer>();
+        } else {
+            map = new MyTreeMap<Integer, Integer>(true);
+        }
+        for (int i = 0; i < size; i++) {
+            map.put(i, i);
+        }
+    }
+
+    @Benchmark
+    public long scan() {
+        // move the range along so each call starts at a different key
+        from = (from + size / 7) % (size - size / 100);
+        long total = 0;
+        for (Map.Entry<Integer, Integer> entry : map.subMap(from, true, from + size / 100, false).entrySet()) {
+            total += entry.getValue();
+        }
+        return total;
+    }
+}
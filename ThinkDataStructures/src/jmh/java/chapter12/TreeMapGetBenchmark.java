@@ -0,0 +1,87 @@
+package chapter12;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up random keys in a MyBTreeMap, a balanced MyTreeMap and a
+ * java.util.TreeMap.  Once the tree is bigger than the caches, the B-tree
+ * should win because it touches fewer cache lines per lookup.
+ *
+ * The default size is 1M.  For larger trees, run with for example
+ * `-p size=10000000,100000000 -jvmArgsAppend -Xmx48g`.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TreeMapGetBenchmark {
+
+    @Param({"MyBTreeMap", "MyTreeMap", "TreeMap"})
+    public String impl;
+
+    @Param({"1000000"})
+    public int size;
+
+    // only used by MyBTreeMap
+    @Param({"64"})
+    public int fanout;
+
+    private Map<Integer, Integer> map;
+    private Integer[] lookups;
+    private int i;
+
+    @Setup
+    public void makeMap() {
+        if (impl.equals("MyBTreeMap")) {
+            map = new MyBTreeMap<Integer, Integer>(fanout);
+        } else if (impl.equals("MyTreeMap")) {
+            map = new MyTreeMap<Integer, Integer>(true);
+        } else {
+            map = new TreeMap<Integer, Integer>();
+        }
+        // insert in random order, as a real workload would
+        Random random = new Random(42);
+        int[] order = new int[size];
+        for (int j = 0; j < size; j++) {
+            order[j] = j;
+        }
+        for (int j = size - 1; j > 0; j--) {
+            int k = random.nextInt(j + 1);
+            int tmp = order[j];
+            order[j] = order[k];
+            order[k] = tmp;
+        }
+        for (int key : order) {
+            map.put(key, key);
+        }
+
+        lookups = new Integer[1 << 16];
+        for (int j = 0; j < lookups.length; j++) {
+            lookups[j] = random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public Integer get() {
+        i = (i + 1) & (lookups.length - 1);
+        return map.get(lookups[i]);
+    }
+}
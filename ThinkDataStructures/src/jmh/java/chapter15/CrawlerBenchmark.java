@@ -0,0 +1,164 @@
+package chapter15;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chapter14.TermCounter;
+
+/**
+ * Crawls a wiki of made-up pages stored as files, one page at a time as
+ * WikiCrawler.crawl does, and with ConcurrentWikiCrawler.
+ *
+ * The pages are read from disk the way WikiFetcher.readWikipedia reads the
+ * bundled ones, and `latencyMillis` adds a sleep to each read to stand in
+ * for the network.  With no latency the difference is the parsing spread
+ * over the cores; with some, the concurrent crawler overlaps the waits,
+ * which helps even on one core.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CrawlerBenchmark {
+
+    @Param({"Sequential", "Concurrent"})
+    public String crawler;
+
+    @Param({"0", "5"})
+    public int latencyMillis;
+
+    @Param({"200"})
+    public int pages;
+
+    @Param({"16"})
+    public int fetchWorkers;
+
+    private File dir;
+    private Map<String, TermCounter> stored;
+    private ConcurrentWikiCrawler.PageIndex index;
+
+    @Setup(Level.Trial)
+    public void writeCorpus() throws IOException {
+        dir = Files.createTempDirectory("wiki").toFile();
+        for (int i = 0; i < pages; i++) {
+            try (PrintWriter out = new PrintWriter(new File(dir, "Page_" + i), "UTF-8")) {
+                out.print(html(i));
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void makeIndex() {
+        stored = new ConcurrentHashMap<String, TermCounter>();
+        index = new ConcurrentWikiCrawler.PageIndex() {
+            @Override
+            public boolean isIndexed(String url) {
+                return stored.containsKey(url);
+            }
+
+            @Override
+            public void add(TermCounter counter) {
+                stored.put(counter.getLabel(), counter);
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Returns a page of about 20 paragraphs with some links to other pages.
+     */
+    private String html(int i) {
+        StringBuilder sb = new StringBuilder("<html><body><div id=\"mw-content-text\">");
+        for (int p = 0; p < 20; p++) {
+            sb.append("<p>");
+            for (int w = 0; w < 60; w++) {
+                sb.append("word").append((i * 31 + p * 7 + w) % 500).append(w % 10 == 0 ? ", " : " ");
+            }
+            int target = (i * 20 + p + 1) % pages;
+            sb.append("<a href=\"/wiki/Page_").append(target).append("\">see also</a>.</p>\n");
+        }
+        return sb.append("</div></body></html>").toString();
+    }
+
+    /**
+     * Reads a page from the corpus, after waiting `latencyMillis`.
+     */
+    private Elements read(String url) throws IOException {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        File file = new File(dir, url.substring(url.lastIndexOf('/') + 1));
+        Element content = Jsoup.parse(file, "UTF-8").getElementById("mw-content-text");
+        return content.select("p");
+    }
+
+    @Benchmark
+    public int crawl() throws IOException, InterruptedException {
+        String source = "https://en.wikipedia.org/wiki/Page_0";
+        if (crawler.equals("Concurrent")) {
+            return new ConcurrentWikiCrawler(source, this::read, index, fetchWorkers).crawl(Integer.MAX_VALUE).size();
+        }
+
+        // the loop of WikiCrawler.crawl, with the same source and index
+        Queue<String> queue = new LinkedList<String>();
+        SeenUrlSet seen = new SeenUrlSet();
+        seen.add(source);
+        queue.offer(source);
+        int count = 0;
+        while (!queue.isEmpty()) {
+            String url = queue.poll();
+            if (index.isIndexed(url)) {
+                continue;
+            }
+            Elements paragraphs = read(url);
+            TermCounter counter = new TermCounter(url);
+            counter.processElements(paragraphs);
+            index.add(counter);
+            for (String link : WikiCrawler.internalLinks(paragraphs)) {
+                if (seen.add(link)) {
+                    queue.offer(link);
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+}
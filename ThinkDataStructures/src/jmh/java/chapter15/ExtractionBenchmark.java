@@ -0,0 +1,125 @@
+package chapter15;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chapter14.TermCounter;
+import chapter14.WikiNodeIterable;
+
+/**
+ * Counts the words and finds the links of one page, by parsing it into a
+ * Jsoup Document as WikiFetcher.fetchWikipedia does, and with
+ * WikiExtractor.
+ *
+ * The page is made by WikiExtractorTest.page, shaped like a Wikipedia
+ * article with navigation, an infobox, references and navboxes around
+ * the paragraphs; WikiExtractorTest checks that both ways give the same
+ * counts and links for it.  BenchmarkRunner adds the GC profiler, and
+ * gc.alloc.rate.norm is the memory each way needs per page.
+ *
+ * With `count` false, only the text and links are found, and the DOM way
+ * should allocate about ten times as much as WikiExtractor, which makes
+ * little but the Strings it reports.  With `count` true, the regular
+ * expressions in TermCounter.processText cost the same either way and
+ * take up most of the time and memory.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    @Param({"Dom", "Streaming"})
+    public String path;
+
+    @Param({"100"})
+    public int paragraphs;
+
+    // whether to count the words, or only find the text and links
+    @Param({"true", "false"})
+    public boolean count;
+
+    private String html;
+
+    @Setup
+    public void makePage() {
+        html = WikiExtractorTest.page(new Random(17), paragraphs);
+    }
+
+    @Benchmark
+    public int extract() throws IOException {
+        if (!count) {
+            return path.equals("Dom") ? domText() : streamingText();
+        }
+        TermCounter counter = new TermCounter("Page");
+        List<String> links;
+        if (path.equals("Dom")) {
+            Elements paras = Jsoup.parse(html).getElementById("mw-content-text").select("p");
+            counter.processElements(paras);
+            links = WikiCrawler.internalLinks(paras);
+        } else {
+            links = WikiExtractor.countTerms(new StringReader(html), counter);
+        }
+        return counter.size() + links.size();
+    }
+
+    /**
+     * Finds the text and links of the paragraphs in the DOM, and returns
+     * the length of the text plus the number of links.
+     */
+    private int domText() {
+        Elements paras = Jsoup.parse(html).getElementById("mw-content-text").select("p");
+        int total = WikiCrawler.internalLinks(paras).size();
+        for (Node node : paras) {
+            for (Node child : new WikiNodeIterable(node)) {
+                if (child instanceof TextNode) {
+                    total += ((TextNode) child).text().length();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Does the same with WikiExtractor.
+     */
+    private int streamingText() throws IOException {
+        int[] total = {0};
+        WikiExtractor.extract(new StringReader(html), new WikiExtractor.Listener() {
+            @Override
+            public void text(String text) {
+                total[0] += text.length();
+            }
+
+            @Override
+            public void link(String href) {
+                if (href.startsWith("/wiki/")) {
+                    total[0]++;
+                }
+            }
+        });
+        return total[0];
+    }
+}
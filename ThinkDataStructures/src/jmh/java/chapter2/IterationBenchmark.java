@@ -0,0 +1,88 @@
+package chapter2;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chapter3.MyDoublyLinkedList;
+import chapter3.MyUnrolledLinkedList;
+
+/**
+ * Iterates over a list with for-each and over a subList.  BenchmarkRunner
+ * adds the GC profiler, so the gc.alloc.rate.norm column shows the bytes
+ * allocated per call, which should be a few dozen (the iterator) no matter
+ * how long the list is.
+ *
+ * The linked lists are here to compare scans: MyUnrolledLinkedList follows
+ * one pointer per node of 64 elements, so at 1M elements it should be
+ * several times faster than the lists with one node per element.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IterationBenchmark {
+
+    @Param({"MyArrayList", "MyCircularArrayList", "ArrayList",
+            "MyUnrolledLinkedList", "MyDoublyLinkedList", "LinkedList"})
+    public String impl;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private List<Integer> list;
+
+    @Setup
+    public void makeList() {
+        if (impl.equals("MyArrayList")) {
+            list = new MyArrayList<Integer>();
+        } else if (impl.equals("MyCircularArrayList")) {
+            list = new MyCircularArrayList<Integer>();
+        } else if (impl.equals("MyUnrolledLinkedList")) {
+            list = new MyUnrolledLinkedList<Integer>();
+        } else if (impl.equals("MyDoublyLinkedList")) {
+            list = new MyDoublyLinkedList<Integer>();
+        } else if (impl.equals("LinkedList")) {
+            list = new LinkedList<Integer>();
+        } else {
+            list = new ArrayList<Integer>();
+        }
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+    }
+
+    @Benchmark
+    public long forEach() {
+        long total = 0;
+        for (Integer x : list) {
+            total += x;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long subList() {
+        long total = 0;
+        for (Integer x : list.subList(size / 4, size / 2)) {
+            total += x;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,82 @@
+package chapter2;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Refills and sums a MyArrayList<Integer> and an IntArrayList.
+ * BenchmarkRunner adds the GC profiler, so the gc.alloc.rate.norm column
+ * shows the bytes allocated per call: about 16 per element for the boxed
+ * list, where every value above the Integer cache is a new object, and
+ * zero for IntArrayList once its array has grown.
+ *
+ * ListMemoryReport shows the retained bytes per element.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveListBenchmark {
+
+    @Param({"MyArrayList", "IntArrayList"})
+    public String impl;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private List<Integer> boxed;
+    private IntArrayList primitive;
+
+    @Setup
+    public void makeList() {
+        boxed = new MyArrayList<Integer>();
+        primitive = new IntArrayList();
+        fill();
+    }
+
+    @Benchmark
+    public int fill() {
+        if (impl.equals("MyArrayList")) {
+            boxed.clear();
+            for (int i = 0; i < size; i++) {
+                boxed.add(1000 + i);
+            }
+            return boxed.size();
+        }
+        primitive.clear();
+        for (int i = 0; i < size; i++) {
+            primitive.add(1000 + i);
+        }
+        return primitive.size();
+    }
+
+    @Benchmark
+    public long sum() {
+        long total = 0;
+        if (impl.equals("MyArrayList")) {
+            for (int i = 0; i < size; i++) {
+                total += boxed.get(i);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                total += primitive.get(i);
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,82 @@
+package chapter2.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chapter2.MyArrayList;
+
+/**
+ * Sorts a MyArrayList, which uses TimSort from chapter2.sort, and an
+ * ArrayList, which uses java.util.TimSort, on the same inputs as
+ * SortBenchmark.
+ *
+ * Each call refills the list from the unsorted values first, so the
+ * scores include that, the same for both lists.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListSortBenchmark {
+
+    @Param({"MyArrayList", "ArrayList"})
+    public String impl;
+
+    @Param({"random", "sorted", "duplicates"})
+    public String input;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private Integer[] values;
+    private List<Integer> list;
+
+    @Setup
+    public void makeInput() {
+        Random random = new Random(42);
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            if (input.equals("sorted")) {
+                values[i] = i;
+            } else if (input.equals("duplicates")) {
+                values[i] = random.nextInt(100);
+            } else {
+                values[i] = random.nextInt();
+            }
+        }
+        if (impl.equals("MyArrayList")) {
+            list = new MyArrayList<Integer>();
+        } else {
+            list = new ArrayList<Integer>();
+        }
+        for (Integer value : values) {
+            list.add(value);
+        }
+    }
+
+    @Benchmark
+    public List<Integer> sort() {
+        for (int i = 0; i < size; i++) {
+            list.set(i, values[i]);
+        }
+        list.sort(null);
+        return list;
+    }
+}
@@ -0,0 +1,107 @@
+package chapter2.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorts int and long arrays with each sorter in chapter2.sort and with
+ * Arrays.sort and Arrays.parallelSort, on random input, sorted input and
+ * input with only a hundred distinct values.
+ *
+ * Each call copies the unsorted input into a work array first, so the
+ * scores include one arraycopy, the same for every sorter.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+
+    @Param({"DualPivotQuicksort", "RadixSort", "ParallelMergeSort", "Arrays.sort", "Arrays.parallelSort"})
+    public String impl;
+
+    @Param({"random", "sorted", "duplicates"})
+    public String input;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private IntSorter intSorter;
+    private LongSorter longSorter;
+
+    private int[] ints;
+    private int[] intWork;
+    private long[] longs;
+    private long[] longWork;
+
+    @Setup
+    public void makeInput() {
+        if (impl.equals("DualPivotQuicksort")) {
+            DualPivotQuicksort sorter = new DualPivotQuicksort();
+            intSorter = sorter;
+            longSorter = sorter;
+        } else if (impl.equals("RadixSort")) {
+            RadixSort sorter = new RadixSort();
+            intSorter = sorter;
+            longSorter = sorter;
+        } else if (impl.equals("ParallelMergeSort")) {
+            ParallelMergeSort sorter = new ParallelMergeSort();
+            intSorter = sorter;
+            longSorter = sorter;
+        } else if (impl.equals("Arrays.sort")) {
+            intSorter = Arrays::sort;
+            longSorter = Arrays::sort;
+        } else {
+            intSorter = Arrays::parallelSort;
+            longSorter = Arrays::parallelSort;
+        }
+
+        Random random = new Random(42);
+        ints = new int[size];
+        longs = new long[size];
+        for (int i = 0; i < size; i++) {
+            if (input.equals("sorted")) {
+                ints[i] = i;
+                longs[i] = i;
+            } else if (input.equals("duplicates")) {
+                ints[i] = random.nextInt(100);
+                longs[i] = random.nextInt(100);
+            } else {
+                ints[i] = random.nextInt();
+                longs[i] = random.nextLong();
+            }
+        }
+        intWork = new int[size];
+        longWork = new long[size];
+    }
+
+    @Benchmark
+    public int[] sortInts() {
+        System.arraycopy(ints, 0, intWork, 0, size);
+        intSorter.sort(intWork);
+        return intWork;
+    }
+
+    @Benchmark
+    public long[] sortLongs() {
+        System.arraycopy(longs, 0, longWork, 0, size);
+        longSorter.sort(longWork);
+        return longWork;
+    }
+}
@@ -0,0 +1,83 @@
+package chapter11;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Prints how full the sub-maps of a MyFixedHashMap get for a few kinds of
+ * keys, next to what the old `Math.abs(hashCode) % k` index would give.
+ *
+ */
+public class BucketHistogramExample {
+
+    public static void main(String[] args) {
+        int n = 1 << 16;
+
+        System.out.println("\nKeys made with String.format(\"%10d\", i)");
+        String[] formatted = new String[n];
+        for (int i = 0; i < n; i++) {
+            formatted[i] = String.format("%10d", i);
+        }
+        printHistograms(formatted);
+
+        System.out.println("\nRandom UUID strings");
+        String[] uuids = new String[n];
+        for (int i = 0; i < n; i++) {
+            uuids[i] = UUID.randomUUID().toString();
+        }
+        printHistograms(uuids);
+
+        System.out.println("\nMultiples of 1024");
+        Integer[] multiples = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            multiples[i] = i * 1024;
+        }
+        printHistograms(multiples);
+    }
+
+    /**
+     * @param keys
+     */
+    private static <K> void printHistograms(K[] keys) {
+        MyFixedHashMap<K, Integer> map = new MyFixedHashMap<K, Integer>();
+        for (K key : keys) {
+            map.put(key, 0);
+        }
+        int[] histogram = map.bucketHistogram();
+        System.out.println("    spread and mask: " + Arrays.toString(histogram));
+
+        // same number of sub-maps, but indexed the old way
+        int k = histogram.length == 0 ? 1 : sum(histogram);
+        int[] counts = new int[k];
+        for (K key : keys) {
+            counts[Math.abs(key.hashCode()) % k]++;
+        }
+        int longest = 0;
+        for (int count : counts) {
+            longest = Math.max(longest, count);
+        }
+        int[] old = new int[longest + 1];
+        for (int count : counts) {
+            old[count]++;
+        }
+        System.out.println("    abs and modulo:  " + summarize(old));
+    }
+
+    private static int sum(int[] array) {
+        int total = 0;
+        for (int x : array) {
+            total += x;
+        }
+        return total;
+    }
+
+    /**
+     * Prints long histograms as their first few bins and the longest chain.
+     */
+    private static String summarize(int[] histogram) {
+        if (histogram.length <= 12) {
+            return Arrays.toString(histogram);
+        }
+        return Arrays.toString(Arrays.copyOf(histogram, 8)) + "... longest chain " + (histogram.length - 1);
+    }
+}
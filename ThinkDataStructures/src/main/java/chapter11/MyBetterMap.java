@@ -2,6 +2,11 @@ package chapter11;
 
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
 
 /**
  * Implementation of a Map using a collection of MyLinearMap, and
@@ -11,11 +16,16 @@ import java.util.*;
  * @param <V>
  * @author downey
  */
-public class MyBetterMap<K, V> implements Map<K, V> {
+public class MyBetterMap<K, V> implements Map<K, V>, MemoryFootprint {
 
     // MyBetterMap uses a collection of MyLinearMap
     protected List<MyLinearMap<K, V>> maps;
 
+    // views, made the first time they are asked for
+    private Set<K> keySet = null;
+    private Collection<V> values = null;
+    private Set<Entry<K, V>> entrySet = null;
+
     /**
      * Initialize the map with 2 sub-maps.
      */
@@ -26,9 +36,13 @@ public class MyBetterMap<K, V> implements Map<K, V> {
     /**
      * Makes a collection of `k` MyLinearMap
      *
+     * `k` is rounded up to a power of two, so indexFor can use a mask
+     * instead of a division.
+     *
      * @param k
      */
     protected void makeMaps(int k) {
+        k = Math.max(1, Integer.highestOneBit(k - 1) << 1);
         maps = new ArrayList<MyLinearMap<K, V>>(k);
         for (int i = 0; i < k; i++) {
             maps.add(new MyLinearMap<K, V>());
@@ -50,8 +64,55 @@ public class MyBetterMap<K, V> implements Map<K, V> {
      * @return
      */
     protected MyLinearMap<K, V> chooseMap(Object key) {
-        int index = key == null ? 0 : Math.abs(key.hashCode()) % maps.size();
-        return maps.get(index);
+        return maps.get(indexFor(key, maps.size()));
+    }
+
+    /**
+     * Returns the index of the map that `key` goes in when there are `k` maps.
+     *
+     * @param key
+     * @param k a power of two
+     * @return
+     */
+    protected int indexFor(Object key, int k) {
+        return key == null ? 0 : spread(key.hashCode()) & (k - 1);
+    }
+
+    /**
+     * Mixes all the bits of a hash code into the low bits, using the
+     * finalizer from MurmurHash3.
+     *
+     * Without it, keys whose hash codes differ only in the high bits, like
+     * many short strings of digits, would all get the same index.
+     *
+     * @param h
+     * @return
+     */
+    protected static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Returns a histogram of sub-map sizes: element `i` is the number of
+     * sub-maps with `i` entries.
+     *
+     * @return
+     */
+    public int[] bucketHistogram() {
+        int longest = 0;
+        for (MyLinearMap<K, V> map : maps) {
+            longest = Math.max(longest, map.size());
+        }
+        int[] histogram = new int[longest + 1];
+        for (MyLinearMap<K, V> map : maps) {
+            histogram[map.size()]++;
+        }
+        return histogram;
     }
 
     @Override
@@ -71,9 +132,161 @@ public class MyBetterMap<K, V> implements Map<K, V> {
         return false;
     }
 
+    /**
+     * Returns a view of the entries, backed by the sub-maps.  Its
+     * spliterator splits the range of sub-maps, so parallel streams over
+     * it divide the map between threads without copying it.
+     */
     @Override
     public Set<Entry<K, V>> entrySet() {
-        throw new UnsupportedOperationException();
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new BucketIterator<Entry<K, V>>(entry -> entry);
+                }
+
+                @Override
+                public Spliterator<Entry<K, V>> spliterator() {
+                    return bucketSpliterator(entry -> entry, Spliterator.DISTINCT | Spliterator.NONNULL);
+                }
+
+                @Override
+                public int size() {
+                    return MyBetterMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    if (!(obj instanceof Entry)) {
+                        return false;
+                    }
+                    Entry<?, ?> entry = (Entry<?, ?>) obj;
+                    Object key = entry.getKey();
+                    return containsKey(key) && Objects.equals(get(key), entry.getValue());
+                }
+
+                @Override
+                public boolean remove(Object obj) {
+                    if (!contains(obj)) {
+                        return false;
+                    }
+                    MyBetterMap.this.remove(((Entry<?, ?>) obj).getKey());
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    MyBetterMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Returns a spliterator over `part` of every entry.
+     */
+    private <T> Spliterator<T> bucketSpliterator(Function<Entry<K, V>, T> part, int characteristics) {
+        List<MyLinearMap<K, V>> scan = mapsToScan();
+        return new BucketSpliterator<T>(part, characteristics, scan, 0, scan.size(), size(), true);
+    }
+
+    /**
+     * Returns the sub-maps that hold every entry, for iterating.
+     *
+     * @return
+     */
+    protected List<MyLinearMap<K, V>> mapsToScan() {
+        return maps;
+    }
+
+    /**
+     * Spliterator over `part` of each entry of a range of sub-maps.
+     *
+     * trySplit gives away the first half of the range, so the pieces have
+     * about the same number of entries as long as the hash spreads the
+     * keys evenly.  Only the unsplit spliterator knows its exact size.
+     * It is not fail-fast: changing the map while it is in use can skip
+     * entries or visit them twice.
+     */
+    protected class BucketSpliterator<T> implements Spliterator<T> {
+        private final Function<Entry<K, V>, T> part;
+        private final int characteristics;
+        private final List<MyLinearMap<K, V>> buckets;
+        private int index;                  // next sub-map to start
+        private final int fence;            // one past the last sub-map
+        private long estimate;
+        private boolean exact;
+        private List<? extends Entry<K, V>> current = null;    // entries of a started sub-map
+        private int currentIndex = 0;                           // next one to visit
+
+        public BucketSpliterator(Function<Entry<K, V>, T> part, int characteristics,
+                                 List<MyLinearMap<K, V>> buckets, int origin, int fence, long estimate,
+                                 boolean exact) {
+            this.part = part;
+            this.characteristics = characteristics;
+            this.buckets = buckets;
+            this.index = origin;
+            this.fence = fence;
+            this.estimate = estimate;
+            this.exact = exact;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (current != null || index >= mid) {
+                return null;
+            }
+            BucketSpliterator<T> prefix = new BucketSpliterator<T>(part, characteristics, buckets, index, mid,
+                    estimate >>> 1, false);
+            index = mid;
+            estimate -= prefix.estimate;
+            exact = false;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (current == null || currentIndex >= current.size()) {
+                if (index >= fence) {
+                    return false;
+                }
+                current = buckets.get(index++).getEntries();
+                currentIndex = 0;
+            }
+            action.accept(part.apply(current.get(currentIndex++)));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (current != null) {
+                for (int j = currentIndex; j < current.size(); j++) {
+                    action.accept(part.apply(current.get(j)));
+                }
+                current = null;
+            }
+            // index the lists instead of iterating, so nothing is allocated per sub-map
+            for (int i = index; i < fence; i++) {
+                List<? extends Entry<K, V>> entries = buckets.get(i).getEntries();
+                for (int j = 0; j < entries.size(); j++) {
+                    action.accept(part.apply(entries.get(j)));
+                }
+            }
+            index = fence;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return exact ? characteristics | Spliterator.SIZED : characteristics;
+        }
     }
 
     @Override
@@ -87,14 +300,49 @@ public class MyBetterMap<K, V> implements Map<K, V> {
         return size() == 0;
     }
 
+    /**
+     * Returns a view of the keys, backed by the sub-maps.
+     */
     @Override
     public Set<K> keySet() {
-        // add up the keySets from the sub-maps
-        Set<K> set = new HashSet<K>();
-        for (MyLinearMap<K, V> map : maps) {
-            set.addAll(map.keySet());
+        if (keySet == null) {
+            keySet = new AbstractSet<K>() {
+                @Override
+                public Iterator<K> iterator() {
+                    return new BucketIterator<K>(Entry::getKey);
+                }
+
+                @Override
+                public Spliterator<K> spliterator() {
+                    return bucketSpliterator(Entry::getKey, Spliterator.DISTINCT);
+                }
+
+                @Override
+                public int size() {
+                    return MyBetterMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return containsKey(obj);
+                }
+
+                @Override
+                public boolean remove(Object obj) {
+                    if (!containsKey(obj)) {
+                        return false;
+                    }
+                    MyBetterMap.this.remove(obj);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    MyBetterMap.this.clear();
+                }
+            };
         }
-        return set;
+        return keySet;
     }
 
     @Override
@@ -116,6 +364,18 @@ public class MyBetterMap<K, V> implements Map<K, V> {
         return map.remove(key);
     }
 
+    /**
+     * Counts the map, the list of sub-maps and each sub-map.
+     */
+    @Override
+    public long estimatedBytes() {
+        long total = MemoryLayout.object(4, 0) + MemoryLayout.arrayList(maps.size());
+        for (MyLinearMap<K, V> map : maps) {
+            total += map.estimatedBytes();
+        }
+        return total;
+    }
+
     @Override
     public int size() {
         // add up the sizes of the sub-maps
@@ -126,14 +386,94 @@ public class MyBetterMap<K, V> implements Map<K, V> {
         return total;
     }
 
+    /**
+     * Returns a view of the values, backed by the sub-maps.  A value
+     * appears once for every key it is mapped from.
+     */
     @Override
     public Collection<V> values() {
-        // add up the valueSets from the sub-maps
-        Set<V> set = new HashSet<V>();
-        for (MyLinearMap<K, V> map : maps) {
-            set.addAll(map.values());
+        if (values == null) {
+            values = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new BucketIterator<V>(Entry::getValue);
+                }
+
+                @Override
+                public Spliterator<V> spliterator() {
+                    return bucketSpliterator(Entry::getValue, 0);
+                }
+
+                @Override
+                public int size() {
+                    return MyBetterMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return containsValue(obj);
+                }
+
+                @Override
+                public void clear() {
+                    MyBetterMap.this.clear();
+                }
+            };
+        }
+        return values;
+    }
+
+    /**
+     * Iterator over the entries of every sub-map that returns `part` of
+     * each one.
+     *
+     * It reads each sub-map's list by index, so iterating allocates
+     * nothing but the iterator.  remove goes through the map, so
+     * subclasses that keep count of their size stay correct.
+     */
+    private class BucketIterator<T> implements Iterator<T> {
+        private final Function<Entry<K, V>, T> part;
+        private final List<MyLinearMap<K, V>> buckets = mapsToScan();
+        private int bucket = -1;                                    // sub-map the cursor is in
+        private List<? extends Entry<K, V>> entries = Collections.emptyList();
+        private int cursor = 0;                                     // next entry in it
+        private Entry<K, V> lastReturned = null;
+
+        BucketIterator(Function<Entry<K, V>, T> part) {
+            this.part = part;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (cursor >= entries.size()) {
+                if (bucket + 1 >= buckets.size()) {
+                    return false;
+                }
+                entries = buckets.get(++bucket).getEntries();
+                cursor = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = entries.get(cursor++);
+            return part.apply(lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            // the entry comes out of the list the cursor is in
+            MyBetterMap.this.remove(lastReturned.getKey());
+            cursor--;
+            lastReturned = null;
         }
-        return set;
     }
 
     /**
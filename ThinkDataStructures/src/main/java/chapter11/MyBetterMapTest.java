@@ -3,7 +3,14 @@
  */
 package chapter11;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.Spliterator;
+
 import org.junit.Before;
+import org.junit.Test;
 
 /**
  * @author downey
@@ -22,4 +29,91 @@ public class MyBetterMapTest extends MyLinearMapTest {
 		map.put("Three", 3);
 		map.put(null, 0);
 	}
+
+	/**
+	 * Test method for {@link MyBetterMap#bucketHistogram()}.
+	 */
+	@Test
+	public void testBucketHistogram() {
+		int[] histogram = ((MyBetterMap<String, Integer>) map).bucketHistogram();
+		int maps = 0;
+		int entries = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			maps += histogram[i];
+			entries += i * histogram[i];
+		}
+		assertThat(maps, is(2));
+		assertThat(entries, is(4));
+	}
+
+	/**
+	 * Math.abs(Integer.MIN_VALUE) is negative, so this key used to give
+	 * chooseMap a negative index.  Integer.MIN_VALUE % 2 is 0, so the
+	 * default two sub-maps hide the problem; the map here asks for 3.
+	 */
+	@Test
+	public void testMinValueHashCode() {
+		MyBetterMap<Object, Integer> objects = new MyBetterMap<Object, Integer>();
+		objects.makeMaps(3);
+		Object[] keys = new Object[3];
+		int[] hashes = {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1};
+		for (int i = 0; i < keys.length; i++) {
+			int hash = hashes[i];
+			keys[i] = new Object() {
+				@Override
+				public int hashCode() {
+					return hash;
+				}
+			};
+			objects.put(keys[i], i);
+		}
+		for (int i = 0; i < keys.length; i++) {
+			assertThat(objects.get(keys[i]), is(i));
+		}
+	}
+
+	/**
+	 * Test method for {@link MyBetterMap#indexFor(Object, int)}: every
+	 * hash code gets an index in range, for every number of sub-maps.
+	 */
+	@Test
+	public void testIndexFor() {
+		MyBetterMap<Integer, Integer> better = new MyBetterMap<Integer, Integer>();
+		int[] hashes = {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1, 0, 1, Integer.MAX_VALUE};
+		for (int bits = 0; bits <= 30; bits++) {
+			int k = 1 << bits;
+			for (int hash : hashes) {
+				int index = better.indexFor(hash, k);
+				assertThat(index >= 0 && index < k, is(true));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link MyBetterMap#entrySet()}: the entries of
+	 * every sub-map show up once, sequentially, in parallel and after
+	 * splitting by hand.
+	 */
+	@Test
+	public void testEntryStream() {
+		for (int i = 4; i <= 1000; i++) {
+			map.put(Integer.toString(i), i);
+		}
+		// the values of One, Two, Three and null add up to 6
+		long expected = 500500;
+		assertThat(map.entrySet().stream().mapToLong(e -> e.getValue()).sum(), is(expected));
+		assertThat(map.entrySet().parallelStream().mapToLong(e -> e.getValue()).sum(), is(expected));
+		assertThat(map.entrySet().size(), is(1001));
+
+		Spliterator<Map.Entry<String, Integer>> suffix = map.entrySet().spliterator();
+		assertThat(suffix.estimateSize(), is(1001L));
+		Spliterator<Map.Entry<String, Integer>> prefix = suffix.trySplit();
+		long[] count = new long[1];
+		if (prefix != null) {
+			prefix.forEachRemaining(e -> count[0]++);
+		}
+		while (suffix.tryAdvance(e -> count[0]++)) {
+		}
+		assertThat(count[0], is(1001L));
+	}
 }
@@ -0,0 +1,649 @@
+/**
+ *
+ */
+package chapter11;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Implementation of a ConcurrentMap using lock striping.
+ *
+ * Like MyBetterMap, the map is split into sub-maps, here called segments,
+ * and the hash code chooses the segment.  Each segment is a small chained
+ * hash table with its own lock, so threads that update keys in different
+ * segments don't wait for each other.
+ *
+ * `get` takes no lock.  The table of a segment is published through a
+ * volatile field and its bins through an AtomicReferenceArray, a new node
+ * is fully built before it is linked in at the head of its bin, and the
+ * value and next fields of a node are volatile, so a reader always sees a
+ * consistent chain.
+ *
+ * Each segment grows on its own, under its own lock, by building a new
+ * table and then publishing it.  Readers that already have the old table
+ * finish their lookup in it, and threads working in other segments are
+ * not held up at all.
+ *
+ * `merge` and the `compute` methods hold the segment lock while they call
+ * the function, so they are atomic and call it at most once.  The function
+ * must not update this map.
+ *
+ * Like ConcurrentHashMap, the map does not allow null keys or values,
+ * because `get` returning null has to mean the key is absent.  `size` adds
+ * up the segment counts without locking, so it is only exact when no other
+ * thread is updating the map.  Iterators are weakly consistent: they never
+ * throw ConcurrentModificationException and they see each entry at most
+ * once, but may or may not see changes made after they were created.
+ *
+ * @param <K>
+ * @param <V>
+ *
+ */
+public class MyConcurrentHashMap<K, V> implements ConcurrentMap<K, V> {
+
+    // fraction of the bins that may be used before a segment grows
+    protected static final double LOAD_FACTOR = 0.75;
+
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 4;
+
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A chained hash table guarded by its own lock.  Writers hold the lock;
+     * readers only read `table` and the bins.
+     */
+    private static class Segment<K, V> extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        volatile AtomicReferenceArray<Node<K, V>> table;
+        volatile int count = 0;
+        int threshold;
+
+        Segment(int capacity) {
+            makeTable(capacity);
+        }
+
+        private void makeTable(int capacity) {
+            table = new AtomicReferenceArray<Node<K, V>>(capacity);
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        V get(Object key, int hash) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            for (Node<K, V> node = tab.get(hash & (tab.length() - 1)); node != null; node = node.next) {
+                if (node.hash == hash && key.equals(node.key)) {
+                    return node.value;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the node for `key`, or null.  Call with the lock held.
+         */
+        private Node<K, V> find(Object key, int hash) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            for (Node<K, V> node = tab.get(hash & (tab.length() - 1)); node != null; node = node.next) {
+                if (node.hash == hash && key.equals(node.key)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Links a new node in at the head of its bin.  Call with the lock
+         * held, after checking that the key is absent.
+         */
+        private void insert(K key, int hash, V value) {
+            if (count + 1 > threshold) {
+                grow();
+            }
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int i = hash & (tab.length() - 1);
+            tab.set(i, new Node<K, V>(hash, key, value, tab.get(i)));
+            count++;
+        }
+
+        /**
+         * Unlinks the node for `key`, if there is one, and returns it.  Call
+         * with the lock held.
+         */
+        private Node<K, V> unlink(Object key, int hash) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int i = hash & (tab.length() - 1);
+            Node<K, V> prev = null;
+            for (Node<K, V> node = tab.get(i); node != null; prev = node, node = node.next) {
+                if (node.hash == hash && key.equals(node.key)) {
+                    if (prev == null) {
+                        tab.set(i, node.next);
+                    } else {
+                        prev.next = node.next;
+                    }
+                    count--;
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Doubles the table.  The nodes are copied rather than relinked, so
+         * a reader that is walking a chain of the old table is not sent
+         * into a different bin.
+         */
+        private void grow() {
+            AtomicReferenceArray<Node<K, V>> old = table;
+            int n = old.length() * 2;
+            AtomicReferenceArray<Node<K, V>> tab = new AtomicReferenceArray<Node<K, V>>(n);
+            for (int i = 0; i < old.length(); i++) {
+                for (Node<K, V> node = old.get(i); node != null; node = node.next) {
+                    int j = node.hash & (n - 1);
+                    tab.lazySet(j, new Node<K, V>(node.hash, node.key, node.value, tab.get(j)));
+                }
+            }
+            table = tab;
+            threshold = (int) (n * LOAD_FACTOR);
+        }
+
+        V put(K key, int hash, V value, boolean onlyIfAbsent) {
+            lock();
+            try {
+                Node<K, V> node = find(key, hash);
+                if (node == null) {
+                    insert(key, hash, value);
+                    return null;
+                }
+                V oldValue = node.value;
+                if (!onlyIfAbsent) {
+                    node.value = value;
+                }
+                return oldValue;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Replaces the value of `key` if it is `expected`, or if `expected`
+         * is null and the key is present, and returns the old value.
+         */
+        V replace(K key, int hash, V expected, V value) {
+            lock();
+            try {
+                Node<K, V> node = find(key, hash);
+                if (node == null || (expected != null && !expected.equals(node.value))) {
+                    return null;
+                }
+                V oldValue = node.value;
+                node.value = value;
+                return oldValue;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Removes `key` if its value is `expected`, or if `expected` is
+         * null, and returns the old value.
+         */
+        V remove(Object key, int hash, Object expected) {
+            lock();
+            try {
+                Node<K, V> node = find(key, hash);
+                if (node == null || (expected != null && !expected.equals(node.value))) {
+                    return null;
+                }
+                unlink(key, hash);
+                return node.value;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Applies `function` to the current value of `key`, or null if it
+         * is absent, and stores the result, removing the key if it is null.
+         */
+        V compute(K key, int hash, BiFunction<? super K, ? super V, ? extends V> function) {
+            lock();
+            try {
+                Node<K, V> node = find(key, hash);
+                V oldValue = node == null ? null : node.value;
+                V value = function.apply(key, oldValue);
+                if (value == null) {
+                    if (node != null) {
+                        unlink(key, hash);
+                    }
+                } else if (node == null) {
+                    insert(key, hash, value);
+                } else {
+                    node.value = value;
+                }
+                return value;
+            } finally {
+                unlock();
+            }
+        }
+
+        void clear() {
+            lock();
+            try {
+                makeTable(INITIAL_SEGMENT_CAPACITY);
+                count = 0;
+            } finally {
+                unlock();
+            }
+        }
+    }
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+
+    // views, made the first time they are asked for
+    private Set<K> keySet = null;
+    private Collection<V> values = null;
+    private Set<Entry<K, V>> entrySet = null;
+
+    public MyConcurrentHashMap() {
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param concurrencyLevel the number of segments, rounded up to a power
+     *        of two; about the number of threads expected to write at once
+     */
+    @SuppressWarnings("unchecked")
+    public MyConcurrentHashMap(int concurrencyLevel) {
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive");
+        }
+        int k = Math.max(2, Integer.highestOneBit(concurrencyLevel - 1) << 1);
+        segments = (Segment<K, V>[]) new Segment<?, ?>[k];
+        for (int i = 0; i < k; i++) {
+            segments[i] = new Segment<K, V>(INITIAL_SEGMENT_CAPACITY);
+        }
+        segmentShift = 32 - Integer.numberOfTrailingZeros(k);
+    }
+
+    /**
+     * Returns the spread hash code of `key`.
+     */
+    private static int hash(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return MyBetterMap.spread(key.hashCode());
+    }
+
+    /**
+     * Chooses the segment from the high bits of the hash, so the low bits,
+     * which choose the bin, stay independent of it.
+     */
+    private Segment<K, V> segmentFor(int hash) {
+        return segments[hash >>> segmentShift];
+    }
+
+    private static void checkValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object target) {
+        checkValue(target);
+        for (Segment<K, V> segment : segments) {
+            AtomicReferenceArray<Node<K, V>> tab = segment.table;
+            for (int i = 0; i < tab.length(); i++) {
+                for (Node<K, V> node = tab.get(i); node != null; node = node.next) {
+                    if (target.equals(node.value)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        checkValue(value);
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        checkValue(value);
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int hash = hash(key);
+        return value != null && segmentFor(hash).remove(key, hash, value) != null;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        checkValue(oldValue);
+        checkValue(newValue);
+        int hash = hash(key);
+        return segmentFor(hash).replace(key, hash, oldValue, newValue) != null;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        checkValue(value);
+        int hash = hash(key);
+        return segmentFor(hash).replace(key, hash, null, value);
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        int hash = hash(key);
+        return segmentFor(hash).compute(key, hash, function);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        int hash = hash(key);
+        Segment<K, V> segment = segmentFor(hash);
+        V value = segment.get(key, hash);
+        if (value != null) {
+            // the common case, without taking the lock
+            return value;
+        }
+        return segment.compute(key, hash, (k, old) -> old != null ? old : function.apply(k));
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        int hash = hash(key);
+        return segmentFor(hash).compute(key, hash, (k, old) -> old == null ? null : function.apply(k, old));
+    }
+
+    /**
+     * Atomically stores `value` if `key` is absent, or combines it with the
+     * current value; `merge(word, 1, Integer::sum)` counts words.
+     */
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+        checkValue(value);
+        int hash = hash(key);
+        return segmentFor(hash).compute(key, hash, (k, old) -> old == null ? value : function.apply(old, value));
+    }
+
+    @Override
+    public int size() {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            total += segment.count;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new NodeIterator<Entry<K, V>>(MapEntry::new);
+                }
+
+                @Override
+                public int size() {
+                    return MyConcurrentHashMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    if (!(obj instanceof Entry)) {
+                        return false;
+                    }
+                    Entry<?, ?> entry = (Entry<?, ?>) obj;
+                    V value = get(entry.getKey());
+                    return value != null && value.equals(entry.getValue());
+                }
+
+                @Override
+                public boolean remove(Object obj) {
+                    if (!(obj instanceof Entry)) {
+                        return false;
+                    }
+                    Entry<?, ?> entry = (Entry<?, ?>) obj;
+                    return MyConcurrentHashMap.this.remove(entry.getKey(), entry.getValue());
+                }
+
+                @Override
+                public void clear() {
+                    MyConcurrentHashMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Entry made by the entry iterator, which writes setValue through to
+     * the map.
+     */
+    private class MapEntry extends AbstractMap.SimpleEntry<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over the nodes, one segment at a time.
+     * It reads each segment's table when it gets to it, so it sees the
+     * entries that were there then, and maybe some that came later.
+     */
+    private class NodeIterator<T> implements Iterator<T> {
+        private final BiFunction<K, V, T> part;
+        private int segmentIndex = 0;
+        private AtomicReferenceArray<Node<K, V>> tab = null;
+        private int binIndex = 0;
+        private Node<K, V> next = null;
+        private K lastKey = null;
+
+        NodeIterator(BiFunction<K, V, T> part) {
+            this.part = part;
+            advance();
+        }
+
+        /**
+         * Moves `next` to the next node, or null if there are no more.
+         */
+        private void advance() {
+            if (next != null) {
+                next = next.next;
+            }
+            while (next == null) {
+                if (tab != null && binIndex < tab.length()) {
+                    next = tab.get(binIndex++);
+                } else if (segmentIndex < segments.length) {
+                    tab = segments[segmentIndex++].table;
+                    binIndex = 0;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = next;
+            advance();
+            lastKey = node.key;
+            return part.apply(node.key, node.value);
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            MyConcurrentHashMap.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        if (keySet == null) {
+            keySet = new AbstractSet<K>() {
+                @Override
+                public Iterator<K> iterator() {
+                    return new NodeIterator<K>((key, value) -> key);
+                }
+
+                @Override
+                public int size() {
+                    return MyConcurrentHashMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return containsKey(obj);
+                }
+
+                @Override
+                public boolean remove(Object obj) {
+                    return MyConcurrentHashMap.this.remove(obj) != null;
+                }
+
+                @Override
+                public void clear() {
+                    MyConcurrentHashMap.this.clear();
+                }
+            };
+        }
+        return keySet;
+    }
+
+    @Override
+    public Collection<V> values() {
+        if (values == null) {
+            values = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new NodeIterator<V>((key, value) -> value);
+                }
+
+                @Override
+                public int size() {
+                    return MyConcurrentHashMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return containsValue(obj);
+                }
+
+                @Override
+                public void clear() {
+                    MyConcurrentHashMap.this.clear();
+                }
+            };
+        }
+        return values;
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        ConcurrentMap<String, Integer> map = new MyConcurrentHashMap<String, Integer>();
+        for (String word : "the quick brown fox jumps over the lazy dog".split(" ")) {
+            map.merge(word, 1, Integer::sum);
+        }
+        System.out.println(map.get("the"));
+    }
+}
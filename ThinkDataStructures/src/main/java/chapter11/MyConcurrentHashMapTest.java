@@ -0,0 +1,239 @@
+/**
+ *
+ */
+package chapter11;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author downey
+ *
+ */
+public class MyConcurrentHashMapTest {
+
+	protected ConcurrentMap<String, Integer> map;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new MyConcurrentHashMap<String, Integer>(4);
+		map.put("One", 1);
+		map.put("Two", 2);
+		map.put("Three", 3);
+	}
+
+	/**
+	 * Test method for {@link MyConcurrentHashMap#get(Object)} and
+	 * {@link MyConcurrentHashMap#put(Object, Object)}.
+	 */
+	@Test
+	public void testPutGet() {
+		assertThat(map.get("Two"), is(2));
+		assertThat(map.get("Four"), nullValue());
+		assertThat(map.put("Two", 22), is(2));
+		assertThat(map.get("Two"), is(22));
+		assertThat(map.size(), is(3));
+		assertThat(map.containsKey("One"), is(true));
+		assertThat(map.containsValue(22), is(true));
+		assertThat(map.containsValue(2), is(false));
+	}
+
+	/**
+	 * The map should grow and keep every entry.
+	 */
+	@Test
+	public void testManyPutsAndRemoves() {
+		Map<String, Integer> expected = new HashMap<String, Integer>(map);
+		for (int i = 0; i < 10000; i++) {
+			map.put("key" + i, i);
+			expected.put("key" + i, i);
+		}
+		for (int i = 0; i < 10000; i += 3) {
+			assertThat(map.remove("key" + i), is(i));
+			expected.remove("key" + i);
+		}
+		assertThat(map.size(), is(expected.size()));
+		for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+			assertThat(map.get(entry.getKey()), is(entry.getValue()));
+		}
+		assertThat(map.get("key0"), nullValue());
+
+		map.clear();
+		assertThat(map.isEmpty(), is(true));
+		assertThat(map.get("key1"), nullValue());
+	}
+
+	/**
+	 * Null keys and values are not allowed.
+	 */
+	@Test
+	public void testNulls() {
+		try {
+			map.put(null, 0);
+			fail();
+		} catch (NullPointerException e) {} // good
+
+		try {
+			map.put("Four", null);
+			fail();
+		} catch (NullPointerException e) {} // good
+
+		try {
+			map.get(null);
+			fail();
+		} catch (NullPointerException e) {} // good
+	}
+
+	/**
+	 * Test method for the conditional updates of ConcurrentMap.
+	 */
+	@Test
+	public void testConditionalUpdates() {
+		assertThat(map.putIfAbsent("One", 11), is(1));
+		assertThat(map.putIfAbsent("Four", 4), nullValue());
+		assertThat(map.get("Four"), is(4));
+
+		assertThat(map.replace("One", 2, 12), is(false));
+		assertThat(map.replace("One", 1, 11), is(true));
+		assertThat(map.get("One"), is(11));
+		assertThat(map.replace("Five", 5), nullValue());
+		assertThat(map.containsKey("Five"), is(false));
+		assertThat(map.replace("Two", 22), is(2));
+
+		assertThat(map.remove("Three", 4), is(false));
+		assertThat(map.remove("Three", 3), is(true));
+		assertThat(map.containsKey("Three"), is(false));
+	}
+
+	/**
+	 * Test method for {@link MyConcurrentHashMap#merge} and the compute
+	 * methods.
+	 */
+	@Test
+	public void testMergeAndCompute() {
+		assertThat(map.merge("One", 10, Integer::sum), is(11));
+		assertThat(map.merge("Four", 4, Integer::sum), is(4));
+		assertThat(map.merge("Four", 0, (a, b) -> null), nullValue());
+		assertThat(map.containsKey("Four"), is(false));
+
+		assertThat(map.compute("Two", (k, v) -> v * 10), is(20));
+		assertThat(map.compute("Five", (k, v) -> v == null ? 5 : v), is(5));
+		assertThat(map.compute("Five", (k, v) -> null), nullValue());
+		assertThat(map.containsKey("Five"), is(false));
+
+		assertThat(map.computeIfAbsent("Three", k -> 33), is(3));
+		assertThat(map.computeIfAbsent("Six", String::length), is(3));
+		assertThat(map.computeIfPresent("Seven", (k, v) -> 7), nullValue());
+		assertThat(map.containsKey("Seven"), is(false));
+		assertThat(map.computeIfPresent("Six", (k, v) -> null), nullValue());
+		assertThat(map.containsKey("Six"), is(false));
+	}
+
+	/**
+	 * The views should see the map and write through to it.
+	 */
+	@Test
+	public void testViews() {
+		int total = 0;
+		for (Map.Entry<String, Integer> entry : map.entrySet()) {
+			total += entry.getValue();
+			if (entry.getKey().equals("Two")) {
+				entry.setValue(20);
+			}
+		}
+		assertThat(total, is(6));
+		assertThat(map.get("Two"), is(20));
+
+		map.keySet().remove("One");
+		assertThat(map.containsKey("One"), is(false));
+		assertThat(map.values().size(), is(2));
+
+		Iterator<Integer> iter = map.values().iterator();
+		while (iter.hasNext()) {
+			if (iter.next() == 3) {
+				iter.remove();
+			}
+		}
+		assertThat(map.size(), is(1));
+		assertThat(map.keySet().contains("Two"), is(true));
+	}
+
+	/**
+	 * Counters updated with merge from several threads should not lose
+	 * any increments.
+	 */
+	@Test
+	public void testConcurrentMerge() throws InterruptedException {
+		ConcurrentMap<Integer, Integer> counts = new MyConcurrentHashMap<Integer, Integer>();
+		int threads = 4;
+		int updates = 20000;
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			Thread worker = new Thread(() -> {
+				for (int i = 0; i < updates; i++) {
+					counts.merge(i % 1000, 1, Integer::sum);
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertThat(counts.size(), is(1000));
+		for (int key = 0; key < 1000; key++) {
+			assertThat(counts.get(key), is(threads * updates / 1000));
+		}
+	}
+
+	/**
+	 * Readers should see each key either absent or with its value while
+	 * other threads add and remove keys and the segments grow.
+	 */
+	@Test
+	public void testReadsDuringUpdates() throws InterruptedException {
+		ConcurrentMap<Integer, Integer> squares = new MyConcurrentHashMap<Integer, Integer>(2);
+		int n = 50000;
+		boolean[] bad = new boolean[1];
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < n; i++) {
+				squares.put(i, i * i);
+				if (i % 2 == 0) {
+					squares.remove(i / 2);
+				}
+			}
+		});
+		Thread reader = new Thread(() -> {
+			for (int round = 0; round < 5; round++) {
+				for (int i = 0; i < n; i++) {
+					Integer value = squares.get(i);
+					if (value != null && value != i * i) {
+						bad[0] = true;
+					}
+				}
+			}
+		});
+		writer.start();
+		reader.start();
+		writer.join();
+		reader.join();
+		assertThat(bad[0], is(false));
+		assertThat(squares.size(), is(n / 2));
+		assertThat(squares.get(n - 1), is((n - 1) * (n - 1)));
+	}
+}
@@ -3,7 +3,11 @@
  */
 package chapter11;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
 import org.junit.Before;
+import org.junit.Test;
 
 /**
  * @author downey
@@ -22,4 +26,56 @@ public class MyHashMapTest extends MyLinearMapTest {
         map.put("Three", 3);
         map.put(null, 0);
     }
+
+    /**
+     * Keys with the same hash code all go in one MyLinearMap, which should
+     * switch to a tree and back.
+     */
+    @Test
+    public void testCollidingKeys() {
+        MyHashMap<String, Integer> colliding = new MyHashMap<String, Integer>();
+        int n = 1000;
+        for (int i = 0; i < n; i++) {
+            colliding.put(ProfileMapPut.collidingKey(i), i);
+        }
+        MyLinearMap<String, Integer> bucket = colliding.chooseMap(ProfileMapPut.collidingKey(0));
+        assertThat(bucket.size(), is(n));
+        assertThat(bucket.isTreeified(), is(true));
+        for (int i = 0; i < n; i++) {
+            assertThat(colliding.get(ProfileMapPut.collidingKey(i)), is(i));
+        }
+        assertThat(colliding.containsKey(ProfileMapPut.collidingKey(n)), is(false));
+
+        for (int i = 0; i < n - 5; i++) {
+            assertThat(colliding.remove(ProfileMapPut.collidingKey(i)), is(i));
+        }
+        assertThat(bucket.isTreeified(), is(false));
+        assertThat(colliding.size(), is(5));
+        assertThat(colliding.get(ProfileMapPut.collidingKey(n - 1)), is(n - 1));
+    }
+
+    /**
+     * Keys that can't be compared with each other stay in the list.
+     */
+    @Test
+    public void testMixedKeys() {
+        MyLinearMap<Object, Integer> mixed = new MyLinearMap<Object, Integer>();
+        for (int i = 0; i < 20; i++) {
+            mixed.put(i % 2 == 0 ? Integer.valueOf(i) : Integer.toString(i), i);
+        }
+        assertThat(mixed.isTreeified(), is(false));
+        for (int i = 0; i < 20; i++) {
+            assertThat(mixed.get(i % 2 == 0 ? Integer.valueOf(i) : Integer.toString(i)), is(i));
+        }
+
+        MyLinearMap<Object, Integer> strings = new MyLinearMap<Object, Integer>();
+        for (int i = 0; i < 20; i++) {
+            strings.put(Integer.toString(i), i);
+        }
+        assertThat(strings.isTreeified(), is(true));
+        strings.put(20, 20);
+        assertThat(strings.isTreeified(), is(false));
+        assertThat(strings.get("7"), is(7));
+        assertThat(strings.get(20), is(20));
+    }
 }
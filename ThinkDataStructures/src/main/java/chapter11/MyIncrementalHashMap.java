@@ -0,0 +1,244 @@
+/**
+ *
+ */
+package chapter11;
+
+import java.util.List;
+import java.util.Map;
+
+import chapter4.MemoryLayout;
+
+/**
+ * Implementation of a HashMap that spreads the work of rehashing over
+ * many operations, the way Redis does.
+ *
+ * When the map grows it keeps the old list of sub-maps next to the new one,
+ * and every later operation moves a few of the old sub-maps into the new
+ * ones.  No single put pays for copying the whole map.
+ *
+ * @author downey
+ * @param <K>
+ * @param <V>
+ *
+ */
+public class MyIncrementalHashMap<K, V> extends MyHashMap<K, V> implements Map<K, V> {
+
+    // number of non-empty old sub-maps moved by each operation during a rehash
+    protected static final int REHASH_STEPS = 1;
+
+    // number of empty old sub-maps an operation may skip before it gives up
+    protected static final int EMPTY_VISITS = 10 * REHASH_STEPS;
+
+    // the sub-maps before the last resize, or null when no rehash is running
+    private List<MyLinearMap<K, V>> oldMaps = null;
+
+    // old sub-maps below this index have already been moved
+    private int rehashIndex = 0;
+
+    private int size = 0;
+
+    @Override
+    public void clear() {
+        super.clear();
+        oldMaps = null;
+        size = 0;
+    }
+
+    /**
+     * Returns true if there are old sub-maps that have not been moved yet.
+     *
+     * @return
+     */
+    public boolean isRehashing() {
+        return oldMaps != null;
+    }
+
+    /**
+     * Returns the old sub-map that would contain `key`, if it has not been moved yet.
+     *
+     * @param key
+     * @return the sub-map, or null
+     */
+    private MyLinearMap<K, V> chooseOldMap(Object key) {
+        if (oldMaps == null) {
+            return null;
+        }
+        int index = indexFor(key, oldMaps.size());
+        return index >= rehashIndex ? oldMaps.get(index) : null;
+    }
+
+    /**
+     * Returns the sub-map, old or new, that contains `key` or would contain it.
+     *
+     * A key is never in both, because put moves the old sub-map of its key first.
+     *
+     * @param key
+     * @return
+     */
+    private MyLinearMap<K, V> findMap(Object key) {
+        MyLinearMap<K, V> old = chooseOldMap(key);
+        if (old != null && old.containsKey(key)) {
+            return old;
+        }
+        return chooseMap(key);
+    }
+
+    @Override
+    public boolean containsKey(Object target) {
+        rehashStep();
+        return findMap(target).containsKey(target);
+    }
+
+    @Override
+    public boolean containsValue(Object target) {
+        if (super.containsValue(target)) {
+            return true;
+        }
+        if (oldMaps != null) {
+            for (int i = rehashIndex; i < oldMaps.size(); i++) {
+                if (oldMaps.get(i).containsValue(target)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+        rehashStep();
+        return findMap(key).get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        rehashStep();
+
+        // move the old sub-map for this key, so the key only has to be looked for once
+        MyLinearMap<K, V> old = chooseOldMap(key);
+        if (old != null) {
+            moveEntries(old);
+        }
+
+        MyLinearMap<K, V> map = chooseMap(key);
+        size -= map.size();
+        V oldValue = map.put(key, value);
+        size += map.size();
+
+        if (size > maps.size() * FACTOR) {
+            rehash();
+        }
+        return oldValue;
+    }
+
+    @Override
+    public V remove(Object key) {
+        rehashStep();
+        MyLinearMap<K, V> map = findMap(key);
+        size -= map.size();
+        V oldValue = map.remove(key);
+        size += map.size();
+        return oldValue;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Also counts the old sub-maps while a rehash is running.
+     */
+    @Override
+    public long estimatedBytes() {
+        long total = super.estimatedBytes();
+        if (oldMaps != null) {
+            total += MemoryLayout.arrayList(oldMaps.size());
+            for (MyLinearMap<K, V> map : oldMaps) {
+                total += map.estimatedBytes();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Finishes any rehash first, so every entry is in the new sub-maps.
+     * The views all scan through this, so they see every entry.
+     */
+    @Override
+    protected List<MyLinearMap<K, V>> mapsToScan() {
+        finishRehash();
+        return maps;
+    }
+
+    /**
+     * Starts a rehash: doubles the number of maps and keeps the old ones
+     * around to be moved by later operations.
+     */
+    @Override
+    protected void rehash() {
+        // the new maps fill up no faster than the old ones are moved, so this
+        // only happens if a rehash is started by hand
+        finishRehash();
+
+        oldMaps = maps;
+        rehashIndex = 0;
+        makeMaps(maps.size() * 2);
+    }
+
+    /**
+     * Moves up to REHASH_STEPS non-empty old sub-maps into the new ones.
+     */
+    protected void rehashStep() {
+        if (oldMaps == null) {
+            return;
+        }
+        int moved = 0;
+        int emptyVisits = 0;
+        while (rehashIndex < oldMaps.size() && moved < REHASH_STEPS && emptyVisits < EMPTY_VISITS) {
+            MyLinearMap<K, V> old = oldMaps.get(rehashIndex++);
+            if (old.isEmpty()) {
+                emptyVisits++;
+            } else {
+                moveEntries(old);
+                moved++;
+            }
+        }
+        if (rehashIndex == oldMaps.size()) {
+            oldMaps = null;
+        }
+    }
+
+    /**
+     * Moves every remaining old sub-map into the new ones.
+     */
+    protected void finishRehash() {
+        while (oldMaps != null) {
+            rehashStep();
+        }
+    }
+
+    /**
+     * Moves the entries of an old sub-map into the new ones and empties it.
+     *
+     * @param old
+     */
+    private void moveEntries(MyLinearMap<K, V> old) {
+        for (Entry<K, V> entry : old.getEntries()) {
+            chooseMap(entry.getKey()).put(entry.getKey(), entry.getValue());
+        }
+        old.clear();
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        Map<String, Integer> map = new MyIncrementalHashMap<String, Integer>();
+        for (int i = 0; i < 10; i++) {
+            map.put(Integer.toString(i), i);
+        }
+        Integer value = map.get("3");
+        System.out.println(value);
+    }
+}
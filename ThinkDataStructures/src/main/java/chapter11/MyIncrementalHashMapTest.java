@@ -0,0 +1,79 @@
+/**
+ *
+ */
+package chapter11;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class MyIncrementalHashMapTest extends MyLinearMapTest {
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new MyIncrementalHashMap<String, Integer>();
+		map.put("One", 1);
+		map.put("Two", 2);
+		map.put("Three", 3);
+		map.put(null, 0);
+	}
+
+	/**
+	 * Checks every key after each put, so lookups are tested while the
+	 * old and new sub-maps are both in use.
+	 */
+	@Test
+	public void testLookupsDuringRehash() {
+		MyIncrementalHashMap<String, Integer> incremental = (MyIncrementalHashMap<String, Integer>) map;
+		boolean sawRehash = false;
+		for (int i = 0; i < 300; i++) {
+			map.put(Integer.toString(i), i);
+			sawRehash |= incremental.isRehashing();
+			if (i % 3 == 0) {
+				map.put(Integer.toString(i / 2), -i);
+			}
+			assertThat(map.size(), is(i + 5));
+		}
+		assertThat(sawRehash, is(true));
+
+		for (int i = 0; i < 300; i += 2) {
+			assertThat(map.remove(Integer.toString(i)) != null, is(true));
+		}
+		for (int i = 0; i < 300; i++) {
+			if (i % 2 == 0) {
+				assertThat(map.get(Integer.toString(i)), nullValue());
+			} else {
+				assertThat(map.containsKey(Integer.toString(i)), is(true));
+			}
+		}
+		assertThat(map.size(), is(154));
+		assertThat(map.keySet().size(), is(154));
+		assertThat(map.get("Three"), is(3));
+	}
+
+	/**
+	 * Streaming the entries finishes the rehash first, so entries that
+	 * are still in old sub-maps are not missed.
+	 */
+	@Test
+	public void testEntryStreamDuringRehash() {
+		MyIncrementalHashMap<String, Integer> incremental = (MyIncrementalHashMap<String, Integer>) map;
+		int i = 4;
+		while (!incremental.isRehashing()) {
+			map.put(Integer.toString(i), i);
+			i++;
+		}
+		assertThat(map.entrySet().parallelStream().count(), is((long) map.size()));
+		assertThat(incremental.isRehashing(), is(false));
+	}
+}
@@ -0,0 +1,231 @@
+/**
+ *
+ */
+package chapter11;
+
+/**
+ * Open addressing map from primitive ints to primitive ints.
+ *
+ * Keys and values are two int[] arrays and nothing is ever boxed.  A key of
+ * 0 marks an empty slot, so the key 0 itself is kept outside the table.
+ * Missing keys map to 0.
+ *
+ */
+public class MyInt2IntMap {
+
+    /**
+     * Receives the entries in `forEach`.
+     */
+    public interface IntIntConsumer {
+        public void accept(int key, int value);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+
+    private int size = 0;       // number of keys in the table (not counting 0)
+    private int threshold;
+
+    private boolean hasZeroKey = false;
+    private int zeroValue;
+
+    public MyInt2IntMap() {
+        makeTable(INITIAL_CAPACITY);
+    }
+
+    private void makeTable(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        threshold = (int) (capacity * MyOpenHashMap.LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the slot that contains `key`, or the empty slot where it would go.
+     *
+     * @param key not 0
+     * @return
+     */
+    private int probe(int key) {
+        int mask = keys.length - 1;
+        int i = MyOpenHashMap.spread(key) & mask;
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the value for `key`, or 0 if there is none.
+     *
+     * @param key
+     * @return
+     */
+    public int get(int key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        return values[probe(key)];
+    }
+
+    public boolean containsKey(int key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return keys[probe(key)] != 0;
+    }
+
+    /**
+     * Sets the value for `key`.
+     *
+     * @param key
+     * @param value
+     * @return the previous value, or 0
+     */
+    public int put(int key, int value) {
+        if (key == 0) {
+            int oldValue = zeroValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return oldValue;
+        }
+        int i = probe(key);
+        int oldValue = values[i];
+        values[i] = value;
+        if (keys[i] == 0) {
+            insert(i, key);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Adds `delta` to the value for `key`, starting from 0 if there is none.
+     *
+     * @param key
+     * @param delta
+     * @return the new value
+     */
+    public int add(int key, int delta) {
+        if (key == 0) {
+            hasZeroKey = true;
+            return zeroValue += delta;
+        }
+        int i = probe(key);
+        int newValue = values[i] += delta;
+        if (keys[i] == 0) {
+            insert(i, key);
+        }
+        return newValue;
+    }
+
+    private void insert(int i, int key) {
+        keys[i] = key;
+        if (++size > threshold) {
+            resize();
+        }
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        makeTable(oldKeys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = probe(oldKeys[j]);
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Removes `key`.
+     *
+     * @param key
+     * @return the value it had, or 0
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            int oldValue = zeroValue;
+            hasZeroKey = false;
+            zeroValue = 0;
+            return oldValue;
+        }
+        int i = probe(key);
+        if (keys[i] == 0) {
+            return 0;
+        }
+        int oldValue = values[i];
+
+        // same backward shift as MyOpenHashMap
+        int mask = keys.length - 1;
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = MyOpenHashMap.spread(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        size--;
+        return oldValue;
+    }
+
+    public int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 0;
+            values[i] = 0;
+        }
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    /**
+     * Calls `action` with every key and its value.
+     *
+     * @param action
+     */
+    public void forEach(IntIntConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the keys in table order.
+     *
+     * @return
+     */
+    public int[] keys() {
+        int[] result = new int[size()];
+        int j = 0;
+        if (hasZeroKey) {
+            result[j++] = 0;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                result[j++] = keys[i];
+            }
+        }
+        return result;
+    }
+}
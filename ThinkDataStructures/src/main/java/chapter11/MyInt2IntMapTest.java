@@ -0,0 +1,82 @@
+/**
+ *
+ */
+package chapter11;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class MyInt2IntMapTest {
+
+	private MyInt2IntMap map;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new MyInt2IntMap();
+		map.put(1, 10);
+		map.put(2, 20);
+		map.put(0, 5);
+	}
+
+	/**
+	 * Test method for {@link MyInt2IntMap#get(int)}.
+	 */
+	@Test
+	public void testGet() {
+		assertThat(map.get(1), is(10));
+		assertThat(map.get(0), is(5));
+		assertThat(map.get(3), is(0));
+		assertThat(map.containsKey(3), is(false));
+	}
+
+	/**
+	 * Test method for {@link MyInt2IntMap#add(int, int)}.
+	 */
+	@Test
+	public void testAdd() {
+		assertThat(map.add(1, 1), is(11));
+		assertThat(map.add(-7, 1), is(1));
+		assertThat(map.add(0, 1), is(6));
+		assertThat(map.size(), is(4));
+	}
+
+	/**
+	 * Test method for {@link MyInt2IntMap#remove(int)}.
+	 */
+	@Test
+	public void testRemove() {
+		for (int i = 3; i < 1000; i++) {
+			map.put(i, i);
+		}
+		for (int i = 3; i < 1000; i += 2) {
+			assertThat(map.remove(i), is(i));
+		}
+		assertThat(map.remove(0), is(5));
+		for (int i = 3; i < 1000; i++) {
+			assertThat(map.containsKey(i), is(i % 2 == 0));
+		}
+		assertThat(map.size(), is(500));
+	}
+
+	/**
+	 * Test method for {@link MyInt2IntMap#keys()}.
+	 */
+	@Test
+	public void testKeys() {
+		int[] keys = map.keys();
+		Arrays.sort(keys);
+		assertThat(Arrays.toString(keys), is("[0, 1, 2]"));
+	}
+}
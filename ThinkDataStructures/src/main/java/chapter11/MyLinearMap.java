@@ -4,23 +4,50 @@
 package chapter11;
 
 import java.util.*;
+import java.util.function.Function;
+
+import chapter12.MyTreeMap;
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
 
 /**
  * Implementation of a Map using a List of entries, so most
  * operations are linear time.
  *
+ * When the list gets longer than TREEIFY_THRESHOLD and all of the keys are
+ * Comparable and of the same class, the entries are also indexed by a
+ * balanced MyTreeMap, so keys with colliding hash codes can't make every lookup in a
+ * MyHashMap scan a long list.  The index assumes that compareTo is consistent
+ * with equals; if it finds two keys where it isn't, it gives up on the tree.
+ *
  * @author downey
  * @param <K>
  * @param <V>
  *
  */
-public class MyLinearMap<K, V> implements Map<K, V> {
+public class MyLinearMap<K, V> implements Map<K, V>, MemoryFootprint {
+
+    // lists longer than this get a tree index
+    protected static final int TREEIFY_THRESHOLD = 8;
+
+    // lists this short or shorter drop it again
+    protected static final int UNTREEIFY_THRESHOLD = 6;
 
     private List<Entry> entries = new ArrayList<Entry>();
 
+    private MyTreeMap<K, Entry> index = null;
+    private Class<?> indexClass = null;     // class of every key in the index
+    private boolean treeable = true;        // false after the keys failed to index
+
+    // views, made the first time they are asked for
+    private Set<K> keySet = null;
+    private Collection<V> values = null;
+    private Set<Map.Entry<K, V>> entrySet = null;
+
     public class Entry implements Map.Entry<K, V> {
         private K key;
         private V value;
+        private int position;       // where it is in `entries`
 
         public Entry(K key, V value) {
             this.key = key;
@@ -39,14 +66,36 @@ public class MyLinearMap<K, V> implements Map<K, V> {
 
         @Override
         public V setValue(V newValue) {
+            V oldValue = value;
             value = newValue;
-            return value;
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> that = (Map.Entry<?, ?>) obj;
+            return Objects.equals(key, that.getKey()) && Objects.equals(value, that.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
         }
     }
 
     @Override
     public void clear() {
         entries.clear();
+        index = null;
+        treeable = true;
     }
 
     @Override
@@ -60,6 +109,14 @@ public class MyLinearMap<K, V> implements Map<K, V> {
      * @param target
      */
     private Entry findEntry(Object target) {
+        if (index != null && target != null && target.getClass() == indexClass) {
+            Entry entry = index.get(target);
+            if (entry == null || equals(target, entry.getKey())) {
+                return entry;
+            }
+            // compareTo and equals disagree, so only the scan is reliable
+        }
+
         //타겟 key가 주어지면 엔트리를 검색하고
         //타깃을 포함하는 엔트리를 반환하거나 못찾으면 null을 반환
         for (Entry entry : entries) {
@@ -93,9 +150,51 @@ public class MyLinearMap<K, V> implements Map<K, V> {
         return false;
     }
 
+    /**
+     * Returns a view of the entries, backed by the map.
+     *
+     * Removing through the view or its iterator removes from the map, and
+     * setValue on an entry changes the map.
+     */
     @Override
     public Set<Map.Entry<K, V>> entrySet() {
-        throw new UnsupportedOperationException();
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator<Map.Entry<K, V>>(entry -> entry);
+                }
+
+                @Override
+                public int size() {
+                    return MyLinearMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    if (!(obj instanceof Map.Entry)) {
+                        return false;
+                    }
+                    Entry entry = findEntry(((Map.Entry<?, ?>) obj).getKey());
+                    return entry != null && entry.equals(obj);
+                }
+
+                @Override
+                public boolean remove(Object obj) {
+                    if (!contains(obj)) {
+                        return false;
+                    }
+                    MyLinearMap.this.remove(((Map.Entry<?, ?>) obj).getKey());
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    MyLinearMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
     }
 
     @Override
@@ -109,21 +208,58 @@ public class MyLinearMap<K, V> implements Map<K, V> {
         return entries.isEmpty();
     }
 
+    /**
+     * Returns a view of the keys, backed by the map.
+     */
     @Override
     public Set<K> keySet() {
-        Set<K> set = new HashSet<K>();
-        for (Entry entry : entries) {
-            set.add(entry.getKey());
+        if (keySet == null) {
+            keySet = new AbstractSet<K>() {
+                @Override
+                public Iterator<K> iterator() {
+                    return new EntryIterator<K>(Entry::getKey);
+                }
+
+                @Override
+                public int size() {
+                    return MyLinearMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return containsKey(obj);
+                }
+
+                @Override
+                public boolean remove(Object obj) {
+                    if (!containsKey(obj)) {
+                        return false;
+                    }
+                    MyLinearMap.this.remove(obj);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    MyLinearMap.this.clear();
+                }
+            };
         }
-        return set;
+        return keySet;
     }
 
     @Override
     public V put(K key, V value) {
         Entry entry = findEntry(key);
         if (entry == null) {
-            entries.add(new Entry(key, value));
-
+            entry = new Entry(key, value);
+            entry.position = entries.size();
+            entries.add(entry);
+            if (index != null) {
+                addToIndex(entry);
+            } else if (entries.size() > TREEIFY_THRESHOLD) {
+                treeify();
+            }
             return null;
         } else {
             V oldVal = entry.getValue();
@@ -144,25 +280,175 @@ public class MyLinearMap<K, V> implements Map<K, V> {
     public V remove(Object key) {
         Entry entry = findEntry(key);
         if (entry != null) {
-            entries.remove(entry);
+            // move the last entry into the gap, so nothing has to shift
+            Entry last = entries.remove(entries.size() - 1);
+            if (last != entry) {
+                last.position = entry.position;
+                entries.set(last.position, last);
+            }
+            if (index != null) {
+                index.remove(entry.getKey());
+            }
+            if (entries.size() <= UNTREEIFY_THRESHOLD) {
+                index = null;
+                treeable = true;
+            }
             return entry.getValue();
         }
 
         return null;
     }
 
+    /**
+     * Builds the tree index, unless the keys can't be compared with each other.
+     */
+    private void treeify() {
+        if (!treeable) {
+            return;
+        }
+        Class<?> keyClass = comparableClass(entries.get(0).getKey());
+        MyTreeMap<K, Entry> tree = new MyTreeMap<K, Entry>(true);
+        for (Entry entry : entries) {
+            K key = entry.getKey();
+            if (keyClass == null || key == null || key.getClass() != keyClass
+                    || tree.put(key, entry) != null) {
+                treeable = false;
+                return;
+            }
+        }
+        index = tree;
+        indexClass = keyClass;
+    }
+
+    /**
+     * Adds a new entry to the index, or drops the index if the key doesn't fit.
+     *
+     * @param entry
+     */
+    private void addToIndex(Entry entry) {
+        K key = entry.getKey();
+        if (key == null || key.getClass() != indexClass || index.put(key, entry) != null) {
+            index = null;
+            treeable = false;
+        }
+    }
+
+    /**
+     * Returns the class of `key` if it is Comparable, or null.
+     *
+     * @param key
+     * @return
+     */
+    private static Class<?> comparableClass(Object key) {
+        if (key instanceof Comparable) {
+            return key.getClass();
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the entries are indexed by a tree.
+     *
+     * @return
+     */
+    public boolean isTreeified() {
+        return index != null;
+    }
+
     @Override
     public int size() {
         return entries.size();
     }
 
+    /**
+     * Counts the map, the entry list, one entry per key and the tree index
+     * if there is one.  The capacity of the list is worked out as if it
+     * had only ever grown.
+     */
+    @Override
+    public long estimatedBytes() {
+        int n = entries.size();
+        long total = MemoryLayout.object(6, 1)
+                + MemoryLayout.arrayList(MemoryLayout.arrayListCapacity(n))
+                + n * MemoryLayout.object(3, 4);
+        if (index != null) {
+            total += index.estimatedBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Returns a view of the values, backed by the map.  A value appears
+     * once for every key it is mapped from.
+     */
     @Override
     public Collection<V> values() {
-        Set<V> set = new HashSet<V>();
-        for (Entry entry : entries) {
-            set.add(entry.getValue());
+        if (values == null) {
+            values = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new EntryIterator<V>(Entry::getValue);
+                }
+
+                @Override
+                public int size() {
+                    return MyLinearMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return containsValue(obj);
+                }
+
+                @Override
+                public void clear() {
+                    MyLinearMap.this.clear();
+                }
+            };
+        }
+        return values;
+    }
+
+    /**
+     * Iterator over the entries that returns `part` of each one.
+     *
+     * It reads the list by index, and remove goes through the map so the
+     * tree index stays up to date.  The map fills the gap with the last
+     * entry, which hasn't been returned yet, so the cursor steps back onto
+     * it.
+     */
+    private class EntryIterator<T> implements Iterator<T> {
+        private final Function<Entry, T> part;
+        private int cursor = 0;
+        private Entry lastReturned = null;
+
+        EntryIterator(Function<Entry, T> part) {
+            this.part = part;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < entries.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = entries.get(cursor++);
+            return part.apply(lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            MyLinearMap.this.remove(lastReturned.getKey());
+            cursor--;
+            lastReturned = null;
         }
-        return set;
     }
 
     /**
@@ -188,7 +474,7 @@ public class MyLinearMap<K, V> implements Map<K, V> {
      *
      * @return
      */
-    protected Collection<? extends Map.Entry<K, V>> getEntries() {
+    protected List<? extends Map.Entry<K, V>> getEntries() {
         return entries;
     }
 }
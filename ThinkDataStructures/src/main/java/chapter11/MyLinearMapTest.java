@@ -3,15 +3,18 @@
  */
 package chapter11;
 
-import chapter9.MyLinearMap;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
@@ -75,6 +78,23 @@ public class MyLinearMapTest {
 		assertThat(map.get("Four"), nullValue());
 	}
 
+	/**
+	 * Test method for {@link MyLinearMap#estimatedBytes()}: each entry
+	 * should cost at least a reference and no more than a few small
+	 * objects.
+	 */
+	@Test
+	public void testEstimatedBytes() {
+		MemoryFootprint footprint = (MemoryFootprint) map;
+		long before = footprint.estimatedBytes();
+		for (int i = 0; i < 1000; i++) {
+			map.put("key" + i, i);
+		}
+		long added = footprint.estimatedBytes() - before;
+		assertThat(added >= 1000L * MemoryLayout.REFERENCE_BYTES, is(true));
+		assertThat(added <= 1000L * 200, is(true));
+	}
+
 	/**
 	 * Test method for {@link MyLinearMap#isEmpty()}.
 	 */
@@ -134,6 +154,36 @@ public class MyLinearMapTest {
 		assertThat(map.get("One"), nullValue());
 	}
 
+	/**
+	 * Removing from the middle of a long list leaves every other entry
+	 * where get and the iterators can find it.
+	 */
+	@Test
+	public void testRemoveMany() {
+		for (int i = 0; i < 50; i++) {
+			map.put("key" + i, i);
+		}
+		for (int i = 0; i < 50; i += 3) {
+			assertThat(map.remove("key" + i), is(i));
+		}
+		int count = 0;
+		for (int i = 0; i < 50; i++) {
+			Integer expected = i % 3 == 0 ? null : i;
+			assertThat(map.get("key" + i), is(expected));
+			if (expected != null) {
+				count++;
+			}
+		}
+		assertThat(map.size(), is(count + 4));
+
+		int seen = 0;
+		for (String key : map.keySet()) {
+			assertThat(map.containsKey(key), is(true));
+			seen++;
+		}
+		assertThat(seen, is(count + 4));
+	}
+
 	/**
 	 * Test method for {@link MyLinearMap#size()}.
 	 */
@@ -153,4 +203,111 @@ public class MyLinearMapTest {
 		assertThat(keySet.contains(0), is(true));
 		assertThat(keySet.contains(4), is(false));
 	}
+
+	/**
+	 * values() keeps one copy of a value for each key.
+	 */
+	@Test
+	public void testValuesKeepDuplicates() {
+		map.put("Four", 3);
+		Collection<Integer> values = map.values();
+		assertThat(values.size(), is(5));
+		int threes = 0;
+		for (Integer value : values) {
+			if (value == 3) {
+				threes++;
+			}
+		}
+		assertThat(threes, is(2));
+	}
+
+	/**
+	 * Test method for {@link MyLinearMap#entrySet()}, by copying the map
+	 * into another one.
+	 */
+	@Test
+	public void testEntrySet() {
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		expected.put("One", 1);
+		expected.put("Two", 2);
+		expected.put("Three", 3);
+		expected.put(null, 0);
+		assertThat(new HashMap<String, Integer>(map), is(expected));
+		assertThat(map.entrySet(), is(expected.entrySet()));
+
+		Map<String, Integer> copy = new HashMap<String, Integer>();
+		copy.putAll(map);
+		assertThat(copy, is(expected));
+	}
+
+	/**
+	 * The views see changes to the map, and changes through the views
+	 * reach the map.
+	 */
+	@Test
+	public void testViewsAreLive() {
+		Set<String> keySet = map.keySet();
+		Collection<Integer> values = map.values();
+		map.put("Five", 5);
+		assertThat(keySet.size(), is(5));
+		assertThat(keySet.contains("Five"), is(true));
+		assertThat(values.contains(5), is(true));
+
+		assertThat(keySet.remove("One"), is(true));
+		assertThat(keySet.remove("One"), is(false));
+		assertThat(map.containsKey("One"), is(false));
+
+		for (Map.Entry<String, Integer> entry : map.entrySet()) {
+			if ("Two".equals(entry.getKey())) {
+				assertThat(entry.setValue(22), is(2));
+			}
+		}
+		assertThat(map.get("Two"), is(22));
+
+		values.clear();
+		assertThat(map.isEmpty(), is(true));
+	}
+
+	/**
+	 * Removing through the iterators removes every entry it should and
+	 * no others.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		for (int i = 0; i < 200; i++) {
+			map.put(Integer.toString(i), i);
+		}
+		Iterator<Map.Entry<String, Integer>> entries = map.entrySet().iterator();
+		while (entries.hasNext()) {
+			if (entries.next().getValue() % 2 == 0) {
+				entries.remove();
+			}
+		}
+		Iterator<String> keys = map.keySet().iterator();
+		while (keys.hasNext()) {
+			String key = keys.next();
+			if (key != null && key.startsWith("1")) {
+				keys.remove();
+			}
+		}
+		Iterator<Integer> values = map.values().iterator();
+		while (values.hasNext()) {
+			if (values.next() == 3) {
+				values.remove();
+			}
+		}
+
+		int count = 0;
+		for (int i = 0; i < 200; i++) {
+			boolean kept = i % 2 == 1 && !Integer.toString(i).startsWith("1") && i != 3;
+			assertThat(map.containsKey(Integer.toString(i)), is(kept));
+			if (kept) {
+				count++;
+			}
+		}
+		// of the first four, only "One" is odd and not 3
+		assertThat(map.get("One"), is(1));
+		assertThat(map.size(), is(count + 1));
+		assertThat(map.keySet().size(), is(count + 1));
+	}
 }
@@ -0,0 +1,258 @@
+/**
+ *
+ */
+package chapter11;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Open addressing map from objects to primitive ints, for counters.
+ *
+ * Same layout as MyOpenHashMap, but the values are an int[], so counting
+ * with `add` never boxes.  Missing keys map to 0.  Null keys are not allowed.
+ *
+ * @param <K>
+ *
+ */
+public class MyObject2IntMap<K> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] keys;
+    private int[] values;
+    private int[] hashes;
+
+    private int size = 0;
+    private int threshold;
+    private int modCount = 0;
+
+    public MyObject2IntMap() {
+        makeTable(INITIAL_CAPACITY);
+    }
+
+    private void makeTable(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        hashes = new int[capacity];
+        threshold = (int) (capacity * MyOpenHashMap.LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the slot that contains `key`, or the empty slot where it would go.
+     *
+     * @param key
+     * @param hash
+     * @return
+     */
+    private int probe(Object key, int hash) {
+        int mask = keys.length - 1;
+        int i = hash & mask;
+        while (keys[i] != null && !(hashes[i] == hash && key.equals(keys[i]))) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the value for `key`, or 0 if there is none.
+     *
+     * @param key
+     * @return
+     */
+    public int getInt(Object key) {
+        int i = probe(key, MyOpenHashMap.spread(key.hashCode()));
+        return keys[i] == null ? 0 : values[i];
+    }
+
+    public boolean containsKey(Object key) {
+        int i = probe(key, MyOpenHashMap.spread(key.hashCode()));
+        return keys[i] != null;
+    }
+
+    /**
+     * Sets the value for `key`.
+     *
+     * @param key
+     * @param value
+     * @return the previous value, or 0
+     */
+    public int put(K key, int value) {
+        int hash = MyOpenHashMap.spread(key.hashCode());
+        int i = probe(key, hash);
+        if (keys[i] != null) {
+            int oldValue = values[i];
+            values[i] = value;
+            return oldValue;
+        }
+        insert(i, key, hash, value);
+        return 0;
+    }
+
+    /**
+     * Adds `delta` to the value for `key`, starting from 0 if there is none.
+     *
+     * @param key
+     * @param delta
+     * @return the new value
+     */
+    public int add(K key, int delta) {
+        int hash = MyOpenHashMap.spread(key.hashCode());
+        int i = probe(key, hash);
+        if (keys[i] != null) {
+            return values[i] += delta;
+        }
+        insert(i, key, hash, delta);
+        return delta;
+    }
+
+    private void insert(int i, K key, int hash, int value) {
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = hash;
+        modCount++;
+        if (++size > threshold) {
+            resize();
+        }
+    }
+
+    private void resize() {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldHashes = hashes;
+
+        makeTable(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = oldHashes[j] & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    /**
+     * Removes `key`.
+     *
+     * @param key
+     * @return the value it had, or 0
+     */
+    public int removeInt(Object key) {
+        int i = probe(key, MyOpenHashMap.spread(key.hashCode()));
+        if (keys[i] == null) {
+            return 0;
+        }
+        int oldValue = values[i];
+
+        // same backward shift as MyOpenHashMap
+        int mask = keys.length - 1;
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = hashes[j] & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                hashes[gap] = hashes[j];
+                gap = j;
+            }
+        }
+        keys[gap] = null;
+        size--;
+        modCount++;
+        return oldValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = null;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Calls `action` with every key and its value.
+     *
+     * @param action
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept((K) keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns a read-only view of the keys.
+     *
+     * @return
+     */
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                return new KeyIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o != null && containsKey(o);
+            }
+        };
+    }
+
+    private class KeyIterator implements Iterator<K> {
+        private int next = advance(0);
+        private final int expectedModCount = modCount;
+
+        private int advance(int i) {
+            while (i < keys.length && keys[i] == null) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K key = (K) keys[next];
+            next = advance(next + 1);
+            return key;
+        }
+    }
+}
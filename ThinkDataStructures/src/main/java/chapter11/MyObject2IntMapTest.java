@@ -0,0 +1,93 @@
+/**
+ *
+ */
+package chapter11;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class MyObject2IntMapTest {
+
+	private MyObject2IntMap<String> map;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new MyObject2IntMap<String>();
+		map.put("One", 1);
+		map.put("Two", 2);
+		map.put("Three", 3);
+	}
+
+	/**
+	 * Test method for {@link MyObject2IntMap#getInt(Object)}.
+	 */
+	@Test
+	public void testGetInt() {
+		assertThat(map.getInt("Three"), is(3));
+		assertThat(map.getInt("Four"), is(0));
+	}
+
+	/**
+	 * Test method for {@link MyObject2IntMap#put(Object, int)}.
+	 */
+	@Test
+	public void testPut() {
+		assertThat(map.put("One", 11), is(1));
+		assertThat(map.size(), is(3));
+		assertThat(map.getInt("One"), is(11));
+	}
+
+	/**
+	 * Test method for {@link MyObject2IntMap#add(Object, int)}.
+	 */
+	@Test
+	public void testAdd() {
+		assertThat(map.add("One", 1), is(2));
+		assertThat(map.add("Four", 1), is(1));
+		assertThat(map.add("Four", 1), is(2));
+		assertThat(map.size(), is(4));
+	}
+
+	/**
+	 * Test method for {@link MyObject2IntMap#removeInt(Object)}.
+	 */
+	@Test
+	public void testRemoveInt() {
+		assertThat(map.removeInt("Two"), is(2));
+		assertThat(map.containsKey("Two"), is(false));
+		assertThat(map.size(), is(2));
+		assertThat(map.removeInt("Two"), is(0));
+	}
+
+	/**
+	 * Test method for {@link MyObject2IntMap#keySet()}.
+	 */
+	@Test
+	public void testKeySet() {
+		for (int i = 0; i < 100; i++) {
+			map.add(Integer.toString(i), i);
+		}
+		Set<String> keySet = map.keySet();
+		assertThat(keySet.size(), is(103));
+		assertThat(keySet.contains("Three"), is(true));
+		assertThat(keySet.contains("Four"), is(false));
+
+		int count = 0;
+		for (String key : keySet) {
+			count++;
+		}
+		assertThat(count, is(103));
+	}
+}
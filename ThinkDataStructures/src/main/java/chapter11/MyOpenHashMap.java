@@ -0,0 +1,501 @@
+/**
+ *
+ */
+package chapter11;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
+
+/**
+ * Implementation of a HashMap using open addressing with linear probing.
+ *
+ * Keys, values and hash codes are stored in parallel arrays, so a put does
+ * not allocate an entry and a failed probe usually costs an int comparison
+ * instead of a call to `equals`.  The table size is a power of two and the
+ * table grows when it is more than 3/4 full.  Removal shifts later entries of
+ * the probe sequence back, so there are no tombstones.
+ *
+ * The null key is kept outside the table.
+ *
+ * @param <K>
+ * @param <V>
+ *
+ */
+public class MyOpenHashMap<K, V> implements Map<K, V>, MemoryFootprint {
+
+    // fraction of the slots that may be used before the table grows
+    protected static final double LOAD_FACTOR = 0.75;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+
+    private int size = 0;       // number of keys in the table (not counting null)
+    private int threshold;
+
+    private boolean hasNullKey = false;
+    private V nullValue;
+
+    // views, made the first time they are asked for
+    private Set<K> keySet = null;
+    private Collection<V> valuesView = null;
+    private Set<Entry<K, V>> entrySet = null;
+
+    public MyOpenHashMap() {
+        makeTable(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Allocates empty arrays with `capacity` slots.
+     *
+     * @param capacity must be a power of two
+     */
+    private void makeTable(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Mixes the bits of a hash code so that keys whose hash codes differ only
+     * in the high bits still land in different slots.
+     *
+     * @param h
+     * @return
+     */
+    static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the slot that contains `key`, or -1 if there is none.
+     *
+     * @param key not null
+     * @return
+     */
+    private int findSlot(Object key) {
+        int hash = spread(key.hashCode());
+        int mask = keys.length - 1;
+        for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == hash && key.equals(keys[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = null;
+            values[i] = null;
+        }
+        size = 0;
+        hasNullKey = false;
+        nullValue = null;
+    }
+
+    @Override
+    public boolean containsKey(Object target) {
+        if (target == null) {
+            return hasNullKey;
+        }
+        return findSlot(target) != -1;
+    }
+
+    @Override
+    public boolean containsValue(Object target) {
+        if (hasNullKey && equals(target, nullValue)) {
+            return true;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && equals(target, values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares two values, handling null correctly.
+     *
+     * @param target
+     * @param obj
+     * @return
+     */
+    private boolean equals(Object target, Object obj) {
+        if (target == null) {
+            return obj == null;
+        }
+        return target.equals(obj);
+    }
+
+    /**
+     * Returns a view of the entries, backed by the table.
+     *
+     * There are no entry objects in the table, so the iterator makes one
+     * for each slot; setValue on it writes through to the map.
+     */
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new SlotIterator<Entry<K, V>>(SlotEntry::new);
+                }
+
+                @Override
+                public int size() {
+                    return MyOpenHashMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    if (!(obj instanceof Entry)) {
+                        return false;
+                    }
+                    Entry<?, ?> entry = (Entry<?, ?>) obj;
+                    Object key = entry.getKey();
+                    return containsKey(key) && MyOpenHashMap.this.equals(entry.getValue(), get(key));
+                }
+
+                @Override
+                public boolean remove(Object obj) {
+                    if (!contains(obj)) {
+                        return false;
+                    }
+                    MyOpenHashMap.this.remove(((Entry<?, ?>) obj).getKey());
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    MyOpenHashMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Entry made by the entry iterator, which writes setValue through to
+     * the map.
+     */
+    private class SlotEntry extends AbstractMap.SimpleEntry<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        SlotEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * Iterator over the null key, if there is one, and the occupied slots.
+     *
+     * It walks the slots downward, starting just below an empty one.  A
+     * removal shifts entries back from later in the same probe run, and
+     * that run ends at an empty slot, so the only entries that move are
+     * ones the iterator has already passed: none are skipped or seen
+     * twice.
+     */
+    private class SlotIterator<T> implements Iterator<T> {
+        private final BiFunction<K, V, T> part;
+        private boolean nullPending = hasNullKey;
+        private int next;               // next slot to look at
+        private int remaining;          // number of slots not looked at yet
+        private int lastSlot = NONE;    // slot of the last element returned
+
+        private static final int NONE = -2;
+        private static final int NULL_KEY = -1;
+
+        SlotIterator(BiFunction<K, V, T> part) {
+            this.part = part;
+            int empty = 0;
+            while (keys[empty] != null) {
+                empty++;
+            }
+            next = (empty - 1) & (keys.length - 1);
+            remaining = keys.length - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nullPending) {
+                return true;
+            }
+            while (remaining > 0 && keys[next] == null) {
+                next = (next - 1) & (keys.length - 1);
+                remaining--;
+            }
+            return remaining > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nullPending) {
+                nullPending = false;
+                lastSlot = NULL_KEY;
+                return part.apply(null, nullValue);
+            }
+            lastSlot = next;
+            next = (next - 1) & (keys.length - 1);
+            remaining--;
+            return part.apply((K) keys[lastSlot], (V) values[lastSlot]);
+        }
+
+        @Override
+        public void remove() {
+            if (lastSlot == NONE) {
+                throw new IllegalStateException();
+            }
+            if (lastSlot == NULL_KEY) {
+                MyOpenHashMap.this.remove(null);
+            } else {
+                shiftBack(lastSlot);
+                size--;
+            }
+            lastSlot = NONE;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return nullValue;
+        }
+        int i = findSlot(key);
+        return i == -1 ? null : (V) values[i];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a view of the keys, backed by the table.
+     */
+    @Override
+    public Set<K> keySet() {
+        if (keySet == null) {
+            keySet = new AbstractSet<K>() {
+                @Override
+                public Iterator<K> iterator() {
+                    return new SlotIterator<K>((key, value) -> key);
+                }
+
+                @Override
+                public int size() {
+                    return MyOpenHashMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return containsKey(obj);
+                }
+
+                @Override
+                public boolean remove(Object obj) {
+                    if (!containsKey(obj)) {
+                        return false;
+                    }
+                    MyOpenHashMap.this.remove(obj);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    MyOpenHashMap.this.clear();
+                }
+            };
+        }
+        return keySet;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (key == null) {
+            V oldValue = nullValue;
+            hasNullKey = true;
+            nullValue = value;
+            return oldValue;
+        }
+
+        int hash = spread(key.hashCode());
+        int mask = keys.length - 1;
+        int i = hash & mask;
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == hash && key.equals(keys[i])) {
+                V oldValue = (V) values[i];
+                values[i] = value;
+                return oldValue;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = hash;
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Doubles the table and moves every key to its slot in the new table,
+     * using the cached hash codes.
+     */
+    private void resize() {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+
+        makeTable(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = oldHashes[j] & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (key == null) {
+            V oldValue = nullValue;
+            hasNullKey = false;
+            nullValue = null;
+            return oldValue;
+        }
+        int i = findSlot(key);
+        if (i == -1) {
+            return null;
+        }
+        V oldValue = (V) values[i];
+        shiftBack(i);
+        size--;
+        return oldValue;
+    }
+
+    /**
+     * Empties slot `i` and moves later entries of the same probe run into the
+     * gap when their home slot is at or before it, so lookups never stop early.
+     *
+     * @param i
+     */
+    private void shiftBack(int i) {
+        int mask = keys.length - 1;
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = hashes[j] & mask;
+            // distance from home to j is larger than from home to the gap,
+            // so the entry at j can move into the gap
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                hashes[gap] = hashes[j];
+                gap = j;
+            }
+        }
+        keys[gap] = null;
+        values[gap] = null;
+    }
+
+    @Override
+    public int size() {
+        return hasNullKey ? size + 1 : size;
+    }
+
+    /**
+     * Counts the map and its three arrays, including the empty slots.
+     */
+    @Override
+    public long estimatedBytes() {
+        return MemoryLayout.object(7, 9)
+                + 2 * MemoryLayout.referenceArray(keys.length)
+                + MemoryLayout.array(hashes.length, 4);
+    }
+
+    /**
+     * Returns a view of the values, backed by the table.
+     */
+    @Override
+    public Collection<V> values() {
+        if (valuesView == null) {
+            valuesView = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new SlotIterator<V>((key, value) -> value);
+                }
+
+                @Override
+                public int size() {
+                    return MyOpenHashMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                    return containsValue(obj);
+                }
+
+                @Override
+                public void clear() {
+                    MyOpenHashMap.this.clear();
+                }
+            };
+        }
+        return valuesView;
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        Map<String, Integer> map = new MyOpenHashMap<String, Integer>();
+        for (int i = 0; i < 10; i++) {
+            map.put(Integer.toString(i), i);
+        }
+        Integer value = map.get("3");
+        System.out.println(value);
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ *
+ */
+package chapter11;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class MyOpenHashMapTest extends MyLinearMapTest {
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new MyOpenHashMap<String, Integer>();
+		map.put("One", 1);
+		map.put("Two", 2);
+		map.put("Three", 3);
+		map.put(null, 0);
+	}
+
+	/**
+	 * Checks that lookups still work after resizing and after removals
+	 * shift entries back along their probe runs.
+	 */
+	@Test
+	public void testManyPutsAndRemoves() {
+		for (int i = 0; i < 1000; i++) {
+			map.put(Integer.toString(i), i);
+		}
+		assertThat(map.size(), is(1004));
+
+		for (int i = 0; i < 1000; i += 2) {
+			assertThat(map.remove(Integer.toString(i)), is(i));
+		}
+		assertThat(map.size(), is(504));
+
+		for (int i = 0; i < 1000; i++) {
+			if (i % 2 == 0) {
+				assertThat(map.get(Integer.toString(i)), nullValue());
+			} else {
+				assertThat(map.get(Integer.toString(i)), is(i));
+			}
+		}
+		assertThat(map.get("Two"), is(2));
+	}
+}
@@ -2,8 +2,11 @@ package chapter11;
 
 import org.jfree.data.xy.XYSeries;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import chapter11.Profiler.Timeable;
 
@@ -12,17 +15,52 @@ public class ProfileMapPut {
     /**
      * @param args
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (Profiler.isHeadless()) {
+            // on CI, run every profile and fail if any of them is slower than expected
+            profileHashMapPut();
+            profileMyHashMapPut();
+            profileMyFixedHashMapPut();
+            profileMyOpenHashMapPut();
+            profileCollisionPut();
+            return;
+        }
 //        profileHashMapPut();
 //        profileMyHashMapPut();
         profileMyFixedHashMapPut();
     }
 
+    /**
+     * Returns a factory for every Timeable in this class, keyed by name.
+     *
+     * The JMH benchmarks in src/jmh use this to run the same workloads.
+     *
+     * @return
+     */
+    public static Map<String, Supplier<Timeable>> timeables() {
+        Map<String, Supplier<Timeable>> map = new LinkedHashMap<String, Supplier<Timeable>>();
+        map.put("HashMapPut", ProfileMapPut::hashMapPut);
+        map.put("MyHashMapPut", ProfileMapPut::myHashMapPut);
+        map.put("MyFixedHashMapPut", ProfileMapPut::myFixedHashMapPut);
+        map.put("MyOpenHashMapPut", ProfileMapPut::myOpenHashMapPut);
+        map.put("CollisionPut", ProfileMapPut::collisionPut);
+        return map;
+    }
+
     /**
      * Characterize the run time of putting a key in java.util.HashMap
      */
-    public static void profileHashMapPut() {
-        Timeable timeable = new Timeable() {
+    public static void profileHashMapPut() throws IOException {
+        int startN = 1000;
+        int endMillis = 1000;
+        runProfiler("HashMap put", "HashMapPut", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Puts `n` keys in a java.util.HashMap.
+     */
+    public static Timeable hashMapPut() {
+        return new Timeable() {
             Map<String, Integer> map;
 
             public void setup(int n) {
@@ -35,16 +73,23 @@ public class ProfileMapPut {
                 }
             }
         };
-        int startN = 8000;
-        int endMillis = 1000;
-        runProfiler("HashMap put", timeable, startN, endMillis);
     }
 
     /**
      * Characterize the run time of putting a key in MyHashMap
      */
-    public static void profileMyHashMapPut() {
-        Timeable timeable = new Timeable() {
+    public static void profileMyHashMapPut() throws IOException {
+        int startN = 250;
+        int endMillis = 5000;
+        // MyHashMap.size() adds up the sub-maps, so put is linear, not constant
+        runProfiler("MyHashMap put", "MyHashMapPut", startN, endMillis, 2.5);
+    }
+
+    /**
+     * Puts `n` keys in a MyHashMap.
+     */
+    public static Timeable myHashMapPut() {
+        return new Timeable() {
             Map<String, Integer> map;
 
             public void setup(int n) {
@@ -57,17 +102,23 @@ public class ProfileMapPut {
                 }
             }
         };
-        int startN = 1000;
-        int endMillis = 5000;
-        runProfiler("MyHashMap put", timeable, startN, endMillis);
     }
 
 
     /**
      * Characterize the run time of putting a key in MyFixedHashMap
      */
-    public static void profileMyFixedHashMapPut() {
-        Timeable timeable = new Timeable() {
+    public static void profileMyFixedHashMapPut() throws IOException {
+        int startN = 1000;
+        int endMillis = 1000;
+        runProfiler("MyFixedHashMap put", "MyFixedHashMapPut", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Puts `n` keys in a MyFixedHashMap.
+     */
+    public static Timeable myFixedHashMapPut() {
+        return new Timeable() {
             Map<String, Integer> map;
 
             public void setup(int n) {
@@ -80,21 +131,99 @@ public class ProfileMapPut {
                 }
             }
         };
-        int startN = 8000;
+    }
+
+    /**
+     * Characterize the run time of putting a key in MyOpenHashMap
+     */
+    public static void profileMyOpenHashMapPut() throws IOException {
+        int startN = 1000;
         int endMillis = 1000;
-        runProfiler("MyFixedHashMap put", timeable, startN, endMillis);
+        runProfiler("MyOpenHashMap put", "MyOpenHashMapPut", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Puts `n` keys in a MyOpenHashMap.
+     */
+    public static Timeable myOpenHashMapPut() {
+        return new Timeable() {
+            Map<String, Integer> map;
+
+            public void setup(int n) {
+                map = new MyOpenHashMap<String, Integer>();
+            }
+
+            public void timeMe(int n) {
+                for (int i = 0; i < n; i++) {
+                    map.put(String.format("%10d", i), i);
+                }
+            }
+        };
+    }
+
+    /**
+     * Characterize the run time of putting keys that all have the same hash
+     * code in MyFixedHashMap
+     */
+    public static void profileCollisionPut() throws IOException {
+        int startN = 1000;
+        int endMillis = 1000;
+        // every key lands in the same MyLinearMap, so this is only
+        // n log n because that map indexes its entries with a tree
+        runProfiler("MyFixedHashMap colliding put", "CollisionPut", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Puts `n` keys with the same hash code in a MyFixedHashMap.
+     */
+    public static Timeable collisionPut() {
+        return new Timeable() {
+            Map<String, Integer> map;
+
+            public void setup(int n) {
+                map = new MyFixedHashMap<String, Integer>();
+            }
+
+            public void timeMe(int n) {
+                for (int i = 0; i < n; i++) {
+                    map.put(collidingKey(i), i);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a different string for each `i` less than 2^20, all with the
+     * same hash code.
+     *
+     * "Aa" and "BB" have the same hash code, so any two strings made of the
+     * same number of them do too.
+     *
+     * @param i
+     * @return
+     */
+    public static String collidingKey(int i) {
+        StringBuilder sb = new StringBuilder(40);
+        for (int bit = 0; bit < 20; bit++) {
+            sb.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+        }
+        return sb.toString();
     }
 
     /**
      * Runs the profiles and displays results.
      *
-     * @param timeable
+     * @param name key of the Timeable in `timeables()`
      * @param startN
      * @param endMillis
+     * @param maxSlope largest slope accepted in headless mode
+     * @throws IOException
      */
-    private static void runProfiler(String title, Timeable timeable, int startN, int endMillis) {
-        Profiler profiler = new Profiler(title, timeable);
+    private static void runProfiler(String title, String name, int startN, int endMillis, double maxSlope)
+            throws IOException {
+        Profiler profiler = new Profiler(title, timeables().get(name).get());
+        profiler.setForkSource(ProfileMapPut.class, name);
         XYSeries series = profiler.timingLoop(startN, endMillis);
-        profiler.plotResults(series);
+        profiler.reportResults(series, maxSlope);
     }
 }
\ No newline at end of file
@@ -0,0 +1,644 @@
+/**
+ *
+ */
+package chapter12;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Implementation of a Map using a B+ tree.
+ *
+ * Each node keeps up to `fanout - 1` keys in a sorted array, so a lookup
+ * reads a few arrays with a binary search instead of following one pointer
+ * per level of a binary tree.  The entries are all in the leaves, which are
+ * linked in order for iteration; the keys in the internal nodes only guide
+ * the search.  Every node except the root is at least half full.
+ *
+ * Like MyTreeMap, keys must be Comparable and can't be null.
+ *
+ * @param <K>
+ * @param <V>
+ *
+ */
+public class MyBTreeMap<K, V> implements Map<K, V> {
+
+    public static final int DEFAULT_FANOUT = 64;
+
+    private final int maxKeys;
+    private final int minKeys;
+
+    private Node root;
+    private int size = 0;
+    private int modCount = 0;
+
+    // results of the recursive put and remove
+    private Object splitKey;
+    private Object oldValue;
+
+    /**
+     * Node with `count` keys in sorted order.
+     */
+    private static class Node {
+        final Object[] keys;
+        int count = 0;
+
+        Node(int capacity) {
+            keys = new Object[capacity];
+        }
+    }
+
+    /**
+     * Leaf with the values that go with its keys.
+     */
+    private static class Leaf extends Node {
+        final Object[] values;
+        Leaf next = null;
+
+        Leaf(int capacity) {
+            super(capacity);
+            values = new Object[capacity];
+        }
+    }
+
+    /**
+     * Internal node with `count + 1` children.  The keys in children[i] are
+     * less than keys[i], and those in children[i+1] are greater or equal.
+     */
+    private static class Internal extends Node {
+        final Node[] children;
+
+        Internal(int capacity) {
+            super(capacity);
+            children = new Node[capacity + 1];
+        }
+    }
+
+    public MyBTreeMap() {
+        this(DEFAULT_FANOUT);
+    }
+
+    /**
+     * @param fanout the most children an internal node can have, at least 4
+     */
+    public MyBTreeMap(int fanout) {
+        if (fanout < 4) {
+            throw new IllegalArgumentException("fanout must be at least 4");
+        }
+        maxKeys = fanout - 1;
+        minKeys = maxKeys / 2;
+        root = newLeaf();
+    }
+
+    // one extra slot, so a node can overflow before it splits
+    private Leaf newLeaf() {
+        return new Leaf(maxKeys + 1);
+    }
+
+    private Internal newInternal() {
+        return new Internal(maxKeys + 1);
+    }
+
+    /**
+     * Finds `key` in the keys of `node`.
+     *
+     * @return the index of the key, or (-(insertion point) - 1), like Arrays.binarySearch
+     */
+    @SuppressWarnings("unchecked")
+    private static int search(Node node, Object key) {
+        Comparable<Object> k = (Comparable<Object>) key;
+        int low = 0;
+        int high = node.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compare = k.compareTo(node.keys[mid]);
+            if (compare > 0)
+                low = mid + 1;
+            else if (compare < 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns the child of an internal node that `key` belongs in.
+     */
+    private static int childIndex(Node node, Object key) {
+        int i = search(node, key);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    /**
+     * Returns the leaf that would contain `key`.
+     */
+    private Leaf findLeaf(Object key) {
+        Node node = root;
+        while (node instanceof Internal) {
+            node = ((Internal) node).children[childIndex(node, key)];
+        }
+        return (Leaf) node;
+    }
+
+    @Override
+    public void clear() {
+        root = newLeaf();
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean containsKey(Object target) {
+        if (target == null) {
+            throw new IllegalArgumentException();
+        }
+        return search(findLeaf(target), target) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object target) {
+        for (V value : values()) {
+            if (equals(value, target))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compares two keys or two values, handling null correctly.
+     *
+     * @param target
+     * @param obj
+     * @return
+     */
+    private boolean equals(Object target, Object obj) {
+        if (target == null) {
+            return obj == null;
+        }
+        return target.equals(obj);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException();
+        }
+        Leaf leaf = findLeaf(key);
+        int i = search(leaf, key);
+        return i >= 0 ? (V) leaf.values[i] : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        oldValue = null;
+        Node sibling = insert(root, key, value);
+        if (sibling != null) {
+            // the root split, so the tree gets a level taller
+            Internal newRoot = newInternal();
+            newRoot.keys[0] = splitKey;
+            newRoot.children[0] = root;
+            newRoot.children[1] = sibling;
+            newRoot.count = 1;
+            root = newRoot;
+        }
+        splitKey = null;
+        return (V) oldValue;
+    }
+
+    /**
+     * Puts `key` in the subtree under `node`.
+     *
+     * @return the new right sibling of `node` if it split, with the smallest
+     * key under it in `splitKey`; otherwise null
+     */
+    private Node insert(Node node, Object key, Object value) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int i = search(leaf, key);
+            if (i >= 0) {
+                oldValue = leaf.values[i];
+                leaf.values[i] = value;
+                return null;
+            }
+            i = -i - 1;
+            System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.count - i);
+            System.arraycopy(leaf.values, i, leaf.values, i + 1, leaf.count - i);
+            leaf.keys[i] = key;
+            leaf.values[i] = value;
+            leaf.count++;
+            size++;
+            modCount++;
+            return leaf.count > maxKeys ? splitLeaf(leaf) : null;
+        }
+
+        Internal internal = (Internal) node;
+        int c = childIndex(internal, key);
+        Node sibling = insert(internal.children[c], key, value);
+        if (sibling == null) {
+            return null;
+        }
+        System.arraycopy(internal.keys, c, internal.keys, c + 1, internal.count - c);
+        System.arraycopy(internal.children, c + 1, internal.children, c + 2, internal.count - c);
+        internal.keys[c] = splitKey;
+        internal.children[c + 1] = sibling;
+        internal.count++;
+        return internal.count > maxKeys ? splitInternal(internal) : null;
+    }
+
+    private Leaf splitLeaf(Leaf leaf) {
+        Leaf right = newLeaf();
+        int mid = leaf.count / 2;
+        int moved = leaf.count - mid;
+        System.arraycopy(leaf.keys, mid, right.keys, 0, moved);
+        System.arraycopy(leaf.values, mid, right.values, 0, moved);
+        clear(leaf, mid);
+        right.count = moved;
+        right.next = leaf.next;
+        leaf.next = right;
+        splitKey = right.keys[0];
+        return right;
+    }
+
+    private Internal splitInternal(Internal internal) {
+        Internal right = newInternal();
+        int mid = internal.count / 2;
+        int moved = internal.count - mid - 1;
+        // the middle key moves up to the parent
+        splitKey = internal.keys[mid];
+        System.arraycopy(internal.keys, mid + 1, right.keys, 0, moved);
+        System.arraycopy(internal.children, mid + 1, right.children, 0, moved + 1);
+        clear(internal, mid);
+        right.count = moved;
+        return right;
+    }
+
+    /**
+     * Shrinks `node` to `count` keys and drops the references past the end.
+     */
+    private static void clear(Node node, int count) {
+        for (int i = count; i < node.count; i++) {
+            node.keys[i] = null;
+            if (node instanceof Leaf) {
+                ((Leaf) node).values[i] = null;
+            } else {
+                ((Internal) node).children[i + 1] = null;
+            }
+        }
+        node.count = count;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException();
+        }
+        oldValue = null;
+        delete(root, key);
+        if (root instanceof Internal && root.count == 0) {
+            // the root has one child left, so the tree gets a level shorter
+            root = ((Internal) root).children[0];
+        }
+        return (V) oldValue;
+    }
+
+    /**
+     * Removes `key` from the subtree under `node`, and fixes any child that
+     * ends up less than half full.
+     *
+     * @return true if the key was there
+     */
+    private boolean delete(Node node, Object key) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int i = search(leaf, key);
+            if (i < 0) {
+                return false;
+            }
+            oldValue = leaf.values[i];
+            System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.count - i - 1);
+            System.arraycopy(leaf.values, i + 1, leaf.values, i, leaf.count - i - 1);
+            leaf.count--;
+            leaf.keys[leaf.count] = null;
+            leaf.values[leaf.count] = null;
+            size--;
+            modCount++;
+            return true;
+        }
+
+        // the keys in internal nodes only guide the search, so they can stay
+        // behind after the entry they came from is gone
+        Internal internal = (Internal) node;
+        int c = childIndex(internal, key);
+        boolean removed = delete(internal.children[c], key);
+        if (removed && internal.children[c].count < minKeys) {
+            rebalance(internal, c);
+        }
+        return removed;
+    }
+
+    /**
+     * Refills child `c` of `parent`, by borrowing a key from a sibling that
+     * can spare one or else by merging with a sibling.
+     */
+    private void rebalance(Internal parent, int c) {
+        Node left = c > 0 ? parent.children[c - 1] : null;
+        Node right = c < parent.count ? parent.children[c + 1] : null;
+
+        if (left != null && left.count > minKeys) {
+            borrowFromLeft(parent, c);
+        } else if (right != null && right.count > minKeys) {
+            borrowFromRight(parent, c);
+        } else if (left != null) {
+            merge(parent, c - 1);
+        } else if (right != null) {
+            merge(parent, c);
+        }
+    }
+
+    private void borrowFromLeft(Internal parent, int c) {
+        Node child = parent.children[c];
+        Node left = parent.children[c - 1];
+        int last = left.count - 1;
+        System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+        if (child instanceof Leaf) {
+            Leaf leaf = (Leaf) child;
+            System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.count);
+            leaf.keys[0] = left.keys[last];
+            leaf.values[0] = ((Leaf) left).values[last];
+            parent.keys[c - 1] = leaf.keys[0];
+        } else {
+            Internal internal = (Internal) child;
+            System.arraycopy(internal.children, 0, internal.children, 1, internal.count + 1);
+            internal.keys[0] = parent.keys[c - 1];
+            internal.children[0] = ((Internal) left).children[last + 1];
+            parent.keys[c - 1] = left.keys[last];
+        }
+        child.count++;
+        clear(left, last);
+    }
+
+    private void borrowFromRight(Internal parent, int c) {
+        Node child = parent.children[c];
+        Node right = parent.children[c + 1];
+        if (child instanceof Leaf) {
+            Leaf leaf = (Leaf) child;
+            Leaf rightLeaf = (Leaf) right;
+            leaf.keys[leaf.count] = rightLeaf.keys[0];
+            leaf.values[leaf.count] = rightLeaf.values[0];
+            System.arraycopy(rightLeaf.values, 1, rightLeaf.values, 0, rightLeaf.count - 1);
+            System.arraycopy(rightLeaf.keys, 1, rightLeaf.keys, 0, rightLeaf.count - 1);
+            parent.keys[c] = rightLeaf.keys[0];
+        } else {
+            Internal internal = (Internal) child;
+            Internal rightInternal = (Internal) right;
+            internal.keys[internal.count] = parent.keys[c];
+            internal.children[internal.count + 1] = rightInternal.children[0];
+            parent.keys[c] = rightInternal.keys[0];
+            System.arraycopy(rightInternal.keys, 1, rightInternal.keys, 0, rightInternal.count - 1);
+            System.arraycopy(rightInternal.children, 1, rightInternal.children, 0, rightInternal.count);
+            rightInternal.children[rightInternal.count] = null;
+        }
+        child.count++;
+        right.count--;
+        right.keys[right.count] = null;
+        if (right instanceof Leaf) {
+            ((Leaf) right).values[right.count] = null;
+        }
+    }
+
+    /**
+     * Moves everything in child `i + 1` of `parent` into child `i`.
+     */
+    private void merge(Internal parent, int i) {
+        Node left = parent.children[i];
+        Node right = parent.children[i + 1];
+        if (left instanceof Leaf) {
+            Leaf leftLeaf = (Leaf) left;
+            Leaf rightLeaf = (Leaf) right;
+            System.arraycopy(rightLeaf.keys, 0, leftLeaf.keys, leftLeaf.count, rightLeaf.count);
+            System.arraycopy(rightLeaf.values, 0, leftLeaf.values, leftLeaf.count, rightLeaf.count);
+            leftLeaf.count += rightLeaf.count;
+            leftLeaf.next = rightLeaf.next;
+        } else {
+            Internal leftInternal = (Internal) left;
+            Internal rightInternal = (Internal) right;
+            // the key that separated them comes down between them
+            leftInternal.keys[leftInternal.count] = parent.keys[i];
+            System.arraycopy(rightInternal.keys, 0, leftInternal.keys, leftInternal.count + 1, rightInternal.count);
+            System.arraycopy(rightInternal.children, 0, leftInternal.children, leftInternal.count + 1,
+                    rightInternal.count + 1);
+            leftInternal.count += rightInternal.count + 1;
+        }
+
+        System.arraycopy(parent.keys, i + 1, parent.keys, i, parent.count - i - 1);
+        System.arraycopy(parent.children, i + 2, parent.children, i + 1, parent.count - i - 1);
+        parent.count--;
+        parent.keys[parent.count] = null;
+        parent.children[parent.count + 1] = null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<K> iterator() {
+                return new LeafIterator<K>() {
+                    @Override
+                    K get(Leaf leaf, int i) {
+                        return (K) leaf.keys[i];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<V> iterator() {
+                return new LeafIterator<V>() {
+                    @Override
+                    V get(Leaf leaf, int i) {
+                        return (V) leaf.values[i];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<Entry<K, V>> iterator() {
+                return new LeafIterator<Entry<K, V>>() {
+                    @Override
+                    Entry<K, V> get(Leaf leaf, int i) {
+                        // positions move when nodes split, so setValue goes through put
+                        return new AbstractMap.SimpleEntry<K, V>((K) leaf.keys[i], (V) leaf.values[i]) {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            public V setValue(V value) {
+                                put(getKey(), value);
+                                return super.setValue(value);
+                            }
+                        };
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Walks the linked leaves in order.
+     */
+    private abstract class LeafIterator<T> implements Iterator<T> {
+        private Leaf leaf;
+        private int index = 0;
+        private Object lastKey = null;
+        private int expectedModCount = modCount;
+
+        LeafIterator() {
+            Node node = root;
+            while (node instanceof Internal) {
+                node = ((Internal) node).children[0];
+            }
+            leaf = (Leaf) node;
+            skipEmpty();
+        }
+
+        abstract T get(Leaf leaf, int i);
+
+        private void skipEmpty() {
+            while (leaf != null && index >= leaf.count) {
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            T result = get(leaf, index);
+            lastKey = leaf.keys[index];
+            index++;
+            skipEmpty();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            MyBTreeMap.this.remove(lastKey);
+
+            // leaves can merge, so find the next key again
+            leaf = findLeaf(lastKey);
+            int i = search(leaf, lastKey);
+            index = i >= 0 ? i + 1 : -i - 1;
+            skipEmpty();
+            lastKey = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Returns the height of the tree.
+     *
+     * This is only here for testing purposes.  Should not be used otherwise.
+     *
+     * @return
+     */
+    public int height() {
+        int height = 1;
+        for (Node node = root; node instanceof Internal; node = ((Internal) node).children[0]) {
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        Map<String, Integer> map = new MyBTreeMap<String, Integer>();
+        map.put("Word1", 1);
+        map.put("Word2", 2);
+        Integer value = map.get("Word1");
+        System.out.println(value);
+
+        for (String key : map.keySet()) {
+            System.out.println(key + ", " + map.get(key));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ *
+ */
+package chapter12;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class MyBTreeMapTest {
+
+	private MyBTreeMap<String, Integer> map;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		// a small fanout, so these keys already fill a few levels
+		map = new MyBTreeMap<String, Integer>(4);
+		map.put("08", 8);
+		map.put("03", 3);
+		map.put("10", 10);
+		map.put("01", 1);
+		map.put("06", 6);
+		map.put("14", 14);
+		map.put("04", 4);
+		map.put("07", 7);
+		map.put("13", 13);
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#clear()}.
+	 */
+	@Test
+	public void testClear() {
+		map.clear();
+		assertThat(map.size(), is(0));
+		assertThat(map.get("03"), nullValue());
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#containsKey(Object)}.
+	 */
+	@Test
+	public void testContainsKey() {
+		assertThat(map.containsKey("03"), is(true));
+		assertThat(map.containsKey("05"), is(false));
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#containsValue(Object)}.
+	 */
+	@Test
+	public void testContainsValue() {
+		assertThat(map.containsValue(3), is(true));
+		assertThat(map.containsValue(5), is(false));
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#get(Object)}.
+	 */
+	@Test
+	public void testGet() {
+		assertThat(map.get("01"), is(1));
+		assertThat(map.get("03"), is(3));
+		assertThat(map.get("04"), is(4));
+		assertThat(map.get("06"), is(6));
+		assertThat(map.get("07"), is(7));
+		assertThat(map.get("08"), is(8));
+		assertThat(map.get("10"), is(10));
+		assertThat(map.get("13"), is(13));
+		assertThat(map.get("14"), is(14));
+
+		assertThat(map.get("02"), nullValue());
+		assertThat(map.get("05"), nullValue());
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#isEmpty()}.
+	 */
+	@Test
+	public void testIsEmpty() {
+		assertThat(map.isEmpty(), is(false));
+		map.clear();
+		assertThat(map.isEmpty(), is(true));
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#keySet()}.
+	 */
+	@Test
+	public void testKeySet() {
+		Set<String> keySet = map.keySet();
+		assertThat(keySet.size(), is(9));
+		assertThat(keySet.contains("03"), is(true));
+		assertThat(keySet.contains("05"), is(false));
+		assertThat(keySet.toString(), is("[01, 03, 04, 06, 07, 08, 10, 13, 14]"));
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#put(Object, Object)}.
+	 */
+	@Test
+	public void testPut() {
+		assertThat(map.put("06", 66), is(6));
+		assertThat(map.size(), is(9));
+		assertThat(map.get("06"), is(66));
+
+		assertThat(map.put("05", 5), nullValue());
+		assertThat(map.size(), is(10));
+		assertThat(map.get("05"), is(5));
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#putAll(Map)}.
+	 */
+	@Test
+	public void testPutAll() {
+		Map<String, Integer> m = new HashMap<String, Integer>();
+		m.put("02", 2);
+		m.put("05", 5);
+		m.put("12", 12);
+		map.putAll(m);
+		assertThat(map.size(), is(12));
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#remove(Object)}.
+	 */
+	@Test
+	public void testRemove() {
+		assertThat(map.remove("04"), is(4));
+		assertThat(map.size(), is(8));
+		assertThat(map.containsKey("04"), is(false));
+
+		assertThat(map.remove("05"), nullValue());
+		assertThat(map.size(), is(8));
+
+		for (String key : new String[] {"01", "03", "06", "07", "08", "10", "13"}) {
+			map.remove(key);
+		}
+		assertThat(map.keySet().toString(), is("[14]"));
+		assertThat(map.height(), is(1));
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#size()}.
+	 */
+	@Test
+	public void testSize() {
+		assertThat(map.size(), is(9));
+	}
+
+	/**
+	 * Test method for {@link MyBTreeMap#values()}.
+	 */
+	@Test
+	public void testValues() {
+		Collection<Integer> values = map.values();
+		assertThat(values.size(), is(9));
+		assertThat(values.contains(3), is(true));
+		assertThat(values.contains(5), is(false));
+		assertThat(values.toString(), is("[1, 3, 4, 6, 7, 8, 10, 13, 14]"));
+	}
+
+	/**
+	 * Test method for the iterator of {@link MyBTreeMap#entrySet()}.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Integer> entry = it.next();
+			if (entry.getValue() % 2 == 0) {
+				it.remove();
+			} else {
+				entry.setValue(entry.getValue() * 10);
+			}
+		}
+		assertThat(map.keySet().toString(), is("[01, 03, 07, 13]"));
+		assertThat(map.values().toString(), is("[10, 30, 70, 130]"));
+	}
+
+	/**
+	 * Random puts and removes should match TreeMap, for small and large fanouts.
+	 */
+	@Test
+	public void testMatchesTreeMap() {
+		for (int fanout : new int[] {4, 5, 64}) {
+			MyBTreeMap<Integer, Integer> btree = new MyBTreeMap<Integer, Integer>(fanout);
+			TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+			Random random = new Random(fanout);
+			for (int i=0; i<50000; i++) {
+				int key = random.nextInt(10000);
+				if (random.nextInt(3) > 0) {
+					assertThat(btree.put(key, i), is(expected.put(key, i)));
+				} else {
+					assertThat(btree.remove(key), is(expected.remove(key)));
+				}
+			}
+			assertThat(btree.size(), is(expected.size()));
+			assertThat(new ArrayList<Integer>(btree.keySet()), is(new ArrayList<Integer>(expected.keySet())));
+			assertThat(new ArrayList<Integer>(btree.values()), is(new ArrayList<Integer>(expected.values())));
+
+			// every node but the root is at least half full
+			int minChildren = fanout / 2;
+			double maxHeight = 1 + Math.log(expected.size() / 2.0) / Math.log(minChildren);
+			assertThat(btree.height() <= maxHeight, is(true));
+
+			for (Integer key : new ArrayList<Integer>(expected.keySet())) {
+				assertThat(btree.remove(key), is(expected.get(key)));
+			}
+			assertThat(btree.isEmpty(), is(true));
+			assertThat(btree.height(), is(1));
+		}
+	}
+}
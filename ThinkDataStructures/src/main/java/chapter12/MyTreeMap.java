@@ -3,35 +3,86 @@
  */
 package chapter12;
 
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Deque;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.Function;
+
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
 
 /**
  * Implementation of a Map using a binary search tree.
  *
+ * By default the tree is not rebalanced, so keys that arrive in order make
+ * it a linked list.  A map made with `new MyTreeMap(true)` is an AVL tree:
+ * after every put and remove, the nodes on the path to the change are
+ * rotated so that the heights of their subtrees differ by at most one, which
+ * keeps the height below 1.44 log2(n).
+ *
+ * The key set, values, entry set and the range views returned by subMap,
+ * headMap, tailMap and descendingMap are all backed by the tree.  Their
+ * iterators keep a stack of the nodes still to visit, so a scan over k keys
+ * takes O(log n + k) time and O(log n) extra space.
+ *
  * @param <K>
  * @param <V>
  *
  */
-public class MyTreeMap<K, V> implements Map<K, V> {
+public class MyTreeMap<K, V> implements NavigableMap<K, V>, MemoryFootprint {
 
     private int size = 0;
     private Node root = null;
+    private int modCount = 0;   // structural changes, for the iterators
+
+    // view of the whole map, which the navigation methods delegate to
+    private final View all = new View(null, false, null, false, false);
+
+    private final boolean balanced;
+
+    // nodes from the root down to the last change, reused by put and remove
+    private final List<Node> path = new ArrayList<Node>();
+
+    /**
+     * Makes a map that does not rebalance.
+     */
+    public MyTreeMap() {
+        this(false);
+    }
+
+    /**
+     * @param balanced if true, the tree is kept balanced as an AVL tree
+     */
+    public MyTreeMap(boolean balanced) {
+        this.balanced = balanced;
+    }
 
     /**
      * Represents a node in the tree.
      *
      */
-    protected class Node {
+    protected class Node implements Map.Entry<K, V> {
         public K key;
         public V value;
         public Node left = null;
         public Node right = null;
+        public int height = 1;      // only maintained in balanced mode
 
         /**
          * @param key
@@ -43,12 +94,49 @@ public class MyTreeMap<K, V> implements Map<K, V> {
             this.key = key;
             this.value = value;
         }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V newValue) {
+            V oldValue = value;
+            value = newValue;
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            return MyTreeMap.this.equals(key, entry.getKey()) && MyTreeMap.this.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
     }
 
     @Override
     public void clear() {
         size = 0;
         root = null;
+        modCount++;
     }
 
     @Override
@@ -102,28 +190,16 @@ public class MyTreeMap<K, V> implements Map<K, V> {
 
     @Override
     public boolean containsValue(Object target) {
-        return containsValueHelper(root, target);
-    }
-
-    private boolean containsValueHelper(Node node, Object target) {
-        if (node == null)
-            return false;
-
-        if (equals(node.value, target))
-            return true;
-
-        if (containsValueHelper(node.left, target))
-            return true;
-
-        if (containsValueHelper(node.right, target))
-            return true;
-
+        for (V value : values()) {
+            if (equals(value, target))
+                return true;
+        }
         return false;
     }
 
     @Override
     public Set<Entry<K, V>> entrySet() {
-        throw new UnsupportedOperationException();
+        return all.entrySet();
     }
 
     @Override
@@ -142,17 +218,7 @@ public class MyTreeMap<K, V> implements Map<K, V> {
 
     @Override
     public Set<K> keySet() {
-        Set<K> set = new LinkedHashSet<K>();
-        keySetHelper(root, set);
-        return set;
-    }
-
-    private void keySetHelper(Node node, Set<K> set) {
-        if (node == null) return;
-
-        keySetHelper(node.left, set);
-        set.add(node.key);
-        keySetHelper(node.right, set);
+        return all.navigableKeySet();
     }
 
     @Override
@@ -160,38 +226,40 @@ public class MyTreeMap<K, V> implements Map<K, V> {
         if (key == null) {
             throw new NullPointerException();
         }
-        if (root == null) {
-            root = new Node(key, value);
-            size++;
-            return null;
-        }
-        return putHelper(root, key, value);
-    }
-
-    private V putHelper(Node node, K key, V value) {
+        @SuppressWarnings("unchecked")
         Comparable<? super K> k = (Comparable<? super K>) key;
-        int compare = k.compareTo(node.key);
 
-        if (compare < 0) {
-            if (node.left == null) {
-                node.left = new Node(key, value);
-                size++;
-                return null;
-            } else
-                return putHelper(node.left, key, value);
-        }
-        if (compare > 0) {
-            if (node.right == null) {
-                node.right = new Node(key, value);
-                size++;
-                return null;
-            } else
-                return putHelper(node.right, key, value);
+        // walk down to the node with the key, or the place it goes
+        path.clear();
+        Node parent = null;
+        Node node = root;
+        int compare = 0;
+        while (node != null) {
+            compare = k.compareTo(node.key);
+            if (compare == 0) {
+                V oldVal = node.value;
+                node.value = value;
+                return oldVal;
+            }
+            path.add(node);
+            parent = node;
+            node = compare < 0 ? node.left : node.right;
         }
 
-        V oldVal = node.value;
-        node.value = value;
-        return oldVal;
+        Node child = new Node(key, value);
+        modCount++;
+        if (parent == null) {
+            root = child;
+        } else if (compare < 0) {
+            parent.left = child;
+        } else {
+            parent.right = child;
+        }
+        size++;
+        if (balanced) {
+            rebalancePath();
+        }
+        return null;
     }
 
     @Override
@@ -203,8 +271,132 @@ public class MyTreeMap<K, V> implements Map<K, V> {
 
     @Override
     public V remove(Object key) {
-        // OPTIONAL TODO: FILL THIS IN!
-        throw new UnsupportedOperationException();
+        if (key == null) {
+            throw new IllegalArgumentException();
+        }
+        @SuppressWarnings("unchecked")
+        Comparable<? super K> k = (Comparable<? super K>) key;
+
+        // find the node and its parent
+        path.clear();
+        Node parent = null;
+        Node node = root;
+        while (node != null) {
+            int compare = k.compareTo(node.key);
+            if (compare == 0)
+                break;
+            path.add(node);
+            parent = node;
+            node = compare < 0 ? node.left : node.right;
+        }
+        if (node == null) {
+            return null;
+        }
+        V oldValue = node.value;
+
+        // a node with two children takes the key and value of its successor,
+        // and the successor, which has no left child, is removed instead
+        if (node.left != null && node.right != null) {
+            path.add(node);
+            Node successorParent = node;
+            Node successor = node.right;
+            while (successor.left != null) {
+                path.add(successor);
+                successorParent = successor;
+                successor = successor.left;
+            }
+            node.key = successor.key;
+            node.value = successor.value;
+            parent = successorParent;
+            node = successor;
+        }
+
+        // now node has at most one child, which takes its place
+        replaceChild(parent, node, node.left != null ? node.left : node.right);
+        size--;
+        modCount++;
+        if (balanced) {
+            rebalancePath();
+        }
+        return oldValue;
+    }
+
+    /**
+     * Makes `child` take the place of `node` under `parent`, or at the root
+     * if `parent` is null.
+     */
+    private void replaceChild(Node parent, Node node, Node child) {
+        if (parent == null) {
+            root = child;
+        } else if (parent.left == node) {
+            parent.left = child;
+        } else {
+            parent.right = child;
+        }
+    }
+
+    /**
+     * Rebalances the nodes in `path`, from the bottom up.
+     */
+    private void rebalancePath() {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            Node subtree = rebalance(node);
+            if (subtree != node) {
+                replaceChild(i > 0 ? path.get(i - 1) : null, node, subtree);
+            }
+        }
+    }
+
+    /**
+     * Updates the height of `node` and rotates it if its subtrees differ in
+     * height by more than one.
+     *
+     * @param node
+     * @return the root of the rebalanced subtree
+     */
+    private Node rebalance(Node node) {
+        updateHeight(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        updateHeight(node);
+        updateHeight(left);
+        return left;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        updateHeight(node);
+        updateHeight(right);
+        return right;
+    }
+
+    private int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private void updateHeight(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
     }
 
     @Override
@@ -212,19 +404,825 @@ public class MyTreeMap<K, V> implements Map<K, V> {
         return size;
     }
 
+    /**
+     * Compares this map with another Map by their entries, as the
+     * java.util maps do, so they agree whichever one is asked.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || all.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return all.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return all.toString();
+    }
+
+    /**
+     * Counts the map, its view of itself, the path list and one node per
+     * key; a node holds the key, the value, two children, the height and
+     * the map it belongs to.
+     */
+    @Override
+    public long estimatedBytes() {
+        return MemoryLayout.object(3, 9)
+                + MemoryLayout.object(5, 3)
+                + MemoryLayout.arrayList(MemoryLayout.arrayListCapacity(path.size()))
+                + size * MemoryLayout.object(5, 4);
+    }
+
     @Override
     public Collection<V> values() {
-        Set<V> set = new HashSet<V>();
-        Deque<Node> stack = new LinkedList<Node>();
-        stack.push(root);
-        while (!stack.isEmpty()) {
+        return all.values();
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        // keys are always in their natural order
+        return null;
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return all.lowerEntry(key);
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return all.lowerKey(key);
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return all.floorEntry(key);
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return all.floorKey(key);
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return all.ceilingEntry(key);
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return all.ceilingKey(key);
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return all.higherEntry(key);
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return all.higherKey(key);
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        return all.firstEntry();
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        return all.lastEntry();
+    }
+
+    @Override
+    public Entry<K, V> pollFirstEntry() {
+        return all.pollFirstEntry();
+    }
+
+    @Override
+    public Entry<K, V> pollLastEntry() {
+        return all.pollLastEntry();
+    }
+
+    @Override
+    public K firstKey() {
+        return all.firstKey();
+    }
+
+    @Override
+    public K lastKey() {
+        return all.lastKey();
+    }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        return all.descendingMap();
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return all.navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return all.descendingKeySet();
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return all.subMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        return all.headMap(toKey, inclusive);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return all.tailMap(fromKey, inclusive);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /**
+     * Compares two keys in their natural order.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compare(Object key1, Object key2) {
+        return ((Comparable<Object>) key1).compareTo(key2);
+    }
+
+    /**
+     * Returns the node with the smallest key greater than `key` (or equal
+     * to it, if `inclusive`), or null if there is none.
+     */
+    private Node ceilingNode(Object key, boolean inclusive) {
+        Node best = null;
+        Node node = root;
+        while (node != null) {
+            int compare = compare(key, node.key);
+            if (compare < 0 || (compare == 0 && inclusive)) {
+                if (compare == 0)
+                    return node;
+                best = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the node with the largest key less than `key` (or equal to
+     * it, if `inclusive`), or null if there is none.
+     */
+    private Node floorNode(Object key, boolean inclusive) {
+        Node best = null;
+        Node node = root;
+        while (node != null) {
+            int compare = compare(key, node.key);
+            if (compare > 0 || (compare == 0 && inclusive)) {
+                if (compare == 0)
+                    return node;
+                best = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    private Node firstNode() {
+        Node node = root;
+        if (node != null) {
+            while (node.left != null)
+                node = node.left;
+        }
+        return node;
+    }
+
+    private Node lastNode() {
+        Node node = root;
+        if (node != null) {
+            while (node.right != null)
+                node = node.right;
+        }
+        return node;
+    }
+
+    /**
+     * A range of the map, in ascending or descending order.
+     *
+     * The bounds are always in ascending terms: `lo` is the smallest key in
+     * the range and `hi` the largest, whichever way the view iterates.  A
+     * null bound means the range is open at that end.
+     */
+    private class View extends AbstractMap<K, V> implements NavigableMap<K, V> {
+        private final K lo;
+        private final boolean loInclusive;
+        private final K hi;
+        private final boolean hiInclusive;
+        private final boolean descending;
+
+        View(K lo, boolean loInclusive, K hi, boolean hiInclusive, boolean descending) {
+            if (lo != null && hi != null && compare(lo, hi) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        boolean tooLow(Object key) {
+            if (lo == null)
+                return false;
+            int compare = compare(key, lo);
+            return compare < 0 || (compare == 0 && !loInclusive);
+        }
+
+        boolean tooHigh(Object key) {
+            if (hi == null)
+                return false;
+            int compare = compare(key, hi);
+            return compare > 0 || (compare == 0 && !hiInclusive);
+        }
+
+        boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        /**
+         * Checks that a new bound for a narrower view is inside this one.
+         */
+        private void checkBound(K key) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            if ((lo != null && compare(key, lo) < 0) || (hi != null && compare(key, hi) > 0)) {
+                throw new IllegalArgumentException("key out of range");
+            }
+        }
+
+        // the nodes at the ends of the range, and next to a key within it,
+        // in ascending terms
+
+        private Node lowest() {
+            Node node = lo == null ? firstNode() : ceilingNode(lo, loInclusive);
+            return node == null || tooHigh(node.key) ? null : node;
+        }
+
+        private Node highest() {
+            Node node = hi == null ? lastNode() : floorNode(hi, hiInclusive);
+            return node == null || tooLow(node.key) ? null : node;
+        }
+
+        private Node ceiling(Object key, boolean inclusive) {
+            if (tooLow(key))
+                return lowest();
+            Node node = ceilingNode(key, inclusive);
+            return node == null || tooHigh(node.key) ? null : node;
+        }
+
+        private Node floor(Object key, boolean inclusive) {
+            if (tooHigh(key))
+                return highest();
+            Node node = floorNode(key, inclusive);
+            return node == null || tooLow(node.key) ? null : node;
+        }
+
+        // the same, in the order of this view
+
+        private Node first() {
+            return descending ? highest() : lowest();
+        }
+
+        private Node last() {
+            return descending ? lowest() : highest();
+        }
+
+        private Node after(Object key, boolean inclusive) {
+            return descending ? floor(key, inclusive) : ceiling(key, inclusive);
+        }
+
+        private Node before(Object key, boolean inclusive) {
+            return descending ? ceiling(key, inclusive) : floor(key, inclusive);
+        }
+
+        private Entry<K, V> exportEntry(Node node) {
+            return node == null ? null : new SimpleImmutableEntry<K, V>(node.key, node.value);
+        }
+
+        private K keyOrNull(Node node) {
+            return node == null ? null : node.key;
+        }
+
+        private K keyOrThrow(Node node) {
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            return node.key;
+        }
+
+        private Entry<K, V> poll(Node node) {
+            Entry<K, V> entry = exportEntry(node);
+            if (node != null) {
+                MyTreeMap.this.remove(node.key);
+            }
+            return entry;
+        }
+
+        <T> Iterator<T> iterator(Function<Node, T> extract) {
+            return new TreeIterator<T>(this, extract);
+        }
+
+        @Override
+        public int size() {
+            if (lo == null && hi == null) {
+                return size;
+            }
+            int count = 0;
+            for (Iterator<K> it = iterator(node -> node.key); it.hasNext(); it.next()) {
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return first() == null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange(key) && MyTreeMap.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return inRange(key) ? MyTreeMap.this.get(key) : null;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("key out of range");
+            }
+            return MyTreeMap.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return inRange(key) ? MyTreeMap.this.remove(key) : null;
+        }
+
+        @Override
+        public void clear() {
+            if (lo == null && hi == null) {
+                MyTreeMap.this.clear();
+            } else {
+                super.clear();
+            }
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return View.this.iterator(node -> node);
+                }
+
+                @Override
+                public int size() {
+                    return View.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return View.this.isEmpty();
+                }
+            };
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public Collection<V> values() {
+            return new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return View.this.iterator(node -> node.value);
+                }
+
+                @Override
+                public int size() {
+                    return View.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return View.this.isEmpty();
+                }
+            };
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder() : null;
+        }
+
+        @Override
+        public Entry<K, V> lowerEntry(K key) {
+            return exportEntry(before(key, false));
+        }
+
+        @Override
+        public K lowerKey(K key) {
+            return keyOrNull(before(key, false));
+        }
+
+        @Override
+        public Entry<K, V> floorEntry(K key) {
+            return exportEntry(before(key, true));
+        }
+
+        @Override
+        public K floorKey(K key) {
+            return keyOrNull(before(key, true));
+        }
+
+        @Override
+        public Entry<K, V> ceilingEntry(K key) {
+            return exportEntry(after(key, true));
+        }
+
+        @Override
+        public K ceilingKey(K key) {
+            return keyOrNull(after(key, true));
+        }
+
+        @Override
+        public Entry<K, V> higherEntry(K key) {
+            return exportEntry(after(key, false));
+        }
+
+        @Override
+        public K higherKey(K key) {
+            return keyOrNull(after(key, false));
+        }
+
+        @Override
+        public Entry<K, V> firstEntry() {
+            return exportEntry(first());
+        }
+
+        @Override
+        public Entry<K, V> lastEntry() {
+            return exportEntry(last());
+        }
+
+        @Override
+        public Entry<K, V> pollFirstEntry() {
+            return poll(first());
+        }
+
+        @Override
+        public Entry<K, V> pollLastEntry() {
+            return poll(last());
+        }
+
+        @Override
+        public K firstKey() {
+            return keyOrThrow(first());
+        }
+
+        @Override
+        public K lastKey() {
+            return keyOrThrow(last());
+        }
+
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new View(lo, loInclusive, hi, hiInclusive, !descending);
+        }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySet(this);
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            checkBound(fromKey);
+            checkBound(toKey);
+            if (descending) {
+                return narrow(toKey, toInclusive, fromKey, fromInclusive);
+            }
+            return narrow(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            checkBound(toKey);
+            if (descending) {
+                return narrow(toKey, inclusive, hi, hiInclusive);
+            }
+            return narrow(lo, loInclusive, toKey, inclusive);
+        }
+
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            checkBound(fromKey);
+            if (descending) {
+                return narrow(lo, loInclusive, fromKey, inclusive);
+            }
+            return narrow(fromKey, inclusive, hi, hiInclusive);
+        }
+
+        /**
+         * Makes a view of part of this one, with the bounds in ascending terms.
+         */
+        private View narrow(K newLo, boolean newLoInclusive, K newHi, boolean newHiInclusive) {
+            // a bound at the same key as an exclusive one stays exclusive
+            if (lo != null && compare(newLo, lo) == 0) {
+                newLoInclusive &= loInclusive;
+            }
+            if (hi != null && compare(newHi, hi) == 0) {
+                newHiInclusive &= hiInclusive;
+            }
+            return new View(newLo, newLoInclusive, newHi, newHiInclusive, descending);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
+
+    /**
+     * Visits the nodes of a View in order.
+     *
+     * The stack holds the nodes on the path from the root that come after
+     * the last node returned; the next one is on top.
+     */
+    private class TreeIterator<T> implements Iterator<T> {
+        private final View view;
+        private final Function<Node, T> extract;
+        private final Deque<Node> stack = new ArrayDeque<Node>();
+        private Node lastReturned = null;
+        private int expectedModCount = modCount;
+
+        TreeIterator(View view, Function<Node, T> extract) {
+            this.view = view;
+            this.extract = extract;
+            if (view.descending) {
+                seek(view.hi, view.hiInclusive);
+            } else {
+                seek(view.lo, view.loInclusive);
+            }
+        }
+
+        /**
+         * Fills the stack with the nodes on the path to `bound` that come
+         * after it in the order of the view (or at it, if `inclusive`).
+         */
+        private void seek(Object bound, boolean inclusive) {
+            stack.clear();
+            Node node = root;
+            while (node != null) {
+                if (bound == null) {
+                    // open at this end: every node on the way to the first one comes after it
+                    stack.push(node);
+                    node = view.descending ? node.right : node.left;
+                    continue;
+                }
+                int compare = compare(node.key, bound);
+                if (view.descending) {
+                    compare = -compare;
+                }
+                if (compare > 0 || (compare == 0 && inclusive)) {
+                    stack.push(node);
+                    node = view.descending ? node.right : node.left;
+                } else {
+                    node = view.descending ? node.left : node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (stack.isEmpty()) {
+                return false;
+            }
+            K key = stack.peek().key;
+            return view.descending ? !view.tooLow(key) : !view.tooHigh(key);
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
             Node node = stack.pop();
-            if (node == null) continue;
-            set.add(node.value);
-            stack.push(node.left);
-            stack.push(node.right);
+            Node child = view.descending ? node.left : node.right;
+            while (child != null) {
+                stack.push(child);
+                child = view.descending ? child.right : child.left;
+            }
+            lastReturned = node;
+            return extract.apply(node);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // removing can move nodes around, so find our place again
+            K key = lastReturned.key;
+            MyTreeMap.this.remove(key);
+            seek(key, false);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * The keys of a View, as a NavigableSet.
+     */
+    private class KeySet extends AbstractSet<K> implements NavigableSet<K> {
+        private final View view;
+
+        KeySet(View view) {
+            this.view = view;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return view.iterator(node -> node.key);
+        }
+
+        @Override
+        public Iterator<K> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public int size() {
+            return view.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return view.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return view.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!view.containsKey(o)) {
+                return false;
+            }
+            view.remove(o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            view.clear();
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return view.comparator();
+        }
+
+        @Override
+        public K lower(K e) {
+            return view.lowerKey(e);
+        }
+
+        @Override
+        public K floor(K e) {
+            return view.floorKey(e);
+        }
+
+        @Override
+        public K ceiling(K e) {
+            return view.ceilingKey(e);
+        }
+
+        @Override
+        public K higher(K e) {
+            return view.higherKey(e);
+        }
+
+        @Override
+        public K first() {
+            return view.firstKey();
+        }
+
+        @Override
+        public K last() {
+            return view.lastKey();
+        }
+
+        @Override
+        public K pollFirst() {
+            Entry<K, V> entry = view.pollFirstEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public K pollLast() {
+            Entry<K, V> entry = view.pollLastEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public NavigableSet<K> descendingSet() {
+            return view.descendingKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+            return view.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+            return view.headMap(toElement, inclusive).navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+            return view.tailMap(fromElement, inclusive).navigableKeySet();
+        }
+
+        @Override
+        public SortedSet<K> subSet(K fromElement, K toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> headSet(K toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> tailSet(K fromElement) {
+            return tailSet(fromElement, true);
         }
-        return set;
     }
 
     /**
@@ -276,15 +1274,25 @@ public class MyTreeMap<K, V> implements Map<K, V> {
      * @return
      */
     public int height() {
-        return heightHelper(root);
-    }
-
-    private int heightHelper(Node node) {
-        if (node == null) {
-            return 0;
+        if (balanced) {
+            return height(root);
+        }
+        // count the levels one at a time, since an unbalanced tree can be
+        // too deep to recurse
+        int height = 0;
+        List<Node> level = new ArrayList<Node>();
+        if (root != null) {
+            level.add(root);
+        }
+        while (!level.isEmpty()) {
+            height++;
+            List<Node> next = new ArrayList<Node>();
+            for (Node node : level) {
+                if (node.left != null) next.add(node.left);
+                if (node.right != null) next.add(node.right);
+            }
+            level = next;
         }
-        int left = heightHelper(node.left);
-        int right = heightHelper(node.right);
-        return Math.max(left, right) + 1;
+        return height;
     }
 }
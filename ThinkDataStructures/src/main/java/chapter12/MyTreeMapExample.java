@@ -6,7 +6,6 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.UUID;
 
 public class MyTreeMapExample {
@@ -26,8 +25,7 @@ public class MyTreeMapExample {
 	 * @param n 
 	 */
 	private static void putRandomStrings(int n) {
-//		 MyTreeMap<String, Integer> map = new MyTreeMap<String, Integer>();
-		TreeMap<String, Integer> map = new TreeMap<String, Integer>();
+		MyTreeMap<String, Integer> map = new MyTreeMap<String, Integer>(true);
 		
 		final long startTime = System.currentTimeMillis();		
 		for (int i=0; i<n; i++) {
@@ -35,8 +33,7 @@ public class MyTreeMapExample {
 			map.put(uuid, 0);
 		}
 		final long elapsed = System.currentTimeMillis() - startTime;
-//		printResults(map, elapsed, map.height());
-		printResults(map, elapsed, -1);
+		printResults(map, elapsed, map.height());
 	}
 	
 	/**
@@ -44,8 +41,8 @@ public class MyTreeMapExample {
 	 * @param n 
 	 */
 	private static void putTimestamps(int n) {
-		//MyTreeMap<String, Integer> map = new MyTreeMap<String, Integer>();
-		TreeMap<String, Integer> map = new TreeMap<String, Integer>();
+		// in order, so the unbalanced tree would be as tall as it is big
+		MyTreeMap<String, Integer> map = new MyTreeMap<String, Integer>(true);
 
 		final long startTime = System.currentTimeMillis();		
 		for (int i=0; i<n; i++) {
@@ -53,8 +50,7 @@ public class MyTreeMapExample {
 			map.put(timestamp, 0);
 		}
 		final long elapsed = System.currentTimeMillis() - startTime;
-		//printResults(map, elapsed, map.height());
-		printResults(map, elapsed, -1);
+		printResults(map, elapsed, map.height());
 	}
 	
 	/**
@@ -9,11 +9,16 @@ import static org.hamcrest.CoreMatchers.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
 
 import chapter11.MyLinearMap;
+import chapter4.MemoryLayout;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -64,6 +69,20 @@ public class MyTreeMapTest {
 		assertThat(map.size(), is(0));
 	}
 
+	/**
+	 * Test method for {@link MyTreeMap#estimatedBytes()}: one node per key.
+	 */
+	@Test
+	public void testEstimatedBytes() {
+		long before = map.estimatedBytes();
+		for (int i = 100; i < 1100; i++) {
+			map.put(Integer.toString(i), i);
+		}
+		long added = map.estimatedBytes() - before;
+		long nodes = 1000 * MemoryLayout.object(5, 4);
+		assertThat(added >= nodes && added < nodes + 256, is(true));
+	}
+
 	/**
 	 * Test method for {@link MyLinearMap#containsKey(Object)}.
 	 */
@@ -168,7 +187,242 @@ public class MyTreeMapTest {
 	 */
 	@Test
 	public void testRemove() {
-		// nothing to test, since this method is not implemented
+		// leaf
+		Integer value = map.remove("04");
+		assertThat(value, is(4));
+		assertThat(map.size(), is(8));
+		assertThat(map.containsKey("04"), is(false));
+
+		// one child
+		value = map.remove("10");
+		assertThat(value, is(10));
+		assertThat(map.get("14"), is(14));
+		assertThat(map.get("13"), is(13));
+
+		// two children, and the root
+		value = map.remove("08");
+		assertThat(value, is(8));
+		assertThat(map.size(), is(6));
+		assertThat(map.get("08") == null, is(true));
+		assertThat(map.keySet().toString(), is("[01, 03, 06, 07, 13, 14]"));
+
+		// missing key
+		value = map.remove("08");
+		assertThat(value == null, is(true));
+		assertThat(map.size(), is(6));
+	}
+
+	/**
+	 * Sorted keys should not make a balanced tree tall.
+	 */
+	@Test
+	public void testBalancedSortedPut() {
+		MyTreeMap<String, Integer> balanced = new MyTreeMap<String, Integer>(true);
+		int n = 100000;
+		for (int i=0; i<n; i++) {
+			balanced.put(String.format("%08d", i), i);
+		}
+		assertThat(balanced.size(), is(n));
+		assertThat(balanced.height() <= maxAvlHeight(n), is(true));
+		assertThat(balanced.get("00012345"), is(12345));
+		assertThat(balanced.get("12345"), nullValue());
+	}
+
+	/**
+	 * Random puts and removes should match TreeMap and keep the tree short.
+	 */
+	@Test
+	public void testBalancedRemove() {
+		MyTreeMap<Integer, Integer> balanced = new MyTreeMap<Integer, Integer>(true);
+		TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+		Random random = new Random(17);
+		for (int i=0; i<20000; i++) {
+			int key = random.nextInt(5000);
+			if (random.nextBoolean()) {
+				assertThat(balanced.put(key, i), is(expected.put(key, i)));
+			} else {
+				assertThat(balanced.remove(key), is(expected.remove(key)));
+			}
+		}
+		assertThat(balanced.size(), is(expected.size()));
+		assertThat(balanced.height() <= maxAvlHeight(expected.size()), is(true));
+		assertThat(new ArrayList<Integer>(balanced.keySet()), is(new ArrayList<Integer>(expected.keySet())));
+	}
+
+	/**
+	 * Test method for {@link MyTreeMap#floorKey(Object)} and the other
+	 * single-key navigation methods.
+	 */
+	@Test
+	public void testNavigation() {
+		assertThat(map.floorKey("05"), is("04"));
+		assertThat(map.floorKey("06"), is("06"));
+		assertThat(map.lowerKey("06"), is("04"));
+		assertThat(map.ceilingKey("05"), is("06"));
+		assertThat(map.ceilingKey("13"), is("13"));
+		assertThat(map.higherKey("13"), is("14"));
+		assertThat(map.lowerKey("01"), nullValue());
+		assertThat(map.higherKey("14"), nullValue());
+		assertThat(map.firstKey(), is("01"));
+		assertThat(map.lastEntry().getValue(), is(14));
+
+		assertThat(map.pollFirstEntry().getKey(), is("01"));
+		assertThat(map.size(), is(8));
+		assertThat(map.firstKey(), is("03"));
+	}
+
+	/**
+	 * Test method for {@link MyTreeMap#subMap(Object, boolean, Object, boolean)}
+	 * and the other range views.
+	 */
+	@Test
+	public void testRangeViews() {
+		NavigableMap<String, Integer> sub = map.subMap("03", false, "10", true);
+		assertThat(sub.keySet().toString(), is("[04, 06, 07, 08, 10]"));
+		assertThat(sub.size(), is(5));
+		assertThat(sub.containsKey("03"), is(false));
+		assertThat(sub.get("13"), nullValue());
+		assertThat(sub.firstKey(), is("04"));
+		assertThat(sub.lowerKey("04"), nullValue());
+		assertThat(sub.ceilingKey("11"), nullValue());
+
+		NavigableMap<String, Integer> descending = sub.descendingMap();
+		assertThat(descending.keySet().toString(), is("[10, 08, 07, 06, 04]"));
+		assertThat(descending.firstKey(), is("10"));
+		assertThat(descending.higherKey("07"), is("06"));
+		assertThat(descending.headMap("07", false).keySet().toString(), is("[10, 08]"));
+		assertThat(descending.tailMap("07", true).values().toString(), is("[7, 6, 4]"));
+
+		assertThat(map.headMap("06").keySet().toString(), is("[01, 03, 04]"));
+		assertThat(map.tailMap("10", false).keySet().toString(), is("[13, 14]"));
+		assertThat(map.descendingKeySet().first(), is("14"));
+
+		// views write through to the map
+		sub.put("05", 5);
+		assertThat(map.get("05"), is(5));
+		sub.remove("08");
+		assertThat(map.containsKey("08"), is(false));
+		try {
+			sub.put("02", 2);
+			assert(false);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test method for the iterator of {@link MyTreeMap#entrySet()}.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Integer> entry = it.next();
+			if (entry.getValue() % 2 == 0) {
+				it.remove();
+			} else {
+				entry.setValue(entry.getValue() * 10);
+			}
+		}
+		assertThat(map.keySet().toString(), is("[01, 03, 07, 13]"));
+		assertThat(map.values().toString(), is("[10, 30, 70, 130]"));
+	}
+
+	/**
+	 * Random range views should match TreeMap.
+	 */
+	@Test
+	public void testRangeViewsMatchTreeMap() {
+		MyTreeMap<Integer, Integer> balanced = new MyTreeMap<Integer, Integer>(true);
+		TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+		Random random = new Random(23);
+		for (int i=0; i<2000; i++) {
+			int key = random.nextInt(4000);
+			balanced.put(key, i);
+			expected.put(key, i);
+		}
+		for (int i=0; i<200; i++) {
+			int from = random.nextInt(4000);
+			int to = from + random.nextInt(400);
+			boolean fromInclusive = random.nextBoolean();
+			boolean toInclusive = random.nextBoolean();
+			NavigableMap<Integer, Integer> actualSub = balanced.subMap(from, fromInclusive, to, toInclusive);
+			NavigableMap<Integer, Integer> expectedSub = expected.subMap(from, fromInclusive, to, toInclusive);
+			assertThat(actualSub.entrySet(), is(expectedSub.entrySet()));
+			assertThat(new ArrayList<Integer>(actualSub.descendingKeySet()),
+					is(new ArrayList<Integer>(expectedSub.descendingKeySet())));
+
+			int key = from + random.nextInt(400);
+			assertThat(actualSub.floorKey(key), is(expectedSub.floorKey(key)));
+			assertThat(actualSub.higherKey(key), is(expectedSub.higherKey(key)));
+			assertThat(actualSub.descendingMap().ceilingKey(key), is(expectedSub.descendingMap().ceilingKey(key)));
+		}
+	}
+
+	/**
+	 * Descending views that are open at the top iterate from the largest
+	 * key.
+	 */
+	@Test
+	public void testDescendingViews() {
+		assertThat(map.descendingMap().keySet().toString(),
+				is("[14, 13, 10, 08, 07, 06, 04, 03, 01]"));
+		assertThat(map.descendingKeySet().toString(),
+				is("[14, 13, 10, 08, 07, 06, 04, 03, 01]"));
+		assertThat(map.tailMap("07", true).descendingMap().keySet().toString(),
+				is("[14, 13, 10, 08, 07]"));
+		assertThat(map.descendingMap().headMap("07", false).values().toString(),
+				is("[14, 13, 10, 8]"));
+		assertThat(map.headMap("07", false).descendingMap().keySet().toString(),
+				is("[06, 04, 03, 01]"));
+
+		MyTreeMap<Integer, Integer> balanced = new MyTreeMap<Integer, Integer>(true);
+		TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+		Random random = new Random(17);
+		for (int i=0; i<1000; i++) {
+			int key = random.nextInt(2000);
+			balanced.put(key, i);
+			expected.put(key, i);
+		}
+		assertThat(new ArrayList<Integer>(balanced.descendingKeySet()),
+				is(new ArrayList<Integer>(expected.descendingKeySet())));
+		for (int i=0; i<50; i++) {
+			int key = random.nextInt(2000);
+			boolean inclusive = random.nextBoolean();
+			assertThat(new ArrayList<Integer>(balanced.tailMap(key, inclusive).descendingKeySet()),
+					is(new ArrayList<Integer>(expected.tailMap(key, inclusive).descendingKeySet())));
+			assertThat(new ArrayList<Integer>(balanced.headMap(key, inclusive).descendingKeySet()),
+					is(new ArrayList<Integer>(expected.headMap(key, inclusive).descendingKeySet())));
+		}
+	}
+
+	/**
+	 * Test method for {@link MyTreeMap#equals(Object)}: a MyTreeMap and a
+	 * TreeMap with the same entries are equal either way round.
+	 */
+	@Test
+	public void testEquals() {
+		TreeMap<String, Integer> expected = new TreeMap<String, Integer>(map);
+		assertThat(map.equals(expected), is(true));
+		assertThat(expected.equals(map), is(true));
+		assertThat(map.hashCode(), is(expected.hashCode()));
+		assertThat(map.toString(), is(expected.toString()));
+
+		expected.put("08", 80);
+		assertThat(map.equals(expected), is(false));
+		assertThat(expected.equals(map), is(false));
+
+		expected.put("08", 8);
+		map.remove("01");
+		assertThat(map.equals(expected), is(false));
+		assertThat(expected.equals(map), is(false));
+	}
+
+	/**
+	 * Largest height an AVL tree with `n` nodes can have.
+	 */
+	private static int maxAvlHeight(int n) {
+		return (int) (1.4405 * Math.log(n + 2) / Math.log(2));
 	}
 
 	/**
@@ -1,13 +1,12 @@
 package chapter14;
 
 import chapter8.WikiFetcher;
+import chapter11.MyObject2IntMap;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
 import org.jsoup.select.Elements;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
 
 
@@ -18,12 +17,13 @@ import java.util.Set;
  */
 public class TermCounter {
 
-    private Map<String, Integer> map;
+    // counts are kept as primitive ints, so counting a word never boxes
+    private MyObject2IntMap<String> map;
     private String label;
 
     public TermCounter(String label) {
         this.label = label;
-        this.map = new HashMap<String, Integer>();
+        this.map = new MyObject2IntMap<String>();
     }
 
     public String getLabel() {
@@ -36,10 +36,9 @@ public class TermCounter {
      * @return
      */
     public int size() {
-        int ret = 0;
-        for (int val : map.values())
-            ret += val;
-        return ret;
+        int[] ret = {0};
+        map.forEach((term, count) -> ret[0] += count);
+        return ret[0];
     }
 
     /**
@@ -92,7 +91,7 @@ public class TermCounter {
      */
     public void incrementTermCount(String term) {
         // System.out.println(term);
-        put(term, get(term) + 1);
+        map.add(term, 1);
     }
 
     /**
@@ -112,8 +111,7 @@ public class TermCounter {
      * @return
      */
     public Integer get(String term) {
-        Integer count = map.get(term);
-        return count == null ? 0 : count;
+        return map.getInt(term);
     }
 
     /**
@@ -0,0 +1,155 @@
+package chapter15;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter for strings: a bit array and `k` hash functions.
+ *
+ * `put` sets the `k` bits a string hashes to and `mightContain` checks
+ * them, so a string that was put is always found, and a string that was
+ * not is found with a probability that depends on how full the filter
+ * is.  The filter is sized for an expected number of strings and a false
+ * positive rate; past that number it still works, but the rate goes up.
+ *
+ * The `k` bit positions come from one 64-bit hash by double hashing,
+ * h1 + i * h2, which is as good as `k` independent hashes in practice.
+ * The bits are in an AtomicLongArray, so threads can put and check
+ * strings at the same time without a lock.
+ *
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+
+    /**
+     * @param expectedInsertions number of strings the filter is sized for
+     * @param falsePositiveRate wanted rate at that size, between 0 and 1
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        // the optimal sizes: m = -n ln p / (ln 2)^2 and k = m / n ln 2
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min((m + 63) / 64, Integer.MAX_VALUE);
+        this.bits = new AtomicLongArray(words);
+        this.numBits = (long) words * 64;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Adds `s` to the filter.
+     *
+     * @param s
+     * @return true if any bit changed, so `s` was certainly not in the filter
+     */
+    public boolean put(CharSequence s) {
+        long hash = hash(s);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean changed = false;
+        for (int i = 1; i <= numHashes; i++) {
+            changed |= setBit(index(h1 + i * h2));
+        }
+        return changed;
+    }
+
+    /**
+     * Returns false if `s` was certainly never put, and true if it may
+     * have been.
+     *
+     * @param s
+     * @return
+     */
+    public boolean mightContain(CharSequence s) {
+        long hash = hash(s);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long index = index(h1 + i * h2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps a combined hash to a bit index.
+     */
+    private long index(int combined) {
+        return (combined & 0xffffffffL) % numBits;
+    }
+
+    /**
+     * Sets a bit and returns true if it was clear.
+     */
+    private boolean setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long old = bits.get(word);
+            if ((old & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(word, old, old | mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a 64-bit hash of `s`: FNV-1a over the chars, then the
+     * MurmurHash3 finalizer to mix the high and low halves.
+     */
+    static long hash(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the number of bits in the filter.
+     *
+     * @return
+     */
+    public long bitSize() {
+        return numBits;
+    }
+
+    /**
+     * Returns the number of hash functions.
+     *
+     * @return
+     */
+    public int hashCount() {
+        return numHashes;
+    }
+
+    /**
+     * Returns the false positive rate expected now, from the fraction of
+     * bits that are set.
+     *
+     * @return
+     */
+    public double expectedFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            set += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) set / numBits, numHashes);
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package chapter15;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class BloomFilterTest {
+
+	private static final int N = 10000;
+
+	private BloomFilter filter;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		filter = new BloomFilter(N, 0.01);
+		for (int i = 0; i < N; i++) {
+			filter.put("https://en.wikipedia.org/wiki/Page_" + i);
+		}
+	}
+
+	/**
+	 * Test method for {@link BloomFilter#mightContain(CharSequence)}.
+	 */
+	@Test
+	public void testMightContain() {
+		// no false negatives
+		for (int i = 0; i < N; i++) {
+			assertThat(filter.mightContain("https://en.wikipedia.org/wiki/Page_" + i), is(true));
+		}
+
+		// false positives near the rate the filter was sized for
+		int positives = 0;
+		for (int i = N; i < 2 * N; i++) {
+			if (filter.mightContain("https://en.wikipedia.org/wiki/Page_" + i)) {
+				positives++;
+			}
+		}
+		assertThat(positives < 2 * N / 100, is(true));
+		assertThat(filter.expectedFalsePositiveRate() < 0.02, is(true));
+	}
+
+	/**
+	 * Test method for {@link BloomFilter#put(CharSequence)}.
+	 */
+	@Test
+	public void testPut() {
+		BloomFilter small = new BloomFilter(100, 0.01);
+		assertThat(small.mightContain("Java"), is(false));
+		assertThat(small.put("Java"), is(true));
+		assertThat(small.put("Java"), is(false));
+		assertThat(small.mightContain("Java"), is(true));
+	}
+
+	/**
+	 * Test method for {@link BloomFilter#BloomFilter(int, double)}.
+	 */
+	@Test
+	public void testSize() {
+		// about 9.6 bits and 7 hashes per string for 1%
+		assertThat(filter.bitSize() >= 95850, is(true));
+		assertThat(filter.bitSize() < 96000, is(true));
+		assertThat(filter.hashCount(), is(7));
+	}
+}
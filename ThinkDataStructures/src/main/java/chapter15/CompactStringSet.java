@@ -0,0 +1,165 @@
+package chapter15;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Set of strings that stores each one as its UTF-8 bytes, in an open
+ * addressing table like MyOpenHashMap's.
+ *
+ * A URL kept as a String costs a 24-byte String, a 16-byte array header
+ * and two bytes per char.  Here it costs the array header, one byte per
+ * ASCII char, and an int for the cached hash, so a set of Wikipedia URLs
+ * takes about half the memory of a HashSet<String>, which also makes an
+ * entry object per element.
+ *
+ * Lookups compare ASCII strings to the stored bytes directly, so checking
+ * a URL does not allocate.  The set is not synchronized.
+ *
+ */
+public class CompactStringSet {
+
+    // fraction of the slots that may be used before the table grows
+    private static final double LOAD_FACTOR = 0.75;
+
+    private byte[][] keys;
+    private int[] hashes;
+    private int size = 0;
+    private int threshold;
+
+    public CompactStringSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize number of strings to make room for
+     */
+    public CompactStringSet(int expectedSize) {
+        int capacity = Math.max(16, Integer.highestOneBit((int) (expectedSize / LOAD_FACTOR) - 1) << 1);
+        makeTable(capacity);
+    }
+
+    private void makeTable(int capacity) {
+        keys = new byte[capacity][];
+        hashes = new int[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the slot that holds `s`, or the empty slot where it would go.
+     */
+    private int findSlot(String s, int hash) {
+        int mask = keys.length - 1;
+        int i = hash & mask;
+        while (keys[i] != null) {
+            if (hashes[i] == hash && equalsUtf8(keys[i], s)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Adds `s` to the set.
+     *
+     * @param s
+     * @return true if it was not already there
+     */
+    public boolean add(String s) {
+        int hash = hash(s);
+        int i = findSlot(s, hash);
+        if (keys[i] != null) {
+            return false;
+        }
+        insert(i, s.getBytes(StandardCharsets.UTF_8), hash);
+        return true;
+    }
+
+    /**
+     * Adds a string the caller knows is not in the set, without comparing
+     * it to the strings already there.
+     *
+     * @param s
+     */
+    public void addNew(String s) {
+        int hash = hash(s);
+        int mask = keys.length - 1;
+        int i = hash & mask;
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        insert(i, s.getBytes(StandardCharsets.UTF_8), hash);
+    }
+
+    private void insert(int i, byte[] bytes, int hash) {
+        keys[i] = bytes;
+        hashes[i] = hash;
+        size++;
+        if (size > threshold) {
+            grow();
+        }
+    }
+
+    /**
+     * Doubles the table and puts every string back in.
+     */
+    private void grow() {
+        byte[][] oldKeys = keys;
+        int[] oldHashes = hashes;
+        makeTable(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = oldHashes[j] & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    /**
+     * Returns true if `s` is in the set.
+     *
+     * @param s
+     * @return
+     */
+    public boolean contains(String s) {
+        return keys[findSlot(s, hash(s))] != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the hash of `s`, mixed so the low bits can index the table.
+     */
+    private static int hash(String s) {
+        return (int) BloomFilter.hash(s);
+    }
+
+    /**
+     * Checks whether `bytes` is the UTF-8 encoding of `s`, without
+     * encoding `s` if it is ASCII.
+     */
+    private static boolean equalsUtf8(byte[] bytes, String s) {
+        int n = s.length();
+        if (bytes.length < n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                return Arrays.equals(bytes, s.getBytes(StandardCharsets.UTF_8));
+            }
+            if (bytes[i] != c) {
+                return false;
+            }
+        }
+        return bytes.length == n;
+    }
+}
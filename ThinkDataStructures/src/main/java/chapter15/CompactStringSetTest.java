@@ -0,0 +1,71 @@
+/**
+ *
+ */
+package chapter15;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class CompactStringSetTest {
+
+	private CompactStringSet set;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		set = new CompactStringSet();
+		set.add("https://en.wikipedia.org/wiki/Java_(programming_language)");
+		set.add("https://en.wikipedia.org/wiki/Programming_language");
+		set.add("https://en.wikipedia.org/wiki/G\u00f6del");
+	}
+
+	/**
+	 * Test method for {@link CompactStringSet#add(String)}.
+	 */
+	@Test
+	public void testAdd() {
+		assertThat(set.size(), is(3));
+		assertThat(set.add("https://en.wikipedia.org/wiki/Programming_language"), is(false));
+		assertThat(set.add("https://en.wikipedia.org/wiki/G\u00f6del"), is(false));
+		assertThat(set.add("https://en.wikipedia.org/wiki/Concurrent_computing"), is(true));
+		assertThat(set.size(), is(4));
+	}
+
+	/**
+	 * Test method for {@link CompactStringSet#contains(String)}.
+	 */
+	@Test
+	public void testContains() {
+		assertThat(set.contains("https://en.wikipedia.org/wiki/Java_(programming_language)"), is(true));
+		assertThat(set.contains("https://en.wikipedia.org/wiki/G\u00f6del"), is(true));
+		assertThat(set.contains("https://en.wikipedia.org/wiki/Godel"), is(false));
+		assertThat(set.contains("https://en.wikipedia.org/wiki/Programming"), is(false));
+		assertThat(set.contains(""), is(false));
+	}
+
+	/**
+	 * Test method for {@link CompactStringSet#addNew(String)}, and growing
+	 * the table.
+	 */
+	@Test
+	public void testGrow() {
+		for (int i = 0; i < 1000; i++) {
+			set.addNew("Page_" + i);
+		}
+		assertThat(set.size(), is(1003));
+		for (int i = 0; i < 1000; i++) {
+			assertThat(set.contains("Page_" + i), is(true));
+		}
+		assertThat(set.contains("Page_1000"), is(false));
+		assertThat(set.contains("https://en.wikipedia.org/wiki/G\u00f6del"), is(true));
+	}
+}
@@ -0,0 +1,362 @@
+package chapter15;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsoup.select.Elements;
+
+import chapter14.TermCounter;
+import redis.clients.jedis.Jedis;
+
+/**
+ * A crawler that fetches, parses and indexes several pages at once.
+ *
+ * WikiCrawler.crawl does one page at a time, so it spends most of its time
+ * waiting for the network.  Here the work is split into three stages:
+ *
+ * Fetch workers take URLs from a shared frontier and download the pages.
+ * They mostly wait, so there can be many more of them than cores; on a JVM
+ * with virtual threads each one is a virtual thread.
+ *
+ * A CPU pool, one thread per core, counts the terms of each page and adds
+ * its internal links to the frontier.
+ *
+ * One index writer thread adds the TermCounters to the index, so the index,
+ * like a JedisIndex with its single connection, is only written from one
+ * thread.
+ *
+ * The stages are joined by bounded queues.  When the writer falls behind,
+ * the queue in front of it fills and the CPU pool blocks; then the pool's
+ * own queue fills and the fetch workers have to parse pages themselves
+ * instead of fetching more.  So a slow index slows the whole crawl down
+ * rather than piling up pages in memory.
+ *
+ */
+public class ConcurrentWikiCrawler {
+
+    /**
+     * Reads a page and returns its paragraphs, like WikiFetcher.fetchWikipedia
+     * or readWikipedia.
+     */
+    public interface PageSource {
+        public Elements read(String url) throws IOException;
+    }
+
+    /**
+     * Where the crawler stores the pages.  `add` is only called from the
+     * index writer thread, but `isIndexed` is called from the fetch workers.
+     */
+    public interface PageIndex {
+        public boolean isIndexed(String url);
+
+        public void add(TermCounter counter);
+    }
+
+    // pages the CPU pool may have waiting for the index writer
+    private static final int INDEX_QUEUE_CAPACITY = 16;
+
+    // marks the end of the index queue
+    private static final TermCounter END = new TermCounter("");
+
+    private final PageSource pages;
+    private final PageIndex index;
+    private final int fetchWorkers;
+    private final int cpuThreads;
+
+    // URLs found but not taken by a fetch worker yet
+    private final BlockingQueue<String> frontier = new LinkedBlockingQueue<String>();
+
+    // URLs that have been put in the frontier, so each is fetched at most once
+    private final SeenUrlSet seen = new SeenUrlSet();
+
+    // URLs in the frontier plus pages that are still being fetched or parsed
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // pages handed to the CPU pool that haven't reached the index writer yet
+    private final AtomicInteger parsing = new AtomicInteger();
+
+    /**
+     * @param source URL to start from
+     * @param pages
+     * @param index
+     * @param fetchWorkers number of pages to fetch at once
+     */
+    public ConcurrentWikiCrawler(String source, PageSource pages, PageIndex index, int fetchWorkers) {
+        if (fetchWorkers < 1) {
+            throw new IllegalArgumentException("fetchWorkers must be positive");
+        }
+        this.pages = pages;
+        this.index = index;
+        this.fetchWorkers = fetchWorkers;
+        this.cpuThreads = Runtime.getRuntime().availableProcessors();
+        offer(source);
+    }
+
+    /**
+     * Returns a PageIndex that writes to `index`.  A Jedis connection can't
+     * be shared between threads, so the calls are synchronized.
+     *
+     * @param index
+     * @return
+     */
+    public static PageIndex jedisIndex(JedisIndex index) {
+        return new PageIndex() {
+            @Override
+            public synchronized boolean isIndexed(String url) {
+                return index.isIndexed(url);
+            }
+
+            @Override
+            public synchronized void add(TermCounter counter) {
+                index.pushTermCounterToRedis(counter);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of URLs in the frontier.
+     *
+     * @return
+     */
+    public int queueSize() {
+        return frontier.size();
+    }
+
+    /**
+     * Adds a URL to the frontier, unless it has been added before.
+     *
+     * @param url
+     */
+    void offer(String url) {
+        if (seen.add(url)) {
+            pending.incrementAndGet();
+            frontier.add(url);
+        }
+    }
+
+    /**
+     * Crawls until `limit` pages have been indexed or there are no URLs
+     * left, and returns the URLs indexed, in the order they were indexed.
+     *
+     * URLs still in the frontier at the end stay there, so calling crawl
+     * again carries on where this call stopped.
+     *
+     * @param limit
+     * @return
+     * @throws InterruptedException
+     */
+    public List<String> crawl(int limit) throws InterruptedException {
+        List<String> indexed = new ArrayList<String>();
+        AtomicInteger remaining = new AtomicInteger(limit);
+        AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+        BlockingQueue<TermCounter> indexQueue = new ArrayBlockingQueue<TermCounter>(INDEX_QUEUE_CAPACITY);
+
+        Thread writer = newThreadFactory("crawler-index").newThread(() -> {
+            while (true) {
+                TermCounter counter;
+                try {
+                    counter = indexQueue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (counter == END) {
+                    return;
+                }
+                try {
+                    index.add(counter);
+                    indexed.add(counter.getLabel());
+                } catch (RuntimeException e) {
+                    // keep draining the queue, so the other stages can finish
+                    failure.compareAndSet(null, e);
+                }
+            }
+        });
+        writer.start();
+
+        ThreadPoolExecutor cpuPool = new ThreadPoolExecutor(cpuThreads, cpuThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(2 * cpuThreads), newThreadFactory("crawler-parse"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        ExecutorService fetchPool = newFetchExecutor(fetchWorkers);
+        for (int i = 0; i < fetchWorkers; i++) {
+            fetchPool.execute(() -> fetchLoop(remaining, failure, cpuPool, indexQueue));
+        }
+
+        // let the stages drain in order
+        fetchPool.shutdown();
+        try {
+            fetchPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            cpuPool.shutdown();
+            cpuPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            indexQueue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            fetchPool.shutdownNow();
+            cpuPool.shutdownNow();
+            writer.interrupt();
+            throw e;
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return indexed;
+    }
+
+    /**
+     * Takes URLs from the frontier and fetches them until the limit is
+     * reached, there is no more work or a stage has failed.
+     */
+    private void fetchLoop(AtomicInteger remaining, AtomicReference<RuntimeException> failure,
+            ExecutorService cpuPool, BlockingQueue<TermCounter> indexQueue) {
+        while (failure.get() == null && !Thread.currentThread().isInterrupted()) {
+            if (remaining.get() <= 0) {
+                if (parsing.get() == 0) {
+                    return;
+                }
+                // a page still being parsed may fail and give its place back
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                continue;
+            }
+            String url;
+            try {
+                url = frontier.poll(10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (url == null) {
+                if (pending.get() == 0) {
+                    // nothing queued and nothing in flight that could add more
+                    return;
+                }
+                continue;
+            }
+            boolean indexed;
+            try {
+                indexed = index.isIndexed(url);
+            } catch (RuntimeException e) {
+                // the index is broken, so stop every worker; crawl throws e
+                failure.compareAndSet(null, e);
+                frontier.add(url);
+                return;
+            }
+            if (indexed) {
+                pending.decrementAndGet();
+                continue;
+            }
+            if (remaining.getAndDecrement() <= 0) {
+                // another worker took the last page; leave this one for later
+                remaining.incrementAndGet();
+                frontier.add(url);
+                continue;
+            }
+
+            Elements paragraphs;
+            try {
+                paragraphs = pages.read(url);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Warning: could not read " + url + ": " + e);
+                remaining.incrementAndGet();
+                pending.decrementAndGet();
+                continue;
+            }
+            parsing.incrementAndGet();
+            cpuPool.execute(() -> parse(url, paragraphs, remaining, indexQueue));
+        }
+    }
+
+    /**
+     * Counts the terms of a page, queues its links and hands it to the
+     * index writer, waiting if the writer is behind.
+     *
+     * This can run on a fetch worker (see CallerRunsPolicy), so it never
+     * throws.  A page that doesn't reach the writer gives its place in the
+     * limit back, as a page that can't be read does.
+     */
+    private void parse(String url, Elements paragraphs, AtomicInteger remaining,
+            BlockingQueue<TermCounter> indexQueue) {
+        boolean queued = false;
+        boolean interrupted = false;
+        try {
+            TermCounter counter = new TermCounter(url);
+            counter.processElements(paragraphs);
+            for (String link : WikiCrawler.internalLinks(paragraphs)) {
+                offer(link);
+            }
+            indexQueue.put(counter);
+            queued = true;
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } catch (RuntimeException e) {
+            System.err.println("Warning: could not parse " + url + ": " + e);
+        } finally {
+            if (!queued) {
+                remaining.incrementAndGet();
+            }
+            parsing.decrementAndGet();
+            pending.decrementAndGet();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns an executor for the fetch workers: a virtual thread for each
+     * worker if this JVM has them, and a pool of daemon threads if not.
+     */
+    private static ExecutorService newFetchExecutor(int workers) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(workers, newThreadFactory("crawler-fetch"));
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Jedis jedis = JedisMaker.make();
+        JedisIndex index = new JedisIndex(jedis);
+        String source = "https://en.wikipedia.org/wiki/Java_(programming_language)";
+        // one request a second to each host, with bursts of up to four
+        WikiFetcher wf = new WikiFetcher(new PolitenessScheduler(1, 4));
+
+        ConcurrentWikiCrawler crawler = new ConcurrentWikiCrawler(source, wf::fetchWikipedia, jedisIndex(index), 8);
+        List<String> urls = crawler.crawl(10);
+        System.out.println("Indexed " + urls);
+        System.out.println("Throttled for " + wf.getScheduler().throttledMillis() + " ms");
+
+        Map<String, Integer> map = index.getCounts("the");
+        for (Entry<String, Integer> entry : map.entrySet()) {
+            System.out.println(entry);
+        }
+        jedis.close();
+    }
+}
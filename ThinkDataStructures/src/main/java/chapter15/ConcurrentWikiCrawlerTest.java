@@ -0,0 +1,250 @@
+/**
+ *
+ */
+package chapter15;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jsoup.Jsoup;
+import org.jsoup.select.Elements;
+import org.junit.Before;
+import org.junit.Test;
+
+import chapter14.TermCounter;
+
+/**
+ * Crawls a made-up wiki held in memory, so the test needs neither the
+ * network nor Redis.
+ *
+ * @author downey
+ *
+ */
+public class ConcurrentWikiCrawlerTest {
+
+	private static final int PAGES = 200;
+
+	private Map<String, TermCounter> stored;
+	private ConcurrentWikiCrawler.PageIndex index;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		stored = new ConcurrentHashMap<String, TermCounter>();
+		index = new ConcurrentWikiCrawler.PageIndex() {
+			@Override
+			public boolean isIndexed(String url) {
+				return stored.containsKey(url);
+			}
+
+			@Override
+			public void add(TermCounter counter) {
+				TermCounter old = stored.put(counter.getLabel(), counter);
+				assertThat(old, nullValue());
+			}
+		};
+	}
+
+	/**
+	 * Returns the URL of page `i`.
+	 */
+	static String url(int i) {
+		return "https://en.wikipedia.org/wiki/Page_" + i;
+	}
+
+	/**
+	 * Returns the HTML of page `i`: two paragraphs, each linking to a few
+	 * other pages, so every page can be reached from page 0.
+	 */
+	static String html(int i, int pages) {
+		StringBuilder sb = new StringBuilder("<html><body><div id=\"mw-content-text\">");
+		for (int p = 0; p < 2; p++) {
+			sb.append("<p>Page ").append(i).append(" says the word page");
+			for (int k = 1; k <= 3; k++) {
+				int target = (i * 3 + p * 3 + k) % pages;
+				sb.append(" <a href=\"/wiki/Page_").append(target).append("\">link</a>");
+			}
+			sb.append(" and <a href=\"https://example.com/\">an external one</a>.</p>");
+		}
+		return sb.append("</div></body></html>").toString();
+	}
+
+	/**
+	 * Parses page `i` the way WikiFetcher does.
+	 */
+	static Elements paragraphs(String url, int pages) {
+		int i = Integer.parseInt(url.substring(url.lastIndexOf('_') + 1));
+		return Jsoup.parse(html(i, pages)).getElementById("mw-content-text").select("p");
+	}
+
+	/**
+	 * Every reachable page should be indexed exactly once.
+	 */
+	@Test
+	public void testCrawlEverything() throws InterruptedException {
+		ConcurrentWikiCrawler crawler = new ConcurrentWikiCrawler(url(0), url -> paragraphs(url, PAGES), index, 8);
+		List<String> indexed = crawler.crawl(Integer.MAX_VALUE);
+
+		assertThat(indexed.size(), is(PAGES));
+		assertThat(new HashSet<String>(indexed).size(), is(PAGES));
+		assertThat(stored.size(), is(PAGES));
+		assertThat(indexed.get(0), is(url(0)));
+		assertThat(crawler.queueSize(), is(0));
+
+		TermCounter counter = stored.get(url(7));
+		assertThat(counter.get("page"), is(4));
+		assertThat(counter.get("says"), is(2));
+	}
+
+	/**
+	 * The limit should stop the crawl, and the next call should go on.
+	 */
+	@Test
+	public void testLimit() throws InterruptedException {
+		ConcurrentWikiCrawler crawler = new ConcurrentWikiCrawler(url(0), url -> paragraphs(url, PAGES), index, 4);
+		List<String> first = crawler.crawl(10);
+		assertThat(first.size(), is(10));
+		assertThat(crawler.queueSize() > 0, is(true));
+
+		List<String> rest = crawler.crawl(Integer.MAX_VALUE);
+		assertThat(first.size() + rest.size(), is(PAGES));
+		assertThat(stored.size(), is(PAGES));
+	}
+
+	/**
+	 * A page that can't be read is skipped, and pages already in the index
+	 * are not fetched again.
+	 */
+	@Test
+	public void testSkippedPages() throws InterruptedException {
+		stored.put(url(1), new TermCounter(url(1)));
+		Map<String, Integer> reads = new ConcurrentHashMap<String, Integer>();
+		ConcurrentWikiCrawler crawler = new ConcurrentWikiCrawler(url(0), url -> {
+			reads.merge(url, 1, Integer::sum);
+			if (url.equals(url(2))) {
+				throw new IOException("not found");
+			}
+			return paragraphs(url, PAGES);
+		}, index, 4);
+
+		List<String> indexed = crawler.crawl(Integer.MAX_VALUE);
+		assertThat(indexed.contains(url(1)), is(false));
+		assertThat(indexed.contains(url(2)), is(false));
+		assertThat(reads.containsKey(url(1)), is(false));
+		for (int count : reads.values()) {
+			assertThat(count, is(1));
+		}
+		assertThat(stored.size(), is(PAGES - 1));
+	}
+
+	/**
+	 * A page that fails to parse is skipped and doesn't count towards the
+	 * limit; the crawl still finishes.
+	 */
+	@Test(timeout = 20000)
+	public void testParseFailure() throws InterruptedException {
+		Elements broken = new Elements();
+		broken.add(null);
+		ConcurrentWikiCrawler crawler = new ConcurrentWikiCrawler(url(0),
+				url -> url.equals(url(2)) ? broken : paragraphs(url, PAGES), index, 4);
+
+		List<String> first = crawler.crawl(10);
+		assertThat(first.size(), is(10));
+		assertThat(first.contains(url(2)), is(false));
+
+		List<String> rest = crawler.crawl(Integer.MAX_VALUE);
+		assertThat(rest.contains(url(2)), is(false));
+		assertThat(stored.size(), is(PAGES - 1));
+	}
+
+	/**
+	 * An index that fails when asked about a page should stop the crawl
+	 * with its exception, not leave it waiting for the page forever.
+	 */
+	@Test(timeout = 20000)
+	public void testIsIndexedFailure() throws InterruptedException {
+		RuntimeException broken = new IllegalStateException("connection lost");
+		ConcurrentWikiCrawler.PageIndex failing = new ConcurrentWikiCrawler.PageIndex() {
+			@Override
+			public boolean isIndexed(String url) {
+				if (url.equals(url(5))) {
+					throw broken;
+				}
+				return index.isIndexed(url);
+			}
+
+			@Override
+			public void add(TermCounter counter) {
+				index.add(counter);
+			}
+		};
+		ConcurrentWikiCrawler crawler = new ConcurrentWikiCrawler(url(0), url -> paragraphs(url, PAGES), failing, 4);
+		try {
+			crawler.crawl(Integer.MAX_VALUE);
+			assert(false);
+		} catch (IllegalStateException e) {
+			assertThat(e, sameInstance(broken));
+		}
+		assertThat(stored.containsKey(url(5)), is(false));
+		// the page stays in the frontier for the next crawl
+		assertThat(crawler.queueSize() > 0, is(true));
+	}
+
+	/**
+	 * A slow index should slow the crawl down, not break it.
+	 */
+	@Test
+	public void testSlowIndex() throws InterruptedException {
+		ConcurrentWikiCrawler.PageIndex slow = new ConcurrentWikiCrawler.PageIndex() {
+			@Override
+			public boolean isIndexed(String url) {
+				return index.isIndexed(url);
+			}
+
+			@Override
+			public void add(TermCounter counter) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				index.add(counter);
+			}
+		};
+		ConcurrentWikiCrawler crawler = new ConcurrentWikiCrawler(url(0), url -> paragraphs(url, PAGES), slow, 16);
+		assertThat(crawler.crawl(Integer.MAX_VALUE).size(), is(PAGES));
+	}
+
+	/**
+	 * A URL should go in the frontier only the first time it is offered.
+	 */
+	@Test
+	public void testOfferOnce() {
+		ConcurrentWikiCrawler crawler = new ConcurrentWikiCrawler(url(0), url -> paragraphs(url, PAGES), index, 4);
+		crawler.offer(url(0));
+		assertThat(crawler.queueSize(), is(1));
+
+		crawler.offer(url(1));
+		crawler.offer(url(1));
+		assertThat(crawler.queueSize(), is(2));
+	}
+
+	/**
+	 * Test method for {@link WikiCrawler#internalLinks(Elements)}.
+	 */
+	@Test
+	public void testInternalLinks() {
+		List<String> links = WikiCrawler.internalLinks(paragraphs(url(0), PAGES));
+		assertThat(links.size(), is(6));
+		assertThat(links.get(0), is(url(1)));
+		assertThat(links.get(5), is(url(6)));
+	}
+}
@@ -0,0 +1,439 @@
+package chapter15;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jsoup.HttpStatusException;
+
+/**
+ * A cache of downloaded pages on disk, so recrawling a page doesn't
+ * download it again.
+ *
+ * Each page is stored under the SHA-256 of its URL, as two files: the
+ * body, gzipped, and a small properties file with the URL, the ETag and
+ * Last-Modified headers, the charset and when the page was last checked.
+ * If the server sends the body gzipped, it is stored as it came.
+ *
+ * A page checked less than `ttlMillis` ago is served from disk without
+ * the network.  An older one is checked with a conditional GET; if the
+ * server answers 304 Not Modified, the copy on disk is served and nothing
+ * is downloaded.
+ *
+ * The files are kept under `maxBytes` in total by deleting the least
+ * recently used pages.  The order of use is kept in a LinkedHashMap in
+ * access order, and on disk as the modification time of the properties
+ * files, so a new cache on the same directory starts with the same order.
+ *
+ * Requests go through a PolitenessScheduler, but pages served from disk
+ * don't wait for it.  The cache can be shared by several threads.
+ *
+ */
+public class HttpCache {
+
+    private static final int TIMEOUT_MILLIS = 30000;
+
+    private final File dir;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final PolitenessScheduler scheduler;
+    private final LongSupplier clock;
+
+    // size of each page's files, by key, least recently used first
+    private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<String, Long>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long evictions = 0;
+
+    /**
+     * @param dir directory for the files; it is created if needed
+     * @param maxBytes most space the files may take
+     * @param ttlMillis how long a page is served without checking it
+     * @param scheduler limits the requests to each host
+     * @throws IOException
+     */
+    public HttpCache(File dir, long maxBytes, long ttlMillis, PolitenessScheduler scheduler) throws IOException {
+        this(dir, maxBytes, ttlMillis, scheduler, System::currentTimeMillis);
+    }
+
+    /**
+     * @param dir
+     * @param maxBytes
+     * @param ttlMillis
+     * @param scheduler
+     * @param clock returns the time in milliseconds
+     * @throws IOException
+     */
+    HttpCache(File dir, long maxBytes, long ttlMillis, PolitenessScheduler scheduler, LongSupplier clock)
+            throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        Files.createDirectories(dir.toPath());
+        load();
+    }
+
+    /**
+     * Reads the sizes of the pages already in the directory, oldest use
+     * first.
+     */
+    private void load() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".properties"));
+        List<File> metas = new ArrayList<File>();
+        for (File meta : files) {
+            metas.add(meta);
+        }
+        metas.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File meta : metas) {
+            String key = meta.getName().substring(0, meta.getName().length() - ".properties".length());
+            File body = bodyFile(key);
+            if (body.exists()) {
+                long size = meta.length() + body.length();
+                sizes.put(key, size);
+                totalBytes += size;
+            } else {
+                meta.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the body of the page at `url`, from disk if the copy there
+     * is fresh or the server says it has not changed.
+     *
+     * @param url
+     * @return
+     * @throws IOException if the page can't be downloaded
+     */
+    public String get(String url) throws IOException {
+        String key = key(url);
+        Properties meta = readMeta(key);
+        long now = clock.getAsLong();
+
+        if (meta != null && now - Long.parseLong(meta.getProperty("checked")) < ttlMillis) {
+            String body = readBody(key, meta);
+            if (body != null) {
+                touch(key);
+                hits.incrementAndGet();
+                return body;
+            }
+        }
+
+        HttpURLConnection conn = open(url, meta);
+        try {
+            int status = conn.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && meta != null) {
+                meta.setProperty("checked", Long.toString(now));
+                // a 304 may carry new validators for the same body
+                putValidators(meta, conn);
+                synchronized (this) {
+                    String body = readBody(key, meta);
+                    if (body != null) {
+                        writeMeta(key, meta);
+                        evict(key);
+                        revalidations.incrementAndGet();
+                        return body;
+                    }
+                }
+                // the body was evicted while we asked, so ask again without the validators
+                conn.disconnect();
+                conn = open(url, null);
+                status = conn.getResponseCode();
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new HttpStatusException("HTTP error fetching URL", status, url);
+            }
+            String body = store(key, url, conn, now);
+            misses.incrementAndGet();
+            return body;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Opens a GET request for `url`, conditional if there is a copy on
+     * disk, after waiting for the scheduler.
+     */
+    private HttpURLConnection open(String url, Properties meta) throws IOException {
+        URL realURL = new URL(url);
+        try {
+            scheduler.acquire(realURL.getHost());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting to fetch from " + realURL.getHost());
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) realURL.openConnection();
+        conn.setConnectTimeout(TIMEOUT_MILLIS);
+        conn.setReadTimeout(TIMEOUT_MILLIS);
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        if (meta != null) {
+            if (meta.getProperty("etag") != null) {
+                conn.setRequestProperty("If-None-Match", meta.getProperty("etag"));
+            }
+            if (meta.getProperty("lastModified") != null) {
+                conn.setRequestProperty("If-Modified-Since", meta.getProperty("lastModified"));
+            }
+        }
+        return conn;
+    }
+
+    /**
+     * Writes the response to disk, gzipped, and returns the body.
+     */
+    private String store(String key, String url, HttpURLConnection conn, long now) throws IOException {
+        File temp = File.createTempFile(key, ".tmp", dir);
+        try {
+            try (InputStream in = conn.getInputStream();
+                 OutputStream out = new FileOutputStream(temp)) {
+                if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+                    copy(in, out);
+                } else {
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                        copy(in, gzip);
+                    }
+                }
+            }
+
+            Properties meta = new Properties();
+            meta.setProperty("url", url);
+            meta.setProperty("checked", Long.toString(now));
+            meta.setProperty("charset", charset(conn.getContentType()));
+            putValidators(meta, conn);
+
+            synchronized (this) {
+                Files.move(temp.toPath(), bodyFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                writeMeta(key, meta);
+                evict(key);
+                return readBody(key, meta);
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Copies the ETag and Last-Modified headers of a response, if it has
+     * them, into a page's properties.
+     */
+    private static void putValidators(Properties meta, HttpURLConnection conn) {
+        if (conn.getHeaderField("ETag") != null) {
+            meta.setProperty("etag", conn.getHeaderField("ETag"));
+        }
+        if (conn.getHeaderField("Last-Modified") != null) {
+            meta.setProperty("lastModified", conn.getHeaderField("Last-Modified"));
+        }
+    }
+
+    /**
+     * Writes a page's properties and updates its size and place in the
+     * order of use.
+     */
+    private synchronized void writeMeta(String key, Properties meta) throws IOException {
+        File temp = File.createTempFile(key, ".tmp", dir);
+        try (OutputStream out = new FileOutputStream(temp)) {
+            meta.store(out, null);
+        }
+        File file = metaFile(key);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        file.setLastModified(clock.getAsLong());
+
+        Long old = sizes.remove(key);
+        if (old != null) {
+            totalBytes -= old;
+        }
+        long size = file.length() + bodyFile(key).length();
+        sizes.put(key, size);
+        totalBytes += size;
+    }
+
+    /**
+     * Deletes the least recently used pages until the files fit, or only
+     * the page just stored, `keep`, is left.
+     */
+    private synchronized void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> it = sizes.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            metaFile(entry.getKey()).delete();
+            bodyFile(entry.getKey()).delete();
+            totalBytes -= entry.getValue();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Marks a page as just used.
+     */
+    private synchronized void touch(String key) {
+        if (sizes.get(key) != null) {
+            metaFile(key).setLastModified(clock.getAsLong());
+        }
+    }
+
+    /**
+     * Returns the properties of a page, or null if it is not on disk.
+     */
+    private Properties readMeta(String key) throws IOException {
+        Properties meta = new Properties();
+        try (InputStream in = new FileInputStream(metaFile(key))) {
+            meta.load(in);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        return meta;
+    }
+
+    /**
+     * Returns the body of a page, or null if it has been evicted.
+     */
+    private String readBody(String key, Properties meta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(bodyFile(key)))) {
+            copy(in, bytes);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        return new String(bytes.toByteArray(), Charset.forName(meta.getProperty("charset")));
+    }
+
+    private File bodyFile(String key) {
+        return new File(dir, key + ".gz");
+    }
+
+    private File metaFile(String key) {
+        return new File(dir, key + ".properties");
+    }
+
+    /**
+     * Returns the file name for `url`: the hex SHA-256 of the URL.
+     */
+    static String key(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the charset named in a Content-Type header, or UTF-8.
+     */
+    private static String charset(String contentType) {
+        if (contentType != null) {
+            for (String param : contentType.split(";")) {
+                param = param.trim();
+                if (param.toLowerCase().startsWith("charset=")) {
+                    String name = param.substring("charset=".length()).replace("\"", "");
+                    if (Charset.isSupported(name)) {
+                        return name;
+                    }
+                }
+            }
+        }
+        return "UTF-8";
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+    }
+
+    /**
+     * Returns the scheduler that limits this cache's requests.
+     *
+     * @return
+     */
+    public PolitenessScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Returns the number of pages served from disk without a request.
+     *
+     * @return
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of pages served from disk after a 304.
+     *
+     * @return
+     */
+    public long revalidations() {
+        return revalidations.get();
+    }
+
+    /**
+     * Returns the number of pages downloaded.
+     *
+     * @return
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of pages deleted to make room.
+     *
+     * @return
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the space the files take.
+     *
+     * @return
+     */
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ *
+ */
+package chapter15;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.select.Elements;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the cache against a local HTTP server that counts its requests.
+ *
+ * @author downey
+ *
+ */
+public class HttpCacheTest {
+
+	private static final long TTL = 60000;
+
+	private HttpServer server;
+	private String base;
+	private File dir;
+	private AtomicLong now;
+	private HttpCache cache;
+
+	// what the server sends for each path, and how often it sent it
+	private Map<String, String> pages;
+	private Map<String, Integer> downloads;
+	private Map<String, Integer> notModified;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		pages = new ConcurrentHashMap<String, String>();
+		downloads = new ConcurrentHashMap<String, Integer>();
+		notModified = new ConcurrentHashMap<String, Integer>();
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+		base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+		dir = Files.createTempDirectory("http-cache").toFile();
+		now = new AtomicLong(System.currentTimeMillis());
+		cache = newCache(1 << 20);
+	}
+
+	private HttpCache newCache(long maxBytes) throws IOException {
+		return new HttpCache(dir, maxBytes, TTL, new PolitenessScheduler(1000, 1000), now::get);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop(0);
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Serves `pages`, with an ETag for paths under /etag/ and a
+	 * Last-Modified date for the others, and gzipped if the path ends in .gz.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		String body = pages.get(path);
+		if (body == null) {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+
+		String version = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+		String date = "Mon, 1 Jan 2024 00:00:" + String.format("%02d", Math.abs(body.hashCode()) % 60) + " GMT";
+		boolean etag = path.startsWith("/etag/");
+		String validator = etag ? exchange.getRequestHeaders().getFirst("If-None-Match")
+				: exchange.getRequestHeaders().getFirst("If-Modified-Since");
+		if ((etag ? version : date).equals(validator)) {
+			notModified.merge(path, 1, Integer::sum);
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return;
+		}
+
+		downloads.merge(path, 1, Integer::sum);
+		exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+		exchange.getResponseHeaders().set(etag ? "ETag" : "Last-Modified", etag ? version : date);
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		if (path.endsWith(".gz")) {
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+				out.write(bytes);
+			}
+		} else {
+			exchange.sendResponseHeaders(200, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	private static String page(String title) {
+		return "<html><body><div id=\"mw-content-text\"><p>" + title
+				+ " is a page about caf\u00e9s.</p></div></body></html>";
+	}
+
+	/**
+	 * Test method for {@link HttpCache#get(String)}.
+	 */
+	@Test
+	public void testHit() throws IOException {
+		pages.put("/etag/Java", page("Java"));
+
+		assertThat(cache.get(base + "/etag/Java"), is(page("Java")));
+		assertThat(cache.get(base + "/etag/Java"), is(page("Java")));
+		assertThat(downloads.get("/etag/Java"), is(1));
+		assertThat(notModified.containsKey("/etag/Java"), is(false));
+		assertThat(cache.misses(), is(1L));
+		assertThat(cache.hits(), is(1L));
+
+		// a new cache on the same directory has the page too
+		HttpCache again = newCache(1 << 20);
+		assertThat(again.get(base + "/etag/Java"), is(page("Java")));
+		assertThat(again.hits(), is(1L));
+		assertThat(again.totalBytes(), is(cache.totalBytes()));
+	}
+
+	/**
+	 * After the TTL the cache should ask the server, and download the page
+	 * only if it has changed.
+	 */
+	@Test
+	public void testRevalidate() throws IOException {
+		pages.put("/etag/Java", page("Java"));
+		pages.put("/Python", page("Python"));
+		cache.get(base + "/etag/Java");
+		cache.get(base + "/Python");
+
+		now.addAndGet(TTL);
+		assertThat(cache.get(base + "/etag/Java"), is(page("Java")));
+		assertThat(cache.get(base + "/Python"), is(page("Python")));
+		assertThat(notModified.get("/etag/Java"), is(1));
+		assertThat(notModified.get("/Python"), is(1));
+		assertThat(cache.revalidations(), is(2L));
+
+		// the check starts the TTL again
+		cache.get(base + "/etag/Java");
+		assertThat(notModified.get("/etag/Java"), is(1));
+
+		now.addAndGet(TTL);
+		pages.put("/etag/Java", page("Java 2"));
+		assertThat(cache.get(base + "/etag/Java"), is(page("Java 2")));
+		assertThat(downloads.get("/etag/Java"), is(2));
+	}
+
+	/**
+	 * Serves the same page under /rotating/ and answers every conditional
+	 * request with a 304 carrying a new ETag, `growth` characters longer
+	 * than the last one.
+	 */
+	private List<String> rotatingServer(int growth) {
+		List<String> validators = new ArrayList<String>();
+		server.createContext("/rotating/", exchange -> {
+			String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+			validators.add(validator);
+			char[] padding = new char[growth * (validators.size() - 1)];
+			Arrays.fill(padding, 'x');
+			exchange.getResponseHeaders().set("ETag", "\"v" + validators.size() + new String(padding) + "\"");
+			if (validator != null) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+			byte[] bytes = page("Rotating").getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+			exchange.sendResponseHeaders(200, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		});
+		return validators;
+	}
+
+	/**
+	 * A 304 that sends new validators should replace the stored ones.
+	 */
+	@Test
+	public void testRevalidateNewValidators() throws IOException {
+		List<String> validators = rotatingServer(0);
+		cache.get(base + "/rotating/Java");
+		now.addAndGet(TTL);
+		assertThat(cache.get(base + "/rotating/Java"), is(page("Rotating")));
+		now.addAndGet(TTL);
+		assertThat(cache.get(base + "/rotating/Java"), is(page("Rotating")));
+
+		assertThat(validators, is(Arrays.asList(null, "\"v1\"", "\"v2\"")));
+		assertThat(cache.revalidations(), is(2L));
+	}
+
+	/**
+	 * Rewriting the properties after a 304 can make the files too big, so
+	 * it should evict too.
+	 */
+	@Test
+	public void testEvictAfterRevalidate() throws IOException {
+		rotatingServer(200);
+		cache.get(base + "/rotating/Java");
+		now.addAndGet(1000);
+		pages.put("/etag/Python", page("Python"));
+		cache.get(base + "/etag/Python");
+
+		long max = cache.totalBytes() + 100;
+		cache = newCache(max);
+		now.addAndGet(TTL);
+		assertThat(cache.get(base + "/rotating/Java"), is(page("Rotating")));
+		assertThat(cache.evictions(), is(1L));
+		assertThat(cache.totalBytes() <= max, is(true));
+
+		cache.get(base + "/etag/Python");
+		assertThat(downloads.get("/etag/Python"), is(2));
+	}
+
+	/**
+	 * A gzipped response should be stored as it came and read back.
+	 */
+	@Test
+	public void testGzip() throws IOException {
+		pages.put("/etag/Java.gz", page("Java"));
+		assertThat(cache.get(base + "/etag/Java.gz"), is(page("Java")));
+		assertThat(cache.get(base + "/etag/Java.gz"), is(page("Java")));
+		assertThat(downloads.get("/etag/Java.gz"), is(1));
+	}
+
+	/**
+	 * When the files don't fit, the least recently used page should go.
+	 */
+	@Test
+	public void testEvict() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			pages.put("/etag/Page_" + i, page("Page " + i));
+			cache.get(base + "/etag/Page_" + i);
+			now.addAndGet(1000);
+		}
+		long each = cache.totalBytes() / 3;
+
+		// room for three pages; using page 0 makes page 1 the oldest
+		cache = newCache(3 * each + each / 2);
+		cache.get(base + "/etag/Page_0");
+		pages.put("/etag/Page_3", page("Page 3"));
+		cache.get(base + "/etag/Page_3");
+
+		assertThat(cache.evictions(), is(1L));
+		assertThat(cache.totalBytes() <= 3 * each + each / 2, is(true));
+		cache.get(base + "/etag/Page_0");
+		cache.get(base + "/etag/Page_2");
+		assertThat(downloads.get("/etag/Page_0"), is(1));
+		assertThat(downloads.get("/etag/Page_2"), is(1));
+
+		cache.get(base + "/etag/Page_1");
+		assertThat(downloads.get("/etag/Page_1"), is(2));
+	}
+
+	/**
+	 * A page the server doesn't have should throw, and not be stored.
+	 */
+	@Test(expected = HttpStatusException.class)
+	public void testNotFound() throws IOException {
+		cache.get(base + "/etag/Missing");
+	}
+
+	/**
+	 * Test method for {@link WikiFetcher#fetchWikipedia(String)} with a cache.
+	 */
+	@Test
+	public void testFetchWikipedia() throws IOException {
+		pages.put("/wiki/Java", page("Java"));
+		WikiFetcher wf = new WikiFetcher(cache);
+		Elements paragraphs = wf.fetchWikipedia(base + "/wiki/Java");
+		assertThat(paragraphs.size(), is(1));
+		assertThat(paragraphs.text(), is("Java is a page about caf\u00e9s."));
+
+		wf.fetchWikipedia(base + "/wiki/Java");
+		assertThat(downloads.get("/wiki/Java"), is(1));
+	}
+}
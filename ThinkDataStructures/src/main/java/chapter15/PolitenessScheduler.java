@@ -0,0 +1,207 @@
+package chapter15;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import chapter11.MyConcurrentHashMap;
+
+/**
+ * Limits how fast a crawler sends requests to each host, with a token
+ * bucket per host.
+ *
+ * A bucket holds up to `burst` tokens and gains `permitsPerSecond` of
+ * them a second; each request takes one.  So after a quiet spell a host
+ * gets `burst` requests at once, and after that one every
+ * 1/permitsPerSecond seconds.  Hosts don't share buckets, so a slow host
+ * doesn't hold up the others.
+ *
+ * A request that finds the bucket empty still gets a token, from the
+ * future: `reserve` returns how long the caller has to wait before using
+ * it, and later callers queue up behind.  Nothing here sleeps except
+ * `acquire`, so threads can reserve at the same time without a lock, and
+ * between them they use all of the allowed rate and no more.
+ *
+ * The bucket is kept as one number, the time its next token is due, as in
+ * the generic cell rate algorithm: a request at time `now` gets its token
+ * at max(now, due - (burst-1) * interval), and the due time moves on by
+ * one interval.
+ *
+ */
+public class PolitenessScheduler {
+
+    private static final ScheduledExecutorService TIMER = newTimer();
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier clock;
+
+    private final Map<String, Bucket> buckets = new MyConcurrentHashMap<String, Bucket>();
+
+    private final AtomicLong throttledNanos = new AtomicLong();
+    private final AtomicLong throttledRequests = new AtomicLong();
+
+    /**
+     * The state of one host.
+     */
+    private static class Bucket {
+        // when the next token is due, by the clock
+        final AtomicLong due;
+        final AtomicLong throttledNanos = new AtomicLong();
+
+        Bucket(long now) {
+            due = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * @param permitsPerSecond long-run request rate for each host
+     * @param burst number of requests a host can get at once
+     */
+    public PolitenessScheduler(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /**
+     * @param permitsPerSecond
+     * @param burst
+     * @param clock returns the time in nanoseconds
+     */
+    PolitenessScheduler(double permitsPerSecond, int burst, LongSupplier clock) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = (burst - 1) * intervalNanos;
+        this.clock = clock;
+    }
+
+    private Bucket bucket(String host) {
+        return buckets.computeIfAbsent(host, h -> new Bucket(clock.getAsLong()));
+    }
+
+    /**
+     * Takes a token for `host` and returns how long to wait before
+     * sending the request, in nanoseconds; 0 means send it now.
+     *
+     * @param host
+     * @return
+     */
+    public long reserve(String host) {
+        Bucket bucket = bucket(host);
+        long now = clock.getAsLong();
+        while (true) {
+            long due = bucket.due.get();
+            long start = Math.max(now, due - burstNanos);
+            long next = Math.max(due, now) + intervalNanos;
+            if (bucket.due.compareAndSet(due, next)) {
+                long delay = start - now;
+                if (delay > 0) {
+                    bucket.throttledNanos.addAndGet(delay);
+                    throttledNanos.addAndGet(delay);
+                    throttledRequests.incrementAndGet();
+                }
+                return delay;
+            }
+        }
+    }
+
+    /**
+     * Takes a token for `host` only if one is available now.
+     *
+     * @param host
+     * @return true if the request can be sent now
+     */
+    public boolean tryAcquire(String host) {
+        Bucket bucket = bucket(host);
+        long now = clock.getAsLong();
+        while (true) {
+            long due = bucket.due.get();
+            if (due - burstNanos > now) {
+                return false;
+            }
+            if (bucket.due.compareAndSet(due, Math.max(due, now) + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes a token for `host` and returns a future that completes when
+     * the request can be sent.
+     *
+     * @param host
+     * @return
+     */
+    public CompletableFuture<Void> acquireAsync(String host) {
+        long delay = reserve(host);
+        CompletableFuture<Void> future = new CompletableFuture<Void>();
+        if (delay <= 0) {
+            future.complete(null);
+        } else {
+            TIMER.schedule(() -> future.complete(null), delay, TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Takes a token for `host`, sleeping until the request can be sent.
+     *
+     * @param host
+     * @throws InterruptedException
+     */
+    public void acquire(String host) throws InterruptedException {
+        long delay = reserve(host);
+        if (delay > 0) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+    }
+
+    /**
+     * Returns the total time requests have been told to wait, in
+     * milliseconds.
+     *
+     * @return
+     */
+    public long throttledMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos.get());
+    }
+
+    /**
+     * Returns the total time requests to `host` have been told to wait, in
+     * milliseconds.
+     *
+     * @param host
+     * @return
+     */
+    public long throttledMillis(String host) {
+        Bucket bucket = buckets.get(host);
+        return bucket == null ? 0 : TimeUnit.NANOSECONDS.toMillis(bucket.throttledNanos.get());
+    }
+
+    /**
+     * Returns the number of requests that had to wait.
+     *
+     * @return
+     */
+    public long throttledRequests() {
+        return throttledRequests.get();
+    }
+
+    private static ScheduledExecutorService newTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "politeness-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package chapter15;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the scheduler on a clock the test moves by hand.
+ *
+ * @author downey
+ *
+ */
+public class PolitenessSchedulerTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private AtomicLong now;
+	private PolitenessScheduler scheduler;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		now = new AtomicLong(1000 * SECOND);
+		// two requests a second, up to three at once
+		scheduler = new PolitenessScheduler(2, 3, now::get);
+	}
+
+	/**
+	 * Test method for {@link PolitenessScheduler#reserve(String)}.
+	 */
+	@Test
+	public void testReserve() {
+		// the burst goes at once, then one every half second
+		assertThat(scheduler.reserve("en.wikipedia.org"), is(0L));
+		assertThat(scheduler.reserve("en.wikipedia.org"), is(0L));
+		assertThat(scheduler.reserve("en.wikipedia.org"), is(0L));
+		assertThat(scheduler.reserve("en.wikipedia.org"), is(SECOND / 2));
+		assertThat(scheduler.reserve("en.wikipedia.org"), is(SECOND));
+
+		// another host has its own bucket
+		assertThat(scheduler.reserve("example.com"), is(0L));
+
+		// after waiting, the reserved tokens have been used up
+		now.addAndGet(SECOND);
+		assertThat(scheduler.reserve("en.wikipedia.org"), is(SECOND / 2));
+
+		// and after a long wait, the bucket is full again
+		now.addAndGet(10 * SECOND);
+		for (int i = 0; i < 3; i++) {
+			assertThat(scheduler.reserve("en.wikipedia.org"), is(0L));
+		}
+		assertThat(scheduler.reserve("en.wikipedia.org"), is(SECOND / 2));
+	}
+
+	/**
+	 * Test method for {@link PolitenessScheduler#tryAcquire(String)}.
+	 */
+	@Test
+	public void testTryAcquire() {
+		for (int i = 0; i < 3; i++) {
+			assertThat(scheduler.tryAcquire("en.wikipedia.org"), is(true));
+		}
+		assertThat(scheduler.tryAcquire("en.wikipedia.org"), is(false));
+
+		now.addAndGet(SECOND / 2);
+		assertThat(scheduler.tryAcquire("en.wikipedia.org"), is(true));
+		assertThat(scheduler.tryAcquire("en.wikipedia.org"), is(false));
+		assertThat(scheduler.throttledRequests(), is(0L));
+	}
+
+	/**
+	 * Test method for {@link PolitenessScheduler#throttledMillis()}.
+	 */
+	@Test
+	public void testMetrics() {
+		for (int i = 0; i < 5; i++) {
+			scheduler.reserve("en.wikipedia.org");
+		}
+		scheduler.reserve("example.com");
+
+		assertThat(scheduler.throttledRequests(), is(2L));
+		assertThat(scheduler.throttledMillis(), is(1500L));
+		assertThat(scheduler.throttledMillis("en.wikipedia.org"), is(1500L));
+		assertThat(scheduler.throttledMillis("example.com"), is(0L));
+		assertThat(scheduler.throttledMillis("unknown.org"), is(0L));
+	}
+
+	/**
+	 * Threads reserving at the same time should each get a different slot.
+	 */
+	@Test
+	public void testConcurrentReserve() throws InterruptedException {
+		List<Long> delays = Collections.synchronizedList(new ArrayList<Long>());
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 250; i++) {
+					delays.add(scheduler.reserve("en.wikipedia.org"));
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Collections.sort(delays);
+		assertThat(delays.size(), is(1000));
+		for (int i = 0; i < 1000; i++) {
+			long expected = Math.max(0, i - 2) * SECOND / 2;
+			assertThat(delays.get(i), is(expected));
+		}
+	}
+
+	/**
+	 * Test method for {@link PolitenessScheduler#acquireAsync(String)}.
+	 */
+	@Test
+	public void testAcquireAsync() throws Exception {
+		PolitenessScheduler real = new PolitenessScheduler(20, 1);
+		CompletableFuture<Void> first = real.acquireAsync("en.wikipedia.org");
+		assertThat(first.isDone(), is(true));
+
+		long start = System.nanoTime();
+		real.acquireAsync("en.wikipedia.org").get(1, TimeUnit.SECONDS);
+		long elapsed = System.nanoTime() - start;
+		assertThat(elapsed >= TimeUnit.MILLISECONDS.toNanos(40), is(true));
+	}
+}
@@ -0,0 +1,88 @@
+package chapter15;
+
+/**
+ * The URLs a crawler has already found, so each one is queued once.
+ *
+ * A page links to the same few hundred pages as its neighbors, so most of
+ * the links a crawler finds are ones it has seen before.  Without this set
+ * they all go in the queue and each one costs a call to
+ * JedisIndex.isIndexed when it comes out.
+ *
+ * The set is a BloomFilter in front of a CompactStringSet.  When the filter
+ * says a URL is new, it is certainly new, and `add` stores it without
+ * comparing it to the URLs already there; `contains` answers without the
+ * lock.  When the filter says it might have been seen, the exact set
+ * decides, so a false positive costs a lookup but never drops a URL.
+ *
+ */
+public class SeenUrlSet {
+
+    // number of URLs the filter is sized for; past that it gets less selective
+    private static final int DEFAULT_EXPECTED = 1 << 16;
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final BloomFilter bloom;
+    private final CompactStringSet exact;
+    private int falsePositives = 0;
+
+    public SeenUrlSet() {
+        this(DEFAULT_EXPECTED);
+    }
+
+    /**
+     * @param expectedUrls number of URLs to size the filter and set for
+     */
+    public SeenUrlSet(int expectedUrls) {
+        this.bloom = new BloomFilter(expectedUrls, FALSE_POSITIVE_RATE);
+        this.exact = new CompactStringSet(Math.min(expectedUrls, DEFAULT_EXPECTED));
+    }
+
+    /**
+     * Adds a URL to the set.
+     *
+     * @param url
+     * @return true if it was not seen before
+     */
+    public synchronized boolean add(String url) {
+        if (!bloom.mightContain(url)) {
+            exact.addNew(url);
+            bloom.put(url);
+            return true;
+        }
+        if (exact.add(url)) {
+            falsePositives++;
+            bloom.put(url);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the URL has been added.
+     *
+     * @param url
+     * @return
+     */
+    public boolean contains(String url) {
+        if (!bloom.mightContain(url)) {
+            return false;
+        }
+        synchronized (this) {
+            return exact.contains(url);
+        }
+    }
+
+    public synchronized int size() {
+        return exact.size();
+    }
+
+    /**
+     * Returns the number of new URLs the filter said might have been seen.
+     *
+     * @return
+     */
+    public synchronized int falsePositives() {
+        return falsePositives;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ *
+ */
+package chapter15;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class SeenUrlSetTest {
+
+	/**
+	 * Test method for {@link SeenUrlSet#add(String)}.
+	 */
+	@Test
+	public void testAdd() {
+		// a small filter, so it gives false positives
+		SeenUrlSet seen = new SeenUrlSet(100);
+		for (int i = 0; i < 5000; i++) {
+			assertThat(seen.add("https://en.wikipedia.org/wiki/Page_" + i), is(true));
+		}
+		for (int i = 0; i < 5000; i++) {
+			assertThat(seen.add("https://en.wikipedia.org/wiki/Page_" + i), is(false));
+			assertThat(seen.contains("https://en.wikipedia.org/wiki/Page_" + i), is(true));
+		}
+		assertThat(seen.contains("https://en.wikipedia.org/wiki/Page_5000"), is(false));
+		assertThat(seen.size(), is(5000));
+		assertThat(seen.falsePositives() > 0, is(true));
+	}
+
+	/**
+	 * Threads adding the same URLs should add each one once between them.
+	 */
+	@Test
+	public void testConcurrentAdd() throws InterruptedException {
+		SeenUrlSet seen = new SeenUrlSet();
+		AtomicInteger added = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 2000; i++) {
+					if (seen.add("https://en.wikipedia.org/wiki/Page_" + i)) {
+						added.incrementAndGet();
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertThat(added.get(), is(2000));
+		assertThat(seen.size(), is(2000));
+	}
+}
@@ -1,7 +1,9 @@
 package chapter15;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
@@ -23,6 +25,9 @@ public class WikiCrawler {
     // 발견했지만 아직 인덱싱하지 않은 URL을 추적
     private Queue<String> queue = new LinkedList<String>();
 
+    // 큐에 넣은 적이 있는 URL, 같은 URL을 두 번 넣지 않기 위해 사용
+    private final SeenUrlSet seen = new SeenUrlSet();
+
     // 웹페이지를 읽고 파싱하는 객체
     final static WikiFetcher wf = new WikiFetcher();
 
@@ -35,6 +40,7 @@ public class WikiCrawler {
     public WikiCrawler(String source, JedisIndex index) {
         this.source = source;
         this.index = index;
+        seen.add(source);
         queue.offer(source);
     }
 
@@ -86,24 +92,38 @@ public class WikiCrawler {
     }
 
     /**
-     * Parses paragraphs and adds internal links to the queue.
+     * Parses paragraphs and adds internal links to the queue, skipping the
+     * ones that have been queued before.
      *
      * @param paragraphs
      */
     // NOTE: absence of access level modifier means package-level
     void queueInternalLinks(Elements paragraphs) {
-        for (Element paragraph : paragraphs) {
-            Elements elems = paragraphs.select("a[href]");
+        for (String absUrl : internalLinks(paragraphs)) {
+            if (seen.add(absUrl)) {
+                queue.add(absUrl);
+            }
+        }
+    }
 
-            for (Element elem : elems) {
+    /**
+     * Returns the absolute URLs of the internal links in `paragraphs`, in
+     * the order they appear.
+     *
+     * @param paragraphs
+     * @return
+     */
+    static List<String> internalLinks(Elements paragraphs) {
+        List<String> links = new ArrayList<String>();
+        for (Element paragraph : paragraphs) {
+            for (Element elem : paragraph.select("a[href]")) {
                 String url = elem.attr("href");
-
                 if (url.startsWith("/wiki/")) {
-                    String absUrl = "https://en.wikipedia.org" + url;
-                    queue.add(absUrl);
+                    links.add("https://en.wikipedia.org" + url);
                 }
             }
         }
+        return links;
     }
 
     public static void main(String[] args) throws IOException {
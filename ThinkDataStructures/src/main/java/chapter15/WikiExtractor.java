@@ -0,0 +1,558 @@
+package chapter15;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jsoup.helper.StringUtil;
+import org.jsoup.nodes.Entities;
+import org.jsoup.parser.Parser;
+
+import chapter14.TermCounter;
+
+/**
+ * Reads the paragraphs of a Wikipedia page without building a DOM tree.
+ *
+ * WikiFetcher parses the whole page into a Jsoup Document and then keeps
+ * only the paragraphs in the mw-content-text div, so most of the objects
+ * it makes are garbage as soon as it returns.  This class reads the HTML
+ * once, a character at a time, and reports the text and links of those
+ * paragraphs to a Listener as it finds them.  Outside the paragraphs it
+ * keeps nothing but a few counters, so the memory it needs doesn't grow
+ * with the page.
+ *
+ * The runs of text it reports are the ones Jsoup would make TextNodes of,
+ * with entities decoded and whitespace collapsed the same way, so
+ * counting them gives the same TermCounter as processElements.  It
+ * follows the HTML rules that matter for Wikipedia's markup: a paragraph
+ * ends at </p>, at the start of a block element, or at the end of an
+ * element it is in, and script and style elements have no text.  It
+ * doesn't repair arbitrary broken HTML the way Jsoup does.
+ *
+ */
+public class WikiExtractor {
+
+    /**
+     * Receives the contents of the paragraphs, in order.
+     */
+    public interface Listener {
+        /**
+         * Called with each run of text in a paragraph.
+         */
+        public void text(String text);
+
+        /**
+         * Called with the href of each link in a paragraph.
+         */
+        public void link(String href);
+    }
+
+    // start tags that end an open paragraph
+    private static final Set<String> CLOSES_P = new HashSet<String>(Arrays.asList(
+            "address", "article", "aside", "blockquote", "center", "dd", "details", "dialog", "dir", "div", "dl",
+            "dt", "fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6",
+            "header", "hgroup", "hr", "li", "listing", "main", "menu", "nav", "ol", "p", "plaintext", "pre",
+            "section", "summary", "table", "ul", "xmp"));
+
+    // end tags of elements a paragraph can be in
+    private static final Set<String> CONTAINS_P = new HashSet<String>(Arrays.asList(
+            "blockquote", "body", "caption", "dd", "div", "dl", "dt", "figure", "html", "li", "section", "table",
+            "td", "th", "tr"));
+
+    // elements with no end tag
+    private static final Set<String> VOID = new HashSet<String>(Arrays.asList(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source",
+            "track", "wbr"));
+
+    private static final String CONTENT_ID = "mw-content-text";
+
+    // the tag names above, so a tag can be looked up without making a String
+    private static final String[] KNOWN = new String[256];
+
+    // stands for the names that aren't known
+    private static final String OTHER = "";
+
+    static {
+        List<String> names = new ArrayList<String>();
+        names.addAll(CLOSES_P);
+        names.addAll(CONTAINS_P);
+        names.addAll(VOID);
+        names.addAll(Arrays.asList("a", "script", "style"));
+        for (String known : names) {
+            int i = hash(known) & (KNOWN.length - 1);
+            while (KNOWN[i] != null && !KNOWN[i].equals(known)) {
+                i = (i + 1) & (KNOWN.length - 1);
+            }
+            KNOWN[i] = known;
+        }
+    }
+
+    private final Reader in;
+    private final Listener listener;
+    private final char[] buffer = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+    private int pushedBack = -1;
+
+    // depth of nested divs in the content div, or 0 outside it
+    private int contentDepth = 0;
+
+    // whether a paragraph is open, and how many elements are open in it
+    private boolean inParagraph = false;
+    private int paragraphDepth = 0;
+
+    // whether the last start tag ended in "/>"
+    private boolean selfClosing = false;
+
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder name = new StringBuilder();
+    private final StringBuilder value = new StringBuilder();
+    private final StringBuilder entity = new StringBuilder();
+
+    // whether `text` has an entity left for Jsoup to decode
+    private boolean undecoded = false;
+
+    private WikiExtractor(Reader in, Listener listener) {
+        this.in = in;
+        this.listener = listener;
+    }
+
+    /**
+     * Reads a page from `in` and reports the text and links of the
+     * paragraphs in its content div to `listener`.
+     *
+     * @param in
+     * @param listener
+     * @throws IOException
+     */
+    public static void extract(Reader in, Listener listener) throws IOException {
+        new WikiExtractor(in, listener).run();
+    }
+
+    /**
+     * Reads a page from `in`, counts the words of its paragraphs in
+     * `counter`, and returns the absolute URLs of their internal links, as
+     * WikiCrawler.internalLinks does.
+     *
+     * @param in
+     * @param counter
+     * @return
+     * @throws IOException
+     */
+    public static List<String> countTerms(Reader in, TermCounter counter) throws IOException {
+        List<String> links = new ArrayList<String>();
+        extract(in, new Listener() {
+            @Override
+            public void text(String text) {
+                counter.processText(text);
+            }
+
+            @Override
+            public void link(String href) {
+                if (href.startsWith("/wiki/")) {
+                    links.add("https://en.wikipedia.org" + href);
+                }
+            }
+        });
+        return links;
+    }
+
+    private void run() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<') {
+                markup();
+            } else if (!inParagraph) {
+                continue;
+            } else if (c == '&') {
+                entity();
+            } else {
+                appendText(c);
+            }
+        }
+        if (inParagraph) {
+            endParagraph();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -1) {
+            int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        if (pos == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * Reads what follows a '<': a tag, a comment, or a '<' that is just
+     * text.
+     */
+    private void markup() throws IOException {
+        int c = read();
+        if (c == '!' || c == '?') {
+            flushText();
+            skipComment(c);
+        } else if (c == '/') {
+            int first = read();
+            if (isLetter(first)) {
+                flushText();
+                readName(first);
+                skipTag();
+                endTag(tagName());
+            } else if (first != -1) {
+                // not an end tag; HTML treats it as a comment
+                flushText();
+                pushedBack = first;
+                skipTag();
+            }
+        } else if (isLetter(c)) {
+            flushText();
+            readName(c);
+            startTag(tagName());
+        } else {
+            if (inParagraph) {
+                appendText('<');
+            }
+            pushedBack = c;
+        }
+    }
+
+    /**
+     * Skips a comment, a doctype or a processing instruction.
+     */
+    private void skipComment(int first) throws IOException {
+        int c = read();
+        if (first == '!' && c == '-') {
+            int d = read();
+            if (d == '-') {
+                // skip to -->
+                int dashes = 0;
+                while ((c = read()) != -1) {
+                    if (c == '>' && dashes >= 2) {
+                        return;
+                    }
+                    dashes = c == '-' ? dashes + 1 : 0;
+                }
+                return;
+            }
+            c = d;
+        }
+        while (c != -1 && c != '>') {
+            c = read();
+        }
+    }
+
+    /**
+     * Reads a tag or attribute name, in lower case, into `name`.
+     */
+    private void readName(int first) throws IOException {
+        name.setLength(0);
+        int c = first;
+        while (c != -1 && c != '>' && c != '/' && c != '=' && !isSpace(c)) {
+            name.append(Character.toLowerCase((char) c));
+            c = read();
+        }
+        pushedBack = c;
+    }
+
+    /**
+     * Skips the rest of a tag, including quoted attribute values.
+     */
+    private void skipTag() throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != '>') {
+            if (c == '"' || c == '\'') {
+                skipQuoted(c);
+            }
+        }
+    }
+
+    private void skipQuoted(int quote) throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != quote) {
+            // skip
+        }
+    }
+
+    /**
+     * Reads the attributes of a start tag and returns the value of
+     * `wanted`, or null.  Sets `selfClosing` if the tag ends in "/>".
+     */
+    private String readAttributes(String wanted) throws IOException {
+        String found = null;
+        selfClosing = false;
+        int c = read();
+        while (true) {
+            while (isSpace(c)) {
+                c = read();
+            }
+            if (c == -1 || c == '>') {
+                return found;
+            }
+            if (c == '/') {
+                c = read();
+                selfClosing = c == '>';
+                continue;
+            }
+
+            // the attribute name
+            readName(c);
+            boolean match = wanted != null && found == null && wanted.contentEquals(name);
+            c = read();
+            while (isSpace(c)) {
+                c = read();
+            }
+            if (c != '=') {
+                continue;
+            }
+
+            // and its value, quoted or not
+            c = read();
+            while (isSpace(c)) {
+                c = read();
+            }
+            value.setLength(0);
+            if (c == '"' || c == '\'') {
+                int quote = c;
+                while ((c = read()) != -1 && c != quote) {
+                    if (match) {
+                        value.append((char) c);
+                    }
+                }
+                c = read();
+            } else {
+                while (c != -1 && c != '>' && !isSpace(c)) {
+                    if (match) {
+                        value.append((char) c);
+                    }
+                    c = read();
+                }
+            }
+            if (match) {
+                found = unescape(value.toString(), true);
+            }
+        }
+    }
+
+    private void startTag(String tag) throws IOException {
+        boolean isDiv = tag.equals("div");
+        boolean isLink = tag.equals("a") && inParagraph;
+        String attribute = readAttributes(isDiv && contentDepth == 0 ? "id" : isLink ? "href" : null);
+
+        if (contentDepth == 0) {
+            if (isDiv && CONTENT_ID.equals(attribute)) {
+                contentDepth = 1;
+            }
+            skipRawText(tag);
+            return;
+        }
+
+        if (inParagraph) {
+            if (CLOSES_P.contains(tag)) {
+                endParagraph();
+            } else if (!VOID.contains(tag) && !selfClosing) {
+                paragraphDepth++;
+            }
+        }
+        if (isDiv) {
+            contentDepth++;
+        }
+        if (tag.equals("p")) {
+            inParagraph = true;
+            paragraphDepth = 0;
+        } else if (isLink && attribute != null) {
+            listener.link(attribute);
+        }
+        skipRawText(tag);
+    }
+
+    private void endTag(String tag) {
+        if (contentDepth == 0) {
+            return;
+        }
+        if (inParagraph) {
+            if (tag.equals("p")) {
+                endParagraph();
+            } else if (paragraphDepth > 0) {
+                paragraphDepth--;
+            } else if (CONTAINS_P.contains(tag)) {
+                endParagraph();
+            }
+        }
+        if (tag.equals("div")) {
+            contentDepth--;
+        }
+    }
+
+    /**
+     * Skips the contents of a script or style element, which are not text.
+     */
+    private void skipRawText(String tag) throws IOException {
+        if (!tag.equals("script") && !tag.equals("style")) {
+            return;
+        }
+        if (inParagraph && paragraphDepth > 0) {
+            paragraphDepth--;
+        }
+        // look for "</" followed by the tag name
+        int matched = -2;
+        int c;
+        while ((c = read()) != -1) {
+            if (matched == -2) {
+                matched = c == '<' ? -1 : -2;
+            } else if (matched == -1) {
+                matched = c == '/' ? 0 : c == '<' ? -1 : -2;
+            } else if (matched < tag.length()) {
+                matched = Character.toLowerCase((char) c) == tag.charAt(matched) ? matched + 1 : c == '<' ? -1 : -2;
+            } else {
+                pushedBack = c;
+                skipTag();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the name just read, as one of the KNOWN strings or OTHER.
+     */
+    private String tagName() {
+        int i = hash(name) & (KNOWN.length - 1);
+        while (KNOWN[i] != null) {
+            if (KNOWN[i].contentEquals(name)) {
+                return KNOWN[i];
+            }
+            i = (i + 1) & (KNOWN.length - 1);
+        }
+        return OTHER;
+    }
+
+    private static int hash(CharSequence s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h ^ (h >>> 8);
+    }
+
+    /**
+     * Adds a character to the text, collapsing runs of whitespace to one
+     * space as TextNode.text does.
+     */
+    private void appendText(int c) {
+        if (isSpace(c)) {
+            if (text.length() > 0 && text.charAt(text.length() - 1) == ' ') {
+                return;
+            }
+            c = ' ';
+        }
+        text.append((char) c);
+    }
+
+    /**
+     * Reads what follows a '&' in the text, and adds the character it
+     * stands for.  Anything but a well-formed entity is added as it is,
+     * and Parser.unescapeEntities decodes it when the text is reported.
+     */
+    private void entity() throws IOException {
+        entity.setLength(0);
+        int c = read();
+        while (entity.length() < 32 && (isLetter(c) || (c >= '0' && c <= '9') || c == '#')) {
+            entity.append((char) c);
+            c = read();
+        }
+        if (c == ';') {
+            int decoded = decode();
+            // an '&' stays encoded, in case Jsoup has to decode the text later
+            if (decoded != -1 && decoded != '&') {
+                if (Character.isBmpCodePoint(decoded)) {
+                    appendText(decoded);
+                } else {
+                    text.appendCodePoint(decoded);
+                }
+                return;
+            }
+        }
+        text.append('&').append(entity);
+        undecoded |= entity.length() > 0;
+        pushedBack = c;
+    }
+
+    /**
+     * Returns the code point `entity` stands for, or -1 if it is not one
+     * this class decodes itself.
+     */
+    private int decode() {
+        if (entity.length() > 1 && entity.charAt(0) == '#') {
+            boolean hex = entity.charAt(1) == 'x' || entity.charAt(1) == 'X';
+            int start = hex ? 2 : 1;
+            if (start == entity.length() || entity.length() - start > 6) {
+                return -1;
+            }
+            int code = 0;
+            for (int i = start; i < entity.length(); i++) {
+                int digit = Character.digit(entity.charAt(i), hex ? 16 : 10);
+                if (digit == -1) {
+                    return -1;
+                }
+                code = code * (hex ? 16 : 10) + digit;
+            }
+            // leave control characters and invalid code points to Jsoup
+            boolean plain = (code >= 0x20 && code < 0x7f) || (code >= 0xa0 && code < 0xd800)
+                    || (code >= 0xe000 && code <= 0x10ffff);
+            return plain ? code : -1;
+        }
+        String named = entity.toString();
+        if (Entities.isNamedEntity(named)) {
+            return Entities.getCharacterByName(named);
+        }
+        return -1;
+    }
+
+    private void endParagraph() {
+        flushText();
+        inParagraph = false;
+    }
+
+    /**
+     * Reports the text read since the last tag, as Jsoup's TextNode.text
+     * would return it.
+     */
+    private void flushText() {
+        if (text.length() > 0) {
+            if (inParagraph) {
+                String run = text.toString();
+                if (undecoded) {
+                    run = StringUtil.normaliseWhitespace(Parser.unescapeEntities(run, false));
+                }
+                listener.text(run);
+            }
+            text.setLength(0);
+            undecoded = false;
+        }
+    }
+
+    private static String unescape(String s, boolean inAttribute) {
+        return s.indexOf('&') == -1 ? s : Parser.unescapeEntities(s, inAttribute);
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ *
+ */
+package chapter15;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jsoup.Jsoup;
+import org.jsoup.select.Elements;
+import org.junit.Test;
+
+import chapter14.TermCounter;
+
+/**
+ * Checks that WikiExtractor finds what the DOM path finds.
+ *
+ * @author downey
+ *
+ */
+public class WikiExtractorTest {
+
+	/**
+	 * A page with the markup that makes extraction tricky.
+	 */
+	private static final String PAGE = "<!DOCTYPE html><html><head><title>Java</title>"
+			+ "<script>var p = '<p>not text</p>';</script></head><body>"
+			+ "<p>Outside the content, with <a href=\"/wiki/Outside\">a link</a>.</p>"
+			+ "<div id=\"mw-content-text\" class=\"mw-body\">"
+			+ "<table class=\"infobox\"><tr><td><p>In a <b>table</b> cell</td></tr></table>"
+			+ "<p>Java is a <a href=\"/wiki/Programming_language\" title=\"Programming language\">programming "
+			+ "language</a> that is <i>concurrent</i>, <b><i>class</i>-based</b> and object-oriented."
+			+ "<sup class=\"reference\"><a href=\"#cite_note-1\">[1]</a></sup></p>\n"
+			+ "<p>Entities &amp; spacing:  a&nbsp;b &lt;tag&gt; &#169; 3 &lt; 4 and 5 > 2 and x < y."
+			+ "<!-- a comment, <p>with a paragraph</p> --> Text after  the\n comment.</p>"
+			+ "<p>More: &#x1F600; &#32;&#10; &amp;lt; &AMP &copy &notanentity; &#0; &#xD800; & done.</p>"
+			+ "<p>An unclosed paragraph with <a href='/wiki/Concurrent_computing'>single quotes</a>"
+			+ "<div class=\"thumb\"><p>A caption in a div.</div>"
+			+ "<p>Links <a href=\"/wiki/A%26B?x=1&amp;y=2\">with entities</a>, <a href=https://example.com/>"
+			+ "external</a>, <a>no href</a><br/>and a break.<script>document.write('<p>no</p>')</script> Done."
+			+ "<style>p { color: red }</style></p>"
+			+ "<ul><li><p>In a list</li></ul>"
+			+ "<p>Last paragraph, ended by the content div."
+			+ "</div>"
+			+ "<p>After the content, <a href=\"/wiki/After\">ignored</a>.</p>"
+			+ "</body></html>";
+
+	/**
+	 * Test method for {@link WikiExtractor#countTerms(java.io.Reader, TermCounter)}.
+	 */
+	@Test
+	public void testCountTerms() throws IOException {
+		assertSameAsDom(PAGE);
+	}
+
+	/**
+	 * Test method for {@link WikiExtractor#extract(java.io.Reader, WikiExtractor.Listener)}.
+	 */
+	@Test
+	public void testExtract() throws IOException {
+		List<String> texts = new ArrayList<String>();
+		List<String> hrefs = new ArrayList<String>();
+		WikiExtractor.extract(new StringReader(PAGE), new WikiExtractor.Listener() {
+			@Override
+			public void text(String text) {
+				texts.add(text);
+			}
+
+			@Override
+			public void link(String href) {
+				hrefs.add(href);
+			}
+		});
+
+		assertThat(texts.get(0), is("In a "));
+		assertThat(texts.contains("Outside the content, with "), is(false));
+		assertThat(texts.contains("After the content, "), is(false));
+		assertThat(texts.contains(" Text after the comment."), is(true));
+		assertThat(texts.contains("Entities & spacing: a\u00a0b <tag> \u00a9 3 < 4 and 5 > 2 and x < y."), is(true));
+		assertThat(texts.contains("Last paragraph, ended by the content div."), is(true));
+
+		assertThat(hrefs.get(0), is("/wiki/Programming_language"));
+		assertThat(hrefs.contains("/wiki/A%26B?x=1&y=2"), is(true));
+		assertThat(hrefs.contains("https://example.com/"), is(true));
+		assertThat(hrefs.contains("/wiki/Outside"), is(false));
+		assertThat(hrefs.contains("/wiki/After"), is(false));
+	}
+
+	/**
+	 * Generated pages should give the same results both ways.
+	 */
+	@Test
+	public void testGeneratedPages() throws IOException {
+		Random random = new Random(17);
+		for (int i = 0; i < 5; i++) {
+			assertSameAsDom(page(random, 40));
+		}
+	}
+
+	/**
+	 * Counts the words of `html` and finds its links both ways, and checks
+	 * that the results are the same.
+	 */
+	private static void assertSameAsDom(String html) throws IOException {
+		Elements paragraphs = Jsoup.parse(html).getElementById("mw-content-text").select("p");
+		TermCounter dom = new TermCounter("dom");
+		dom.processElements(paragraphs);
+
+		TermCounter streaming = new TermCounter("streaming");
+		List<String> links = WikiExtractor.countTerms(new StringReader(html), streaming);
+
+		assertThat(links, is(WikiCrawler.internalLinks(paragraphs)));
+		assertThat(streaming.keySet(), is(dom.keySet()));
+		for (String term : dom.keySet()) {
+			assertThat(term, streaming.get(term), is(dom.get(term)));
+		}
+		assertThat(streaming.size(), is(dom.size()));
+	}
+
+	/**
+	 * Returns a page shaped like a Wikipedia article: navigation around the
+	 * content, an infobox, `paragraphs` paragraphs with links and
+	 * references, and navboxes and references after them.
+	 *
+	 * @param random
+	 * @param paragraphs
+	 * @return
+	 */
+	static String page(Random random, int paragraphs) {
+		StringBuilder sb = new StringBuilder("<!DOCTYPE html><html lang=\"en\"><head><title>Page</title>");
+		for (int i = 0; i < 10; i++) {
+			sb.append("<link rel=\"stylesheet\" href=\"/w/load.php?modules=skin").append(i).append("\">");
+		}
+		sb.append("<script>var config = {\"wgPageName\": \"Page\", \"wgTitle\": \"<p>\"};</script></head><body>");
+		sb.append("<div id=\"mw-navigation\"><ul>");
+		for (int i = 0; i < 60; i++) {
+			sb.append("<li class=\"mw-list-item\"><a href=\"/wiki/Nav_").append(i).append("\">Nav ").append(i)
+					.append("</a></li>");
+		}
+		sb.append("</ul></div><div id=\"content\"><h1>Page</h1><div id=\"bodyContent\">");
+		sb.append("<div id=\"mw-content-text\" lang=\"en\" dir=\"ltr\"><div class=\"mw-parser-output\">");
+
+		sb.append("<table class=\"infobox vevent\"><tbody>");
+		for (int i = 0; i < 20; i++) {
+			sb.append("<tr><th scope=\"row\">Field ").append(i).append("</th><td><a href=\"/wiki/Value_")
+					.append(i).append("\">Value</a> &amp; more</td></tr>");
+		}
+		sb.append("</tbody></table>");
+
+		for (int p = 0; p < paragraphs; p++) {
+			if (p % 8 == 0) {
+				sb.append("<h2><span class=\"mw-headline\" id=\"Section_").append(p).append("\">Section ")
+						.append(p).append("</span></h2>");
+			}
+			sb.append("<p>");
+			for (int w = 0; w < 80; w++) {
+				int r = random.nextInt(100);
+				if (r < 6) {
+					int target = random.nextInt(500);
+					sb.append("<a href=\"/wiki/Topic_").append(target).append("\" title=\"Topic ")
+							.append(target).append("\">topic ").append(target).append("</a> ");
+				} else if (r < 8) {
+					sb.append("<b>bold").append(random.nextInt(50)).append("</b> ");
+				} else if (r < 9) {
+					sb.append("<sup id=\"cite_ref-").append(w).append("\" class=\"reference\"><a href=\"#cite_note-")
+							.append(w).append("\">[").append(w).append("]</a></sup>");
+				} else if (r < 10) {
+					sb.append("&#8211; ");
+				} else {
+					sb.append("word").append(random.nextInt(2000)).append(r % 7 == 0 ? ",\n" : " ");
+				}
+			}
+			sb.append("</p>\n");
+		}
+
+		sb.append("<div class=\"reflist\"><ol class=\"references\">");
+		for (int i = 0; i < 80; i++) {
+			sb.append("<li id=\"cite_note-").append(i).append("\"><span class=\"reference-text\"><cite>Author ")
+					.append(i).append(". <a rel=\"nofollow\" class=\"external text\" href=\"https://example.com/")
+					.append(i).append("\">A source</a>.</cite></span></li>");
+		}
+		sb.append("</ol></div>");
+		for (int n = 0; n < 3; n++) {
+			sb.append("<div role=\"navigation\" class=\"navbox\"><table class=\"nowraplinks\"><tbody>");
+			for (int i = 0; i < 15; i++) {
+				sb.append("<tr><th class=\"navbox-group\">Group ").append(i).append("</th><td><div><ul>");
+				for (int j = 0; j < 12; j++) {
+					sb.append("<li><a href=\"/wiki/Navbox_").append(n).append('_').append(i).append('_').append(j)
+							.append("\">Item</a></li>");
+				}
+				sb.append("</ul></div></td></tr>");
+			}
+			sb.append("</tbody></table></div>");
+		}
+		sb.append("</div></div></div></div>");
+		sb.append("<div id=\"footer\"><ul><li>This page was last edited today.</li></ul></div></body></html>");
+		return sb.toString();
+	}
+}
@@ -9,12 +9,47 @@ import org.jsoup.select.Elements;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import chapter14.TermCounter;
 
 
 public class WikiFetcher {
-	private long lastRequestTime = -1;
-	private long minInterval = 1000;
+	// limits the requests to each host; by default one a second
+	private final PolitenessScheduler scheduler;
+
+	// pages downloaded before, or null to always download
+	private final HttpCache cache;
+
+	public WikiFetcher() {
+		this(new PolitenessScheduler(1, 1));
+	}
+
+	/**
+	 * @param scheduler limits the requests to each host, and can be
+	 * shared by fetchers on several threads
+	 */
+	public WikiFetcher(PolitenessScheduler scheduler) {
+		this.scheduler = scheduler;
+		this.cache = null;
+	}
+
+	/**
+	 * Makes a fetcher that gets pages through `cache`, and waits only when
+	 * the cache has to make a request.
+	 *
+	 * @param cache
+	 */
+	public WikiFetcher(HttpCache cache) {
+		this.scheduler = cache.getScheduler();
+		this.cache = cache;
+	}
 
 	/**
 	 * Fetches and parses a URL string, returning a list of paragraph elements.
@@ -24,11 +59,17 @@ public class WikiFetcher {
 	 * @throws IOException
 	 */
 	public Elements fetchWikipedia(String url) throws IOException {
-		sleepIfNeeded();
+		Document doc;
+		if (cache != null) {
+			// the cache waits for the scheduler if it has to make a request
+			doc = Jsoup.parse(cache.get(url), url);
+		} else {
+			waitForTurn(new URL(url).getHost());
 
-		// download and parse the document
-		Connection conn = Jsoup.connect(url);
-		Document doc = conn.get();
+			// download and parse the document
+			Connection conn = Jsoup.connect(url);
+			doc = conn.get();
+		}
 
 		// select the content text and pull out the paragraphs.
 		Element content = doc.getElementById("mw-content-text");
@@ -63,22 +104,61 @@ public class WikiFetcher {
 	}
 
 	/**
-	 * Rate limits by waiting at least the minimum interval between requests.
+	 * Fetches a URL, counts the words of its paragraphs in `counter`, and
+	 * returns the internal links, without building a DOM tree.
+	 *
+	 * @param url
+	 * @param counter
+	 * @return
+	 * @throws IOException
 	 */
-	private void sleepIfNeeded() {
-		if (lastRequestTime != -1) {
-			long currentTime = System.currentTimeMillis();
-			long nextRequestTime = lastRequestTime + minInterval;
-			if (currentTime < nextRequestTime) {
-				try {
-					//System.out.println("Sleeping until " + nextRequestTime);
-					Thread.sleep(nextRequestTime - currentTime);
-				} catch (InterruptedException e) {
-					System.err.println("Warning: sleep interrupted in fetchWikipedia.");
-				}
-			}
+	public List<String> fetchWikipedia(String url, TermCounter counter) throws IOException {
+		if (cache != null) {
+			return WikiExtractor.countTerms(new StringReader(cache.get(url)), counter);
+		}
+		waitForTurn(new URL(url).getHost());
+		try (Reader in = new InputStreamReader(new URL(url).openStream(), StandardCharsets.UTF_8)) {
+			return WikiExtractor.countTerms(in, counter);
 		}
-		lastRequestTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * 테스트용. readWikipedia와 같은 페이지를 읽지만, DOM 트리를 만들지 않고
+	 * 문단의 단어를 `counter`에 세고 내부 링크를 반환함
+	 *
+	 * @param url
+	 * @param counter
+	 * @return
+	 * @throws IOException
+	 */
+	public List<String> readWikipedia(String url, TermCounter counter) throws IOException {
+		URL realURL = new URL(url);
+		String filename = "resources" + File.separator + realURL.getHost() + realURL.getPath();
+		InputStream stream = WikiFetcher.class.getClassLoader().getResourceAsStream(filename);
+		try (Reader in = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+			return WikiExtractor.countTerms(in, counter);
+		}
+	}
+
+	/**
+	 * Rate limits by waiting until the scheduler lets a request go to `host`.
+	 */
+	private void waitForTurn(String host) throws InterruptedIOException {
+		try {
+			scheduler.acquire(host);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted waiting to fetch from " + host);
+		}
+	}
+
+	/**
+	 * Returns the scheduler that limits this fetcher's requests.
+	 *
+	 * @return
+	 */
+	public PolitenessScheduler getScheduler() {
+		return scheduler;
 	}
 
 	/**
@@ -0,0 +1,240 @@
+package chapter2;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import chapter2.sort.IntSorter;
+
+/**
+ * List of int values, a companion to MyArrayList that stores the values
+ * themselves in an int[] instead of boxed Integers behind references.
+ *
+ * Nothing is allocated per element, and each element takes 4 bytes instead
+ * of a 4-byte reference plus a 16-byte Integer.
+ *
+ */
+public class IntArrayList {
+
+    private int[] array;
+    private int size;
+
+    /**
+     *
+     */
+    public IntArrayList() {
+        this(10);
+    }
+
+    /**
+     * @param capacity initial length of the array
+     */
+    public IntArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        array = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        // run a few simple tests
+        IntArrayList ial = new IntArrayList();
+        ial.add(3);
+        ial.add(1);
+        ial.add(2);
+        System.out.println(ial + " size = " + ial.size());
+
+        ial.sort();
+        System.out.println(ial + " sum = " + ial.stream().sum());
+    }
+
+    /**
+     * Makes sure the array can hold `capacity` elements, at least doubling
+     * it when it has to grow.
+     *
+     * @param capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > array.length) {
+            int length = Math.max(capacity, array.length * 2);
+            array = Arrays.copyOf(array, length);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Adds `value` at the end of the list.
+     *
+     * @param value
+     */
+    public void add(int value) {
+        ensureCapacity(size + 1);
+        array[size++] = value;
+    }
+
+    /**
+     * Inserts `value` at `index`, shifting the elements after it.
+     *
+     * @param index
+     * @param value
+     */
+    public void add(int index, int value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(array, index, array, index + 1, size - index);
+        array[index] = value;
+        size++;
+    }
+
+    /**
+     * Adds all of `values` at the end of the list with one copy.
+     *
+     * @param values
+     */
+    public void addAll(int[] values) {
+        ensureCapacity(size + values.length);
+        System.arraycopy(values, 0, array, size, values.length);
+        size += values.length;
+    }
+
+    public int get(int index) {
+        checkIndex(index);
+        return array[index];
+    }
+
+    /**
+     * Replaces the element at `index` and returns the old one.
+     */
+    public int set(int index, int value) {
+        checkIndex(index);
+        int old = array[index];
+        array[index] = value;
+        return old;
+    }
+
+    /**
+     * Removes the element at `index` and returns it.
+     *
+     * Named removeAt rather than remove so it can't be confused with
+     * removing a value.
+     */
+    public int removeAt(int index) {
+        checkIndex(index);
+        int old = array[index];
+        System.arraycopy(array, index + 1, array, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    public int indexOf(int target) {
+        for (int i = 0; i < size; i++) {
+            if (array[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOf(int target) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (array[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(int target) {
+        return indexOf(target) != -1;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns a copy of the elements.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(array, size);
+    }
+
+    /**
+     * Sorts the list in ascending order.
+     */
+    public void sort() {
+        sort(Arrays::sort);
+    }
+
+    /**
+     * Sorts the list in place with `sorter`, which sees the backing array
+     * and the range that holds the elements, for example a RadixSort.
+     *
+     * @param sorter
+     */
+    public void sort(IntSorter sorter) {
+        sorter.sort(array, 0, size);
+    }
+
+    /**
+     * Returns a stream over the elements, without copying or boxing them.
+     *
+     * The stream reads the backing array, so the list should not be
+     * changed while the stream is in use.
+     */
+    public IntStream stream() {
+        return Arrays.stream(array, 0, size);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IntArrayList)) {
+            return false;
+        }
+        IntArrayList that = (IntArrayList) obj;
+        if (size != that.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (array[i] != that.array[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + array[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
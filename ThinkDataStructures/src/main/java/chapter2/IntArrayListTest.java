@@ -0,0 +1,140 @@
+package chapter2;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for IntArrayList.
+ *
+ */
+public class IntArrayListTest {
+
+	private IntArrayList mylist;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		mylist = new IntArrayList();
+		mylist.add(1);
+		mylist.add(2);
+		mylist.add(3);
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#add(int)}, past the initial capacity.
+	 */
+	@Test
+	public void testAdd() {
+		for (int i = 4; i < 20; i++) {
+			mylist.add(i);
+		}
+		assertThat(mylist.size(), is(19));
+		assertThat(mylist.get(18), is(19));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#add(int, int)}.
+	 */
+	@Test
+	public void testAddIndex() {
+		mylist.add(1, 5);
+		assertThat(mylist.toString(), is("[1, 5, 2, 3]"));
+		mylist.add(4, 6);
+		mylist.add(0, 7);
+		assertThat(mylist.toString(), is("[7, 1, 5, 2, 3, 6]"));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#addAll(int[])}.
+	 */
+	@Test
+	public void testAddAll() {
+		mylist.addAll(new int[] {4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14});
+		assertThat(mylist.size(), is(14));
+		assertThat(mylist.get(13), is(14));
+		mylist.addAll(new int[0]);
+		assertThat(mylist.size(), is(14));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#indexOf(int)} and {@link IntArrayList#lastIndexOf(int)}.
+	 */
+	@Test
+	public void testIndexOf() {
+		mylist.add(2);
+		assertThat(mylist.indexOf(2), is(1));
+		assertThat(mylist.lastIndexOf(2), is(3));
+		assertThat(mylist.indexOf(4), is(-1));
+		assertThat(mylist.contains(3), is(true));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#set(int, int)} and {@link IntArrayList#removeAt(int)}.
+	 */
+	@Test
+	public void testSetRemove() {
+		assertThat(mylist.set(1, 5), is(2));
+		assertThat(mylist.removeAt(0), is(1));
+		assertThat(mylist.toString(), is("[5, 3]"));
+	}
+
+	/**
+	 * Indexes past the end are rejected even when the array has room.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfBounds() {
+		mylist.get(3);
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#sort()} and {@link IntArrayList#sort(chapter2.sort.IntSorter)}.
+	 */
+	@Test
+	public void testSort() {
+		Random random = new Random(5);
+		int[] values = new int[1000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextInt();
+		}
+		mylist.clear();
+		mylist.addAll(values);
+		mylist.sort();
+		for (int i = 1; i < mylist.size(); i++) {
+			assertThat(mylist.get(i - 1) <= mylist.get(i), is(true));
+		}
+
+		// the sorter only sees the elements, not the spare capacity
+		mylist.clear();
+		mylist.addAll(new int[] {3, 1, 2});
+		mylist.sort((array, from, to) -> assertThat(to - from, is(3)));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#stream()}.
+	 */
+	@Test
+	public void testStream() {
+		assertThat(mylist.stream().sum(), is(6));
+		assertThat(mylist.stream().count(), is(3L));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#equals(Object)}.
+	 */
+	@Test
+	public void testEquals() {
+		IntArrayList other = new IntArrayList(100);
+		other.addAll(new int[] {1, 2, 3});
+		assertThat(mylist.equals(other), is(true));
+		assertThat(mylist.hashCode(), is(other.hashCode()));
+		other.add(4);
+		assertThat(mylist.equals(other), is(false));
+	}
+}
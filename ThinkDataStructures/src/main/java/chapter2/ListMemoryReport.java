@@ -0,0 +1,88 @@
+package chapter2;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Measures how many bytes of heap each element of a list retains, boxed
+ * in a MyArrayList and unboxed in an IntArrayList or LongArrayList.
+ *
+ * It builds each list, forces a few collections and reads the used heap
+ * before and after, so the numbers are estimates, but with a million
+ * elements the noise is well under a byte per element.  The growth slack
+ * in the arrays is included, as it would be in a real heap.
+ *
+ */
+public class ListMemoryReport {
+
+    // holds the list being measured, so it can't be collected early
+    private static Object retained;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        // start above the Integer and Long caches, so every boxed value is a new object
+        int base = 1000;
+
+        report("MyArrayList<Integer>", n, size -> {
+            List<Integer> list = new MyArrayList<Integer>();
+            for (int i = 0; i < size; i++) {
+                list.add(base + i);
+            }
+            return list;
+        });
+        report("IntArrayList", n, size -> {
+            IntArrayList list = new IntArrayList();
+            for (int i = 0; i < size; i++) {
+                list.add(base + i);
+            }
+            return list;
+        });
+        report("MyArrayList<Long>", n, size -> {
+            List<Long> list = new MyArrayList<Long>();
+            for (int i = 0; i < size; i++) {
+                list.add((long) base + i);
+            }
+            return list;
+        });
+        report("LongArrayList", n, size -> {
+            LongArrayList list = new LongArrayList();
+            for (int i = 0; i < size; i++) {
+                list.add(base + i);
+            }
+            return list;
+        });
+    }
+
+    /**
+     * Builds a list of `n` elements with `factory` and prints the heap it
+     * retains per element.
+     */
+    private static void report(String name, int n, IntFunction<Object> factory) {
+        long before = usedHeap();
+        retained = factory.apply(n);
+        long after = usedHeap();
+        retained = null;
+        double perElement = (double) (after - before) / n;
+        System.out.printf("%-22s %8.2f bytes per element%n", name, perElement);
+    }
+
+    /**
+     * Returns the used heap after asking for a few collections.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
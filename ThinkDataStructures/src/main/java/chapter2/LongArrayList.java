@@ -0,0 +1,240 @@
+package chapter2;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+import chapter2.sort.LongSorter;
+
+/**
+ * List of long values, a companion to MyArrayList that stores the values
+ * themselves in a long[] instead of boxed Longs behind references.
+ *
+ * Nothing is allocated per element, and each element takes 8 bytes instead
+ * of a 4-byte reference plus a 24-byte Long.
+ *
+ */
+public class LongArrayList {
+
+    private long[] array;
+    private int size;
+
+    /**
+     *
+     */
+    public LongArrayList() {
+        this(10);
+    }
+
+    /**
+     * @param capacity initial length of the array
+     */
+    public LongArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        array = new long[capacity];
+        size = 0;
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        // run a few simple tests
+        LongArrayList lal = new LongArrayList();
+        lal.add(3);
+        lal.add(1);
+        lal.add(2);
+        System.out.println(lal + " size = " + lal.size());
+
+        lal.sort();
+        System.out.println(lal + " sum = " + lal.stream().sum());
+    }
+
+    /**
+     * Makes sure the array can hold `capacity` elements, at least doubling
+     * it when it has to grow.
+     *
+     * @param capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > array.length) {
+            int length = Math.max(capacity, array.length * 2);
+            array = Arrays.copyOf(array, length);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Adds `value` at the end of the list.
+     *
+     * @param value
+     */
+    public void add(long value) {
+        ensureCapacity(size + 1);
+        array[size++] = value;
+    }
+
+    /**
+     * Inserts `value` at `index`, shifting the elements after it.
+     *
+     * @param index
+     * @param value
+     */
+    public void add(int index, long value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(array, index, array, index + 1, size - index);
+        array[index] = value;
+        size++;
+    }
+
+    /**
+     * Adds all of `values` at the end of the list with one copy.
+     *
+     * @param values
+     */
+    public void addAll(long[] values) {
+        ensureCapacity(size + values.length);
+        System.arraycopy(values, 0, array, size, values.length);
+        size += values.length;
+    }
+
+    public long get(int index) {
+        checkIndex(index);
+        return array[index];
+    }
+
+    /**
+     * Replaces the element at `index` and returns the old one.
+     */
+    public long set(int index, long value) {
+        checkIndex(index);
+        long old = array[index];
+        array[index] = value;
+        return old;
+    }
+
+    /**
+     * Removes the element at `index` and returns it.
+     *
+     * Named removeAt rather than remove so it can't be confused with
+     * removing a value.
+     */
+    public long removeAt(int index) {
+        checkIndex(index);
+        long old = array[index];
+        System.arraycopy(array, index + 1, array, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    public int indexOf(long target) {
+        for (int i = 0; i < size; i++) {
+            if (array[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOf(long target) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (array[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(long target) {
+        return indexOf(target) != -1;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns a copy of the elements.
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(array, size);
+    }
+
+    /**
+     * Sorts the list in ascending order.
+     */
+    public void sort() {
+        sort(Arrays::sort);
+    }
+
+    /**
+     * Sorts the list in place with `sorter`, which sees the backing array
+     * and the range that holds the elements, for example a RadixSort.
+     *
+     * @param sorter
+     */
+    public void sort(LongSorter sorter) {
+        sorter.sort(array, 0, size);
+    }
+
+    /**
+     * Returns a stream over the elements, without copying or boxing them.
+     *
+     * The stream reads the backing array, so the list should not be
+     * changed while the stream is in use.
+     */
+    public LongStream stream() {
+        return Arrays.stream(array, 0, size);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LongArrayList)) {
+            return false;
+        }
+        LongArrayList that = (LongArrayList) obj;
+        if (size != that.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (array[i] != that.array[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Long.hashCode(array[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
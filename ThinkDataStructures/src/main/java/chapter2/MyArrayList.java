@@ -2,14 +2,20 @@ package chapter2;
 
 import java.io.ObjectStreamException;
 import java.util.*;
+import java.util.function.Consumer;
+
+import chapter2.sort.TimSort;
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
 
 /**
  * @param <T>
  * @author downey
  */
-public class MyArrayList<T> implements List<T> {
+public class MyArrayList<T> implements List<T>, MemoryFootprint {
     int size;                    // 요소의 개수를 추척
     private T[] array;           // 요소를 저장
+    int modCount = 0;            // 구조가 바뀐 횟수, fail-fast 반복자용
 
     /**
      *
@@ -46,6 +52,7 @@ public class MyArrayList<T> implements List<T> {
 
         array[size] = element;
         size++;
+        modCount++;
 
         return true;
     }
@@ -59,9 +66,7 @@ public class MyArrayList<T> implements List<T> {
         add(element);
 
         // shift the elements
-        for (int i = size - 1; i > index; i--) {
-            array[i] = array[i - 1];
-        }
+        System.arraycopy(array, index, array, index + 1, size - 1 - index);
         // put the new one in the right place
         array[index] = element;
     }
@@ -85,6 +90,7 @@ public class MyArrayList<T> implements List<T> {
         // note: this version does not actually null out the references
         // in the array, so it might delay garbage collection.
         size = 0;
+        modCount++;
     }
 
     @Override
@@ -142,10 +148,7 @@ public class MyArrayList<T> implements List<T> {
 
     @Override
     public Iterator<T> iterator() {
-        // make a copy of the array
-        T[] copy = Arrays.copyOf(array, size);
-        // make a list and return an iterator
-        return Arrays.asList(copy).iterator();
+        return new Itr(0);
     }
 
     @Override
@@ -161,18 +164,193 @@ public class MyArrayList<T> implements List<T> {
 
     @Override
     public ListIterator<T> listIterator() {
-        // make a copy of the array
-        T[] copy = Arrays.copyOf(array, size);
-        // make a list and return an iterator
-        return Arrays.asList(copy).listIterator();
+        return new Itr(0);
     }
 
     @Override
     public ListIterator<T> listIterator(int index) {
-        // make a copy of the array
-        T[] copy = Arrays.copyOf(array, size);
-        // make a list and return an iterator
-        return Arrays.asList(copy).listIterator(index);
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new Itr(index);
+    }
+
+    /**
+     * Returns a spliterator that reads the array directly and splits the
+     * index range in half, so parallel streams divide the work evenly.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ArraySpliterator(0, -1, 0);
+    }
+
+    /**
+     * Spliterator over a range of the array.
+     * <p>
+     * The end of the range is fixed the first time it is needed, so a
+     * spliterator made before the list is filled still sees every element.
+     * Like the iterator, it throws ConcurrentModificationException if the
+     * size of the list changes while it is in use, but only checks once
+     * at the end of forEachRemaining.
+     */
+    private class ArraySpliterator implements Spliterator<T> {
+        private int index;               // next element to visit
+        private int fence;               // one past the last, or -1 until first use
+        private int expectedModCount;
+
+        ArraySpliterator(int origin, int fence, int expectedModCount) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() {
+            if (fence < 0) {
+                expectedModCount = modCount;
+                fence = size;
+            }
+            return fence;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int hi = getFence();
+            int mid = (index + hi) >>> 1;
+            if (index >= mid) {
+                return null;
+            }
+            ArraySpliterator prefix = new ArraySpliterator(index, mid, expectedModCount);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            int hi = getFence();
+            if (index >= hi) {
+                return false;
+            }
+            T element = array[index++];
+            action.accept(element);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            int hi = getFence();
+            T[] a = array;
+            for (int i = index; i < hi; i++) {
+                action.accept(a[i]);
+            }
+            index = hi;
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    /**
+     * Iterator that reads the array directly.
+     * <p>
+     * Any change to the size of the list that doesn't go through the
+     * iterator makes the next call throw ConcurrentModificationException.
+     */
+    private class Itr implements ListIterator<T> {
+        private int cursor;              // index of the next element
+        private int lastReturned = -1;   // index of the last one returned, or -1
+        private int expectedModCount = modCount;
+
+        Itr(int index) {
+            cursor = index;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public T next() {
+            checkForComodification();
+            if (cursor >= size) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = cursor++;
+            return array[lastReturned];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        public T previous() {
+            checkForComodification();
+            if (cursor <= 0) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = --cursor;
+            return array[lastReturned];
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            MyArrayList.this.remove(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(T element) {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            array[lastReturned] = element;
+        }
+
+        @Override
+        public void add(T element) {
+            checkForComodification();
+            MyArrayList.this.add(cursor++, element);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
     }
 
     @Override
@@ -188,10 +366,10 @@ public class MyArrayList<T> implements List<T> {
     @Override
     public T remove(int index) {
         T elem = get(index);
-        for (int i = index; i < size - 1; i++) {
-            array[i] = array[i + 1];
-        }
+        System.arraycopy(array, index + 1, array, index, size - 1 - index);
         size--;
+        array[size] = null;
+        modCount++;
 
         return elem;
     }
@@ -223,13 +401,101 @@ public class MyArrayList<T> implements List<T> {
         return size;
     }
 
+    /**
+     * Counts the list and its whole array, including the unused slots.
+     */
+    @Override
+    public long estimatedBytes() {
+        return MemoryLayout.object(1, 8) + MemoryLayout.referenceArray(array.length);
+    }
+
+    /**
+     * Sorts the backing array in place with TimSort, instead of the
+     * default List.sort, which copies the elements out and back.
+     */
+    @Override
+    public void sort(Comparator<? super T> comparator) {
+        new TimSort().sort(array, 0, size, comparator);
+        modCount++;
+    }
+
     @Override
     public List<T> subList(int fromIndex, int toIndex) {
-        if (fromIndex < 0 || toIndex >= size || fromIndex > toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
             throw new IndexOutOfBoundsException();
         }
-        T[] copy = Arrays.copyOfRange(array, fromIndex, toIndex);
-        return Arrays.asList(copy);
+        return new SubList(fromIndex, toIndex);
+    }
+
+    /**
+     * View of the elements from `offset` to `offset + size` of the array.
+     * <p>
+     * Changes through the view show up in the list and the other way
+     * around.  After a change to the size of the list that doesn't go
+     * through the view, the view throws ConcurrentModificationException.
+     */
+    private class SubList extends AbstractList<T> implements RandomAccess {
+        private final int offset;
+        private int size;
+
+        SubList(int fromIndex, int toIndex) {
+            offset = fromIndex;
+            size = toIndex - fromIndex;
+            this.modCount = MyArrayList.this.modCount;
+        }
+
+        private void checkForComodification() {
+            if (MyArrayList.this.modCount != this.modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        private void checkIndex(int index, int limit) {
+            if (index < 0 || index >= limit) {
+                throw new IndexOutOfBoundsException();
+            }
+        }
+
+        @Override
+        public T get(int index) {
+            checkIndex(index, size);
+            checkForComodification();
+            return array[offset + index];
+        }
+
+        @Override
+        public T set(int index, T element) {
+            checkIndex(index, size);
+            checkForComodification();
+            T old = array[offset + index];
+            array[offset + index] = element;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        @Override
+        public void add(int index, T element) {
+            checkIndex(index, size + 1);
+            checkForComodification();
+            MyArrayList.this.add(offset + index, element);
+            this.modCount = MyArrayList.this.modCount;
+            size++;
+        }
+
+        @Override
+        public T remove(int index) {
+            checkIndex(index, size);
+            checkForComodification();
+            T old = MyArrayList.this.remove(offset + index);
+            this.modCount = MyArrayList.this.modCount;
+            size--;
+            return old;
+        }
     }
 
     @Override
@@ -6,8 +6,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
@@ -179,6 +185,49 @@ public class MyArrayListTest {
 		assertThat(iter.hasNext(), equalTo(false));
 	}
 
+	/**
+	 * Changing the list outside the iterator should make it fail fast.
+	 */
+	@Test
+	public void testIteratorFailFast() {
+		Iterator<Integer> iter = mylist.iterator();
+		iter.next();
+		mylist.add(4);
+		try {
+			iter.next();
+			fail();
+		} catch (ConcurrentModificationException e) {} // good
+
+		iter = mylist.iterator();
+		while (iter.hasNext()) {
+			if (iter.next() % 2 == 0) {
+				iter.remove();
+			}
+		}
+		assertThat(mylist.size(), is(2));
+		assertThat(mylist.get(0), is(new Integer(1)));
+		assertThat(mylist.get(1), is(new Integer(3)));
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#listIterator(int)}.
+	 */
+	@Test
+	public void testListIterator() {
+		ListIterator<Integer> iter = mylist.listIterator(1);
+		assertThat(iter.previous(), is(new Integer(1)));
+		assertThat(iter.next(), is(new Integer(1)));
+		assertThat(iter.next(), is(new Integer(2)));
+		iter.set(5);
+		iter.add(6);
+		assertThat(iter.nextIndex(), is(3));
+		assertThat(iter.next(), is(new Integer(3)));
+		assertThat(iter.hasNext(), equalTo(false));
+		assertThat(mylist.get(1), is(new Integer(5)));
+		assertThat(mylist.get(2), is(new Integer(6)));
+		assertThat(mylist.size(), is(4));
+	}
+
 	/**
 	 * Test method for {@link MyArrayList#lastIndexOf(Object)}.
 	 */
@@ -287,6 +336,76 @@ public class MyArrayListTest {
 		assertThat(sub.get(1), is(new Integer(3)));
 	}
 
+	/**
+	 * subList should be a view that writes through to the list.
+	 */
+	@Test
+	public void testSubListView() {
+		List<Integer> sub = mylist.subList(1, 3);
+		sub.set(0, 5);
+		assertThat(mylist.get(1), is(new Integer(5)));
+
+		sub.add(7);
+		assertThat(mylist.size(), is(4));
+		assertThat(mylist.get(3), is(new Integer(7)));
+		assertThat(mylist.get(2), is(new Integer(3)));
+
+		sub.remove(0);
+		assertThat(sub.size(), is(2));
+		assertThat(mylist.get(1), is(new Integer(3)));
+
+		// the whole list is a valid range too
+		assertThat(mylist.subList(0, mylist.size()).size(), is(3));
+
+		mylist.add(8);
+		try {
+			sub.get(0);
+			fail();
+		} catch (ConcurrentModificationException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#spliterator()}, through
+	 * sequential and parallel streams and by splitting by hand.
+	 */
+	@Test
+	public void testSpliterator() {
+		for (int i = 4; i <= 1000; i++) {
+			mylist.add(i);
+		}
+		assertThat(mylist.stream().mapToLong(x -> x).sum(), is(500500L));
+		assertThat(mylist.parallelStream().mapToLong(x -> x).sum(), is(500500L));
+
+		Spliterator<Integer> suffix = mylist.spliterator();
+		Spliterator<Integer> prefix = suffix.trySplit();
+		long[] total = new long[1];
+		if (prefix != null) {
+			prefix.forEachRemaining(x -> total[0] += x);
+			assertThat(total[0] > 0, is(true));
+		}
+		suffix.forEachRemaining(x -> total[0] += x);
+		assertThat(total[0], is(500500L));
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#estimatedBytes()}: each element
+	 * should cost at least a reference and no more than a small node.
+	 */
+	@Test
+	public void testEstimatedBytes() {
+		MemoryFootprint footprint = (MemoryFootprint) mylist;
+		long before = footprint.estimatedBytes();
+		for (int i = 0; i < 1000; i++) {
+			mylist.add(i);
+		}
+		long added = footprint.estimatedBytes() - before;
+		assertThat(added >= 1000L * MemoryLayout.REFERENCE_BYTES, is(true));
+		assertThat(added <= 1000L * 64, is(true));
+
+		mylist.clear();
+		assertThat(footprint.estimatedBytes() <= before + added, is(true));
+	}
+
 	/**
 	 * Test method for {@link MyArrayList#toArray()}.
 	 */
@@ -0,0 +1,404 @@
+package chapter2;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
+
+/**
+ * List backed by a circular buffer, so it can also be used as a Deque.
+ *
+ * The elements start at index `head` of the array and wrap around the end.
+ * Adding or removing at either end is amortized constant time, and an
+ * insert or remove in the middle moves whichever side is shorter, so it
+ * costs at most n/2 moves instead of n.  The capacity is always a power of
+ * two so the index can wrap with a mask.
+ *
+ * @param <T>
+ */
+public class MyCircularArrayList<T> extends AbstractList<T> implements Deque<T>, RandomAccess, MemoryFootprint {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private T[] array;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     *
+     */
+    @SuppressWarnings("unchecked")
+    public MyCircularArrayList() {
+        array = (T[]) new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the array index of element `index`.
+     */
+    private int slot(int index) {
+        return (head + index) & (array.length - 1);
+    }
+
+    /**
+     * Doubles the array if it is full, unwrapping the elements so they
+     * start at 0.
+     */
+    @SuppressWarnings("unchecked")
+    private void ensureRoom() {
+        if (size < array.length) {
+            return;
+        }
+        T[] bigger = (T[]) new Object[array.length * 2];
+        int firstPart = array.length - head;
+        System.arraycopy(array, head, bigger, 0, firstPart);
+        System.arraycopy(array, 0, bigger, firstPart, head);
+        array = bigger;
+        head = 0;
+    }
+
+    /**
+     * Moves `count` elements starting at element `from` so they start at
+     * element `to`, in up to a few System.arraycopy calls, one for each
+     * stretch that doesn't wrap around the end of the array.
+     *
+     * The elements may overlap as long as they move by one place at a time,
+     * which is all add and remove need.
+     */
+    private void move(int from, int to, int count) {
+        int length = array.length;
+        if (to < from) {
+            // moving down, so copy from the front
+            while (count > 0) {
+                int src = slot(from);
+                int dst = slot(to);
+                int n = Math.min(count, Math.min(length - src, length - dst));
+                System.arraycopy(array, src, array, dst, n);
+                from += n;
+                to += n;
+                count -= n;
+            }
+        } else {
+            // moving up, so copy from the back
+            while (count > 0) {
+                int src = slot(from + count - 1) + 1;
+                int dst = slot(to + count - 1) + 1;
+                int n = Math.min(count, Math.min(src, dst));
+                System.arraycopy(array, src - n, array, dst - n, n);
+                count -= n;
+            }
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        checkIndex(index);
+        return array[slot(index)];
+    }
+
+    @Override
+    public T set(int index, T element) {
+        checkIndex(index);
+        int i = slot(index);
+        T old = array[i];
+        array[i] = element;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the list and its whole array, including the unused slots.
+     */
+    @Override
+    public long estimatedBytes() {
+        return MemoryLayout.object(1, 12) + MemoryLayout.referenceArray(array.length);
+    }
+
+    @Override
+    public boolean add(T element) {
+        addLast(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureRoom();
+        if (index < size / 2) {
+            // move the front part down one place
+            head = (head - 1) & (array.length - 1);
+            move(1, 0, index);
+        } else {
+            // move the back part up one place
+            move(index, index + 1, size - index);
+        }
+        array[slot(index)] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public T remove(int index) {
+        checkIndex(index);
+        T old = array[slot(index)];
+        if (index < size / 2) {
+            // move the front part up one place
+            move(0, 1, index);
+            array[head] = null;
+            head = (head + 1) & (array.length - 1);
+        } else {
+            // move the back part down one place
+            move(index + 1, index, size - index - 1);
+            array[slot(size - 1)] = null;
+        }
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            array[slot(i)] = null;
+        }
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int indexOf(Object target) {
+        for (int i = 0; i < size; i++) {
+            if (equals(target, array[slot(i)])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object target) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (equals(target, array[slot(i)])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether an element of the array is the target.
+     * <p>
+     * Handles the special case that the target is null.
+     *
+     * @param target
+     * @param element
+     */
+    private boolean equals(Object target, Object element) {
+        if (target == null) {
+            return element == null;
+        } else {
+            return target.equals(element);
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> collection) {
+        for (T element : collection) {
+            addLast(element);
+        }
+        return !collection.isEmpty();
+    }
+
+    // Deque methods
+
+    @Override
+    public void addFirst(T element) {
+        ensureRoom();
+        head = (head - 1) & (array.length - 1);
+        array[head] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void addLast(T element) {
+        ensureRoom();
+        array[slot(size)] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean offerFirst(T element) {
+        addFirst(element);
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(T element) {
+        addLast(element);
+        return true;
+    }
+
+    @Override
+    public T removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return pollFirst();
+    }
+
+    @Override
+    public T removeLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return pollLast();
+    }
+
+    @Override
+    public T pollFirst() {
+        if (size == 0) {
+            return null;
+        }
+        T old = array[head];
+        array[head] = null;
+        head = (head + 1) & (array.length - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public T pollLast() {
+        if (size == 0) {
+            return null;
+        }
+        int i = slot(size - 1);
+        T old = array[i];
+        array[i] = null;
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public T getFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return array[head];
+    }
+
+    @Override
+    public T getLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return array[slot(size - 1)];
+    }
+
+    @Override
+    public T peekFirst() {
+        return size == 0 ? null : array[head];
+    }
+
+    @Override
+    public T peekLast() {
+        return size == 0 ? null : array[slot(size - 1)];
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        int index = indexOf(o);
+        if (index == -1) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        int index = lastIndexOf(o);
+        if (index == -1) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean offer(T element) {
+        return offerLast(element);
+    }
+
+    @Override
+    public T remove() {
+        return removeFirst();
+    }
+
+    @Override
+    public T poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public T element() {
+        return getFirst();
+    }
+
+    @Override
+    public T peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public void push(T element) {
+        addFirst(element);
+    }
+
+    @Override
+    public T pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new Iterator<T>() {
+            private final ListIterator<T> it = listIterator(size);
+
+            @Override
+            public boolean hasNext() {
+                return it.hasPrevious();
+            }
+
+            @Override
+            public T next() {
+                return it.previous();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package chapter2;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the MyArrayList tests against MyCircularArrayList, plus the Deque
+ * methods and inserts that wrap around the end of the array.
+ *
+ */
+public class MyCircularArrayListTest extends MyArrayListTest {
+
+	private MyCircularArrayList<Integer> deque;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		list = new ArrayList<Integer>();
+		list.add(1);
+		list.add(2);
+		list.add(3);
+
+		deque = new MyCircularArrayList<Integer>();
+		deque.addAll(list);
+		mylist = deque;
+	}
+
+	/**
+	 * Test method for {@link MyCircularArrayList#addFirst(Object)} and the
+	 * other Deque methods.
+	 */
+	@Test
+	public void testDeque() {
+		deque.addFirst(0);
+		deque.addLast(4);
+		assertThat(deque.toString(), is("[0, 1, 2, 3, 4]"));
+		assertThat(deque.peekFirst(), is(0));
+		assertThat(deque.peekLast(), is(4));
+
+		assertThat(deque.pollFirst(), is(0));
+		assertThat(deque.pollLast(), is(4));
+		assertThat(deque.pop(), is(1));
+		deque.push(9);
+		assertThat(deque.toString(), is("[9, 2, 3]"));
+
+		deque.clear();
+		assertThat(deque.pollFirst(), nullValue());
+		assertThat(deque.peekLast(), nullValue());
+	}
+
+	/**
+	 * Random inserts and removes at both ends and in the middle should
+	 * match ArrayList, while the elements wrap around and the array grows.
+	 */
+	@Test
+	public void testMatchesArrayList() {
+		List<Integer> expected = new ArrayList<Integer>(list);
+		Random random = new Random(11);
+		for (int i = 0; i < 20000; i++) {
+			int op = random.nextInt(6);
+			if (op == 0) {
+				deque.addFirst(i);
+				expected.add(0, i);
+			} else if (op == 1) {
+				deque.addLast(i);
+				expected.add(i);
+			} else if (op == 2) {
+				int index = random.nextInt(expected.size() + 1);
+				deque.add(index, i);
+				expected.add(index, i);
+			} else if (!expected.isEmpty()) {
+				int index = op == 3 ? 0 : random.nextInt(expected.size());
+				assertThat(deque.remove(index), is(expected.remove(index)));
+			}
+		}
+		assertThat(deque, is(expected));
+
+		List<Integer> reversed = new ArrayList<Integer>();
+		deque.descendingIterator().forEachRemaining(reversed::add);
+		assertThat(reversed.size(), is(expected.size()));
+		assertThat(reversed.get(0), is(expected.get(expected.size() - 1)));
+	}
+}
@@ -1,5 +1,10 @@
 package chapter2;
 
+/**
+ * Selection sort, which takes time proportional to n^2.  It is here to
+ * show how that grows; the sorters in chapter2.sort are the ones to use.
+ *
+ */
 public class SelectionSort {
     // i와 j의 위치에 있는 값을 바꿈
     public static void swapElements(int[] array, int i, int j) {
@@ -0,0 +1,194 @@
+package chapter2.sort;
+
+/**
+ * Dual-pivot quicksort, after Yaroslavskiy: two pivots split each range
+ * into three parts, which takes fewer swaps and cache misses than
+ * splitting into two.
+ *
+ * The pivots come from the tertiles of the range, so sorted and reversed
+ * input are not a bad case.  When most of the middle part equals one of
+ * the pivots, those elements are moved out of it, so inputs with many
+ * duplicates stay n log n.  If the recursion gets too deep anyway, the
+ * range is finished with heapsort, as in introsort.  A range that is
+ * already sorted is noticed in one pass and left alone.
+ *
+ */
+public class DualPivotQuicksort implements IntSorter, LongSorter {
+
+    @Override
+    public void sort(int[] array, int from, int to) {
+        Sorts.checkRange(array.length, from, to);
+        if (Sorts.isSorted(array, from, to)) {
+            return;
+        }
+        sort(array, from, to - 1, depthLimit(to - from));
+    }
+
+    @Override
+    public void sort(long[] array, int from, int to) {
+        Sorts.checkRange(array.length, from, to);
+        if (Sorts.isSorted(array, from, to)) {
+            return;
+        }
+        sort(array, from, to - 1, depthLimit(to - from));
+    }
+
+    /**
+     * Returns the recursion depth after which we give up on quicksort,
+     * twice the depth of a perfectly balanced recursion.
+     */
+    private static int depthLimit(int n) {
+        return 2 * (32 - Integer.numberOfLeadingZeros(n));
+    }
+
+    /**
+     * Sorts elements [left, right], both inclusive.
+     */
+    private static void sort(int[] a, int left, int right, int depth) {
+        int length = right - left + 1;
+        if (length < Sorts.INSERTION_SORT_THRESHOLD) {
+            Sorts.insertionSort(a, left, right + 1);
+            return;
+        }
+        if (depth == 0) {
+            Sorts.heapSort(a, left, right + 1);
+            return;
+        }
+
+        // take the pivots from the tertiles and move them to the ends
+        int third = length / 3;
+        int m1 = left + third;
+        int m2 = right - third;
+        if (a[m1] > a[m2]) {
+            Sorts.swap(a, m1, m2);
+        }
+        Sorts.swap(a, m1, left);
+        Sorts.swap(a, m2, right);
+        int p = a[left];
+        int q = a[right];
+
+        // a[left+1 .. less-1] < p, a[great+1 .. right-1] > q,
+        // and the elements in between are in [p, q]
+        int less = left + 1;
+        int great = right - 1;
+        for (int k = less; k <= great; k++) {
+            if (a[k] < p) {
+                Sorts.swap(a, k, less++);
+            } else if (a[k] > q) {
+                while (a[great] > q && k < great) {
+                    great--;
+                }
+                Sorts.swap(a, k, great--);
+                if (a[k] < p) {
+                    Sorts.swap(a, k, less++);
+                }
+            }
+        }
+        less--;
+        great++;
+        Sorts.swap(a, left, less);
+        Sorts.swap(a, right, great);
+
+        sort(a, left, less - 1, depth - 1);
+        sort(a, great + 1, right, depth - 1);
+        if (p == q) {
+            // everything in the middle equals the pivots
+            return;
+        }
+
+        int lo = less + 1;
+        int hi = great - 1;
+        if (hi - lo > length / 2) {
+            // the middle part is big, so it probably has many copies of
+            // the pivots; move them to its ends and leave them there
+            for (int k = lo; k <= hi; k++) {
+                if (a[k] == p) {
+                    Sorts.swap(a, k, lo++);
+                } else if (a[k] == q) {
+                    while (a[hi] == q && k < hi) {
+                        hi--;
+                    }
+                    Sorts.swap(a, k, hi--);
+                    if (a[k] == p) {
+                        Sorts.swap(a, k, lo++);
+                    }
+                }
+            }
+        }
+        sort(a, lo, hi, depth - 1);
+    }
+
+    private static void sort(long[] a, int left, int right, int depth) {
+        int length = right - left + 1;
+        if (length < Sorts.INSERTION_SORT_THRESHOLD) {
+            Sorts.insertionSort(a, left, right + 1);
+            return;
+        }
+        if (depth == 0) {
+            Sorts.heapSort(a, left, right + 1);
+            return;
+        }
+
+        // take the pivots from the tertiles and move them to the ends
+        int third = length / 3;
+        int m1 = left + third;
+        int m2 = right - third;
+        if (a[m1] > a[m2]) {
+            Sorts.swap(a, m1, m2);
+        }
+        Sorts.swap(a, m1, left);
+        Sorts.swap(a, m2, right);
+        long p = a[left];
+        long q = a[right];
+
+        // a[left+1 .. less-1] < p, a[great+1 .. right-1] > q,
+        // and the elements in between are in [p, q]
+        int less = left + 1;
+        int great = right - 1;
+        for (int k = less; k <= great; k++) {
+            if (a[k] < p) {
+                Sorts.swap(a, k, less++);
+            } else if (a[k] > q) {
+                while (a[great] > q && k < great) {
+                    great--;
+                }
+                Sorts.swap(a, k, great--);
+                if (a[k] < p) {
+                    Sorts.swap(a, k, less++);
+                }
+            }
+        }
+        less--;
+        great++;
+        Sorts.swap(a, left, less);
+        Sorts.swap(a, right, great);
+
+        sort(a, left, less - 1, depth - 1);
+        sort(a, great + 1, right, depth - 1);
+        if (p == q) {
+            // everything in the middle equals the pivots
+            return;
+        }
+
+        int lo = less + 1;
+        int hi = great - 1;
+        if (hi - lo > length / 2) {
+            // the middle part is big, so it probably has many copies of
+            // the pivots; move them to its ends and leave them there
+            for (int k = lo; k <= hi; k++) {
+                if (a[k] == p) {
+                    Sorts.swap(a, k, lo++);
+                } else if (a[k] == q) {
+                    while (a[hi] == q && k < hi) {
+                        hi--;
+                    }
+                    Sorts.swap(a, k, hi--);
+                    if (a[k] == p) {
+                        Sorts.swap(a, k, lo++);
+                    }
+                }
+            }
+        }
+        sort(a, lo, hi, depth - 1);
+    }
+}
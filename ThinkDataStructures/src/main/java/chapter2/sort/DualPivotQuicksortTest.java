@@ -0,0 +1,133 @@
+package chapter2.sort;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks a sorter against Arrays.sort on the inputs that tend to break
+ * sorts: sorted, reversed, many duplicates, extreme values, and ranges in
+ * the middle of an array.
+ *
+ * Subclasses run the same tests against the other sorters.
+ *
+ */
+public class DualPivotQuicksortTest {
+
+	protected IntSorter sorter;
+	protected LongSorter longSorter;
+
+	private Random random;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		DualPivotQuicksort quicksort = new DualPivotQuicksort();
+		sorter = quicksort;
+		longSorter = quicksort;
+		random = new Random(11);
+	}
+
+	private void checkSort(int[] array) {
+		int[] expected = array.clone();
+		Arrays.sort(expected);
+		sorter.sort(array);
+		assertThat(Arrays.equals(array, expected), is(true));
+	}
+
+	private void checkSort(long[] array) {
+		long[] expected = array.clone();
+		Arrays.sort(expected);
+		longSorter.sort(array);
+		assertThat(Arrays.equals(array, expected), is(true));
+	}
+
+	private int[] randomInts(int n, int bound) {
+		int[] array = new int[n];
+		for (int i = 0; i < n; i++) {
+			array[i] = bound == 0 ? random.nextInt() : random.nextInt(bound);
+		}
+		return array;
+	}
+
+	@Test
+	public void testSmall() {
+		checkSort(new int[0]);
+		checkSort(new int[] {1});
+		checkSort(new int[] {2, 1});
+		for (int n = 3; n < 100; n++) {
+			checkSort(randomInts(n, 0));
+		}
+	}
+
+	@Test
+	public void testRandom() {
+		checkSort(randomInts(100000, 0));
+	}
+
+	@Test
+	public void testSortedAndReversed() {
+		int[] array = new int[100000];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = i;
+		}
+		checkSort(array.clone());
+		for (int i = 0; i < array.length; i++) {
+			array[i] = -i;
+		}
+		checkSort(array);
+	}
+
+	@Test
+	public void testDuplicates() {
+		checkSort(randomInts(100000, 3));
+		checkSort(randomInts(100000, 100));
+		checkSort(new int[50000]);
+	}
+
+	@Test
+	public void testExtremes() {
+		int[] array = randomInts(10000, 0);
+		for (int i = 0; i < array.length; i += 7) {
+			array[i] = i % 2 == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		}
+		checkSort(array);
+	}
+
+	@Test
+	public void testRange() {
+		int[] array = randomInts(50000, 0);
+		int[] expected = array.clone();
+		Arrays.sort(expected, 1000, 40000);
+		sorter.sort(array, 1000, 40000);
+		assertThat(Arrays.equals(array, expected), is(true));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testBadRange() {
+		sorter.sort(new int[10], 5, 11);
+	}
+
+	@Test
+	public void testLongs() {
+		long[] array = new long[100000];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = random.nextLong();
+		}
+		array[0] = Long.MIN_VALUE;
+		array[1] = Long.MAX_VALUE;
+		checkSort(array);
+
+		for (int i = 0; i < array.length; i++) {
+			array[i] = random.nextInt(50) - 25;
+		}
+		checkSort(array);
+	}
+}
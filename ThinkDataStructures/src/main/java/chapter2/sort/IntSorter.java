@@ -0,0 +1,26 @@
+package chapter2.sort;
+
+/**
+ * Sorts int arrays in ascending order, in place.
+ *
+ */
+public interface IntSorter {
+
+    /**
+     * Sorts elements [from, to) of `array`.
+     *
+     * @param array
+     * @param from first index to sort, inclusive
+     * @param to last index to sort, exclusive
+     */
+    void sort(int[] array, int from, int to);
+
+    /**
+     * Sorts all of `array`.
+     *
+     * @param array
+     */
+    default void sort(int[] array) {
+        sort(array, 0, array.length);
+    }
+}
@@ -0,0 +1,26 @@
+package chapter2.sort;
+
+/**
+ * Sorts long arrays in ascending order, in place.
+ *
+ */
+public interface LongSorter {
+
+    /**
+     * Sorts elements [from, to) of `array`.
+     *
+     * @param array
+     * @param from first index to sort, inclusive
+     * @param to last index to sort, exclusive
+     */
+    void sort(long[] array, int from, int to);
+
+    /**
+     * Sorts all of `array`.
+     *
+     * @param array
+     */
+    default void sort(long[] array) {
+        sort(array, 0, array.length);
+    }
+}
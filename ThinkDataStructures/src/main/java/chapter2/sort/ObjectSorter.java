@@ -0,0 +1,21 @@
+package chapter2.sort;
+
+import java.util.Comparator;
+
+/**
+ * Sorts object arrays in place.  The sort should be stable, so equal
+ * elements keep their order, as List.sort promises.
+ *
+ */
+public interface ObjectSorter {
+
+    /**
+     * Sorts elements [from, to) of `array`.
+     *
+     * @param array
+     * @param from first index to sort, inclusive
+     * @param to last index to sort, exclusive
+     * @param comparator order to sort in, or null for the natural order
+     */
+    <T> void sort(T[] array, int from, int to, Comparator<? super T> comparator);
+}
@@ -0,0 +1,175 @@
+package chapter2.sort;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Merge sort that sorts the two halves of each range in parallel, as
+ * fork/join tasks.
+ *
+ * Ranges shorter than the threshold are sorted sequentially with
+ * DualPivotQuicksort.  To merge, the left half is copied to a buffer and
+ * merged back with the right half, so one buffer of n/2 words is shared
+ * by all the tasks, each using the part that matches its range.  The
+ * merges themselves are sequential, so
+ * the last merge limits the speedup on many cores.  If the halves are
+ * already in order, the merge is skipped, so sorted input is fast.
+ *
+ */
+public class ParallelMergeSort implements IntSorter, LongSorter {
+
+    public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final DualPivotQuicksort leafSorter = new DualPivotQuicksort();
+
+    /**
+     * Uses the common pool.
+     */
+    public ParallelMergeSort() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param pool pool to run the tasks in
+     * @param threshold ranges shorter than this are sorted sequentially
+     */
+    public ParallelMergeSort(ForkJoinPool pool, int threshold) {
+        if (threshold < 2) {
+            throw new IllegalArgumentException("threshold must be at least 2");
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void sort(int[] array, int from, int to) {
+        Sorts.checkRange(array.length, from, to);
+        if (to - from < threshold) {
+            leafSorter.sort(array, from, to);
+            return;
+        }
+        int[] buffer = new int[(to - from + 1) / 2];
+        pool.invoke(new IntTask(array, buffer, from, to, from));
+    }
+
+    @Override
+    public void sort(long[] array, int from, int to) {
+        Sorts.checkRange(array.length, from, to);
+        if (to - from < threshold) {
+            leafSorter.sort(array, from, to);
+            return;
+        }
+        long[] buffer = new long[(to - from + 1) / 2];
+        pool.invoke(new LongTask(array, buffer, from, to, from));
+    }
+
+    /**
+     * Sorts elements [from, to) of the array.  Element i of the array may
+     * use element (i - base) / 2 of the buffer, so the buffer ranges of
+     * two tasks running at the same time never overlap.
+     */
+    private class IntTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] array;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final int base;
+
+        IntTask(int[] array, int[] buffer, int from, int to, int base) {
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.base = base;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < threshold) {
+                leafSorter.sort(array, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new IntTask(array, buffer, from, mid, base),
+                    new IntTask(array, buffer, mid, to, base));
+            if (array[mid - 1] <= array[mid]) {
+                return;
+            }
+            merge(mid);
+        }
+
+        private void merge(int mid) {
+            int start = (from - base) / 2;
+            int leftLength = mid - from;
+            System.arraycopy(array, from, buffer, start, leftLength);
+            int i = start;
+            int iEnd = start + leftLength;
+            int j = mid;
+            int k = from;
+            while (i < iEnd && j < to) {
+                // take from the left on ties, so the sort is stable
+                if (array[j] < buffer[i]) {
+                    array[k++] = array[j++];
+                } else {
+                    array[k++] = buffer[i++];
+                }
+            }
+            System.arraycopy(buffer, i, array, k, iEnd - i);
+        }
+    }
+
+    private class LongTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] array;
+        private final long[] buffer;
+        private final int from;
+        private final int to;
+        private final int base;
+
+        LongTask(long[] array, long[] buffer, int from, int to, int base) {
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.base = base;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < threshold) {
+                leafSorter.sort(array, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new LongTask(array, buffer, from, mid, base),
+                    new LongTask(array, buffer, mid, to, base));
+            if (array[mid - 1] <= array[mid]) {
+                return;
+            }
+            merge(mid);
+        }
+
+        private void merge(int mid) {
+            int start = (from - base) / 2;
+            int leftLength = mid - from;
+            System.arraycopy(array, from, buffer, start, leftLength);
+            int i = start;
+            int iEnd = start + leftLength;
+            int j = mid;
+            int k = from;
+            while (i < iEnd && j < to) {
+                if (array[j] < buffer[i]) {
+                    array[k++] = array[j++];
+                } else {
+                    array[k++] = buffer[i++];
+                }
+            }
+            System.arraycopy(buffer, i, array, k, iEnd - i);
+        }
+    }
+}
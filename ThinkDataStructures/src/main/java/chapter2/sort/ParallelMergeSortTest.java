@@ -0,0 +1,54 @@
+package chapter2.sort;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the sorter tests against ParallelMergeSort, with a small threshold
+ * so even the short inputs are split into many tasks.
+ *
+ */
+public class ParallelMergeSortTest extends DualPivotQuicksortTest {
+
+	private ForkJoinPool pool;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		pool = new ForkJoinPool(4);
+		ParallelMergeSort mergeSort = new ParallelMergeSort(pool, 16);
+		sorter = mergeSort;
+		longSorter = mergeSort;
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * The default constructor uses the common pool and the default
+	 * threshold, so this input is split into a few dozen tasks.
+	 */
+	@Test
+	public void testDefaultPool() {
+		int[] array = new int[100000];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = array.length - i;
+		}
+		new ParallelMergeSort().sort(array);
+		for (int i = 0; i < array.length; i++) {
+			assertThat(array[i], is(i + 1));
+		}
+	}
+}
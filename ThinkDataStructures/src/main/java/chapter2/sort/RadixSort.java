@@ -0,0 +1,136 @@
+package chapter2.sort;
+
+import java.util.Arrays;
+
+/**
+ * Least-significant-digit radix sort on 8-bit digits.
+ *
+ * Each pass counts the digits, then moves every element to its place in
+ * a buffer, so an int takes at most 4 linear passes and a long 8, with no
+ * comparisons.  Passes where every element has the same digit are
+ * skipped, so small values cost fewer passes.  The sign bit is flipped
+ * when reading the top digit, so negative numbers sort first.
+ *
+ * The buffer is as long as the range, so this sort needs n extra words;
+ * short ranges are left to DualPivotQuicksort.
+ *
+ */
+public class RadixSort implements IntSorter, LongSorter {
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int MASK = RADIX - 1;
+
+    // below this, the counting passes cost more than they save
+    private static final int MIN_LENGTH = 256;
+
+    private final DualPivotQuicksort fallback = new DualPivotQuicksort();
+
+    @Override
+    public void sort(int[] array, int from, int to) {
+        Sorts.checkRange(array.length, from, to);
+        int n = to - from;
+        if (n < MIN_LENGTH) {
+            fallback.sort(array, from, to);
+            return;
+        }
+        int[] src = array;
+        int srcOffset = from;
+        int[] dst = new int[n];
+        int dstOffset = 0;
+        int[] count = new int[RADIX + 1];
+
+        for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+            // flip the sign bit in the top digit
+            int flip = shift == Integer.SIZE - RADIX_BITS ? RADIX / 2 : 0;
+
+            Arrays.fill(count, 0);
+            for (int i = srcOffset; i < srcOffset + n; i++) {
+                count[((src[i] >>> shift) & MASK ^ flip) + 1]++;
+            }
+            if (isOneDigit(count, n)) {
+                continue;
+            }
+            for (int d = 0; d < RADIX; d++) {
+                count[d + 1] += count[d];
+            }
+            for (int i = srcOffset; i < srcOffset + n; i++) {
+                int x = src[i];
+                dst[dstOffset + count[(x >>> shift) & MASK ^ flip]++] = x;
+            }
+
+            int[] tempArray = src;
+            src = dst;
+            dst = tempArray;
+            int tempOffset = srcOffset;
+            srcOffset = dstOffset;
+            dstOffset = tempOffset;
+        }
+        if (src != array) {
+            System.arraycopy(src, srcOffset, array, from, n);
+        }
+    }
+
+    @Override
+    public void sort(long[] array, int from, int to) {
+        Sorts.checkRange(array.length, from, to);
+        int n = to - from;
+        if (n < MIN_LENGTH) {
+            fallback.sort(array, from, to);
+            return;
+        }
+        long[] src = array;
+        int srcOffset = from;
+        long[] dst = new long[n];
+        int dstOffset = 0;
+        int[] count = new int[RADIX + 1];
+
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            // flip the sign bit in the top digit
+            int flip = shift == Long.SIZE - RADIX_BITS ? RADIX / 2 : 0;
+
+            Arrays.fill(count, 0);
+            for (int i = srcOffset; i < srcOffset + n; i++) {
+                count[((int) (src[i] >>> shift) & MASK ^ flip) + 1]++;
+            }
+            if (isOneDigit(count, n)) {
+                continue;
+            }
+            for (int d = 0; d < RADIX; d++) {
+                count[d + 1] += count[d];
+            }
+            for (int i = srcOffset; i < srcOffset + n; i++) {
+                long x = src[i];
+                dst[dstOffset + count[(int) (x >>> shift) & MASK ^ flip]++] = x;
+            }
+
+            long[] tempArray = src;
+            src = dst;
+            dst = tempArray;
+            int tempOffset = srcOffset;
+            srcOffset = dstOffset;
+            dstOffset = tempOffset;
+        }
+        if (src != array) {
+            System.arraycopy(src, srcOffset, array, from, n);
+        }
+    }
+
+    /**
+     * Checks whether every element has the same digit, in which case the
+     * pass would not move anything.
+     *
+     * @param count number of elements with each digit, shifted up by one
+     */
+    private static boolean isOneDigit(int[] count, int n) {
+        for (int d = 1; d <= RADIX; d++) {
+            if (count[d] == n) {
+                return true;
+            }
+            if (count[d] != 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package chapter2.sort;
+
+import org.junit.Before;
+
+/**
+ * Runs the sorter tests against RadixSort.
+ *
+ */
+public class RadixSortTest extends DualPivotQuicksortTest {
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		RadixSort radixSort = new RadixSort();
+		sorter = radixSort;
+		longSorter = radixSort;
+	}
+}
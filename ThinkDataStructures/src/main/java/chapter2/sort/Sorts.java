@@ -0,0 +1,141 @@
+package chapter2.sort;
+
+/**
+ * Helpers shared by the sorters.
+ *
+ */
+final class Sorts {
+
+    // ranges shorter than this are insertion sorted
+    static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private Sorts() {
+    }
+
+    static void checkRange(int length, int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+        }
+    }
+
+    static void swap(int[] array, int i, int j) {
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    static void swap(long[] array, int i, int j) {
+        long temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /**
+     * Checks whether elements [from, to) are already in order.  On random
+     * input this stops after a few elements, so it is cheap to try.
+     */
+    static boolean isSorted(int[] array, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (array[i - 1] > array[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isSorted(long[] array, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (array[i - 1] > array[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sorts elements [from, to) by insertion, which is the fastest way to
+     * sort a few dozen elements.
+     */
+    static void insertionSort(int[] array, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int x = array[i];
+            int j = i - 1;
+            while (j >= from && array[j] > x) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = x;
+        }
+    }
+
+    static void insertionSort(long[] array, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long x = array[i];
+            int j = i - 1;
+            while (j >= from && array[j] > x) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = x;
+        }
+    }
+
+    /**
+     * Sorts elements [from, to) with heapsort, which is never worse than
+     * n log n; quicksort falls back to it when the partitions keep coming
+     * out lopsided.
+     */
+    static void heapSort(int[] array, int from, int to) {
+        int n = to - from;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(array, from, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(array, from, from + end);
+            siftDown(array, from, 0, end);
+        }
+    }
+
+    private static void siftDown(int[] array, int base, int i, int n) {
+        int x = array[base + i];
+        while (2 * i + 1 < n) {
+            int child = 2 * i + 1;
+            if (child + 1 < n && array[base + child + 1] > array[base + child]) {
+                child++;
+            }
+            if (array[base + child] <= x) {
+                break;
+            }
+            array[base + i] = array[base + child];
+            i = child;
+        }
+        array[base + i] = x;
+    }
+
+    static void heapSort(long[] array, int from, int to) {
+        int n = to - from;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(array, from, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(array, from, from + end);
+            siftDown(array, from, 0, end);
+        }
+    }
+
+    private static void siftDown(long[] array, int base, int i, int n) {
+        long x = array[base + i];
+        while (2 * i + 1 < n) {
+            int child = 2 * i + 1;
+            if (child + 1 < n && array[base + child + 1] > array[base + child]) {
+                child++;
+            }
+            if (array[base + child] <= x) {
+                break;
+            }
+            array[base + i] = array[base + child];
+            i = child;
+        }
+        array[base + i] = x;
+    }
+}
@@ -0,0 +1,302 @@
+package chapter2.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Stable merge sort in the style of TimSort, which takes advantage of runs
+ * that are already in order.
+ *
+ * It splits the range into natural runs, ascending or strictly
+ * descending (which it reverses), and extends short runs to a minimum
+ * length with binary insertion sort.  The runs go on a stack whose
+ * lengths are kept growing at least as fast as the Fibonacci numbers,
+ * so merges stay balanced and the stack stays short.  Before each merge,
+ * binary searches find the elements of the two runs that are already in
+ * place, so sorted or nearly sorted input takes close to linear time.
+ *
+ * Unlike java.util.TimSort, this version has no galloping mode inside
+ * the merge, so it is simpler and a little slower on inputs made of long
+ * interleaved runs.
+ *
+ */
+public class TimSort implements ObjectSorter {
+
+    // ranges shorter than this are sorted with binary insertion sort
+    private static final int MIN_MERGE = 32;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> void sort(T[] array, int from, int to, Comparator<? super T> comparator) {
+        Sorts.checkRange(array.length, from, to);
+        if (comparator == null) {
+            comparator = (Comparator<? super T>) Comparator.naturalOrder();
+        }
+        int n = to - from;
+        if (n < 2) {
+            return;
+        }
+        if (n < MIN_MERGE) {
+            int run = countRunAndMakeAscending(array, from, to, comparator);
+            binaryInsertionSort(array, from, to, from + run, comparator);
+            return;
+        }
+
+        Merger<T> merger = new Merger<T>(array, comparator, n);
+        int minRun = minRunLength(n);
+        int lo = from;
+        int remaining = n;
+        while (remaining > 0) {
+            int run = countRunAndMakeAscending(array, lo, to, comparator);
+            if (run < minRun) {
+                int forced = Math.min(remaining, minRun);
+                binaryInsertionSort(array, lo, lo + forced, lo + run, comparator);
+                run = forced;
+            }
+            merger.pushRun(lo, run);
+            merger.mergeCollapse();
+            lo += run;
+            remaining -= run;
+        }
+        merger.mergeForceCollapse();
+    }
+
+    /**
+     * Returns a run length between MIN_MERGE/2 and MIN_MERGE such that n
+     * divided by it is a power of two or a little less, which keeps the
+     * final merges balanced.
+     */
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= n & 1;
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    /**
+     * Returns the length of the run that starts at `lo`, reversing it
+     * first if it is strictly descending.  Descending runs have to be
+     * strict, or reversing them would break stability.
+     */
+    private static <T> int countRunAndMakeAscending(T[] a, int lo, int hi, Comparator<? super T> c) {
+        int runHi = lo + 1;
+        if (runHi == hi) {
+            return 1;
+        }
+        if (c.compare(a[runHi++], a[lo]) < 0) {
+            while (runHi < hi && c.compare(a[runHi], a[runHi - 1]) < 0) {
+                runHi++;
+            }
+            reverse(a, lo, runHi);
+        } else {
+            while (runHi < hi && c.compare(a[runHi], a[runHi - 1]) >= 0) {
+                runHi++;
+            }
+        }
+        return runHi - lo;
+    }
+
+    private static void reverse(Object[] a, int lo, int hi) {
+        hi--;
+        while (lo < hi) {
+            Object temp = a[lo];
+            a[lo++] = a[hi];
+            a[hi--] = temp;
+        }
+    }
+
+    /**
+     * Sorts [lo, hi), given that [lo, start) is already sorted, by
+     * inserting each element after the elements not greater than it.
+     */
+    private static <T> void binaryInsertionSort(T[] a, int lo, int hi, int start, Comparator<? super T> c) {
+        for (int i = start; i < hi; i++) {
+            T pivot = a[i];
+            int left = lo;
+            int right = i;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (c.compare(pivot, a[mid]) < 0) {
+                    right = mid;
+                } else {
+                    left = mid + 1;
+                }
+            }
+            System.arraycopy(a, left, a, left + 1, i - left);
+            a[left] = pivot;
+        }
+    }
+
+    /**
+     * The stack of pending runs and the buffer for merging them.
+     */
+    private static class Merger<T> {
+        private final T[] a;
+        private final Comparator<? super T> c;
+        private Object[] tmp;
+
+        // long enough for any array an int can index, given the invariants
+        private final int[] runBase = new int[49];
+        private final int[] runLen = new int[49];
+        private int stackSize = 0;
+
+        Merger(T[] a, Comparator<? super T> c, int n) {
+            this.a = a;
+            this.c = c;
+            this.tmp = new Object[Math.min(256, n / 2)];
+        }
+
+        void pushRun(int base, int len) {
+            runBase[stackSize] = base;
+            runLen[stackSize] = len;
+            stackSize++;
+        }
+
+        /**
+         * Merges runs until every run on the stack is longer than the two
+         * above it combined, and longer than the one above it.
+         */
+        void mergeCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1]
+                        || n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1]) {
+                    if (runLen[n - 1] < runLen[n + 1]) {
+                        n--;
+                    }
+                } else if (runLen[n] > runLen[n + 1]) {
+                    break;
+                }
+                mergeAt(n);
+            }
+        }
+
+        void mergeForceCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+                    n--;
+                }
+                mergeAt(n);
+            }
+        }
+
+        /**
+         * Merges runs i and i+1 of the stack.
+         */
+        private void mergeAt(int i) {
+            int base1 = runBase[i];
+            int len1 = runLen[i];
+            int base2 = runBase[i + 1];
+            int len2 = runLen[i + 1];
+
+            runLen[i] = len1 + len2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLen[i + 1] = runLen[i + 2];
+            }
+            stackSize--;
+
+            // elements of run 1 not greater than the first of run 2 are in place
+            int k = countNotGreater(a[base2], base1, len1);
+            base1 += k;
+            len1 -= k;
+            if (len1 == 0) {
+                return;
+            }
+            // and so are the elements of run 2 not less than the last of run 1
+            len2 = countLess(a[base1 + len1 - 1], base2, len2);
+            if (len2 == 0) {
+                return;
+            }
+
+            if (len1 <= len2) {
+                mergeLo(base1, len1, base2, len2);
+            } else {
+                mergeHi(base1, len1, base2, len2);
+            }
+        }
+
+        private int countNotGreater(T key, int base, int len) {
+            int left = 0;
+            int right = len;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (c.compare(a[base + mid], key) <= 0) {
+                    left = mid + 1;
+                } else {
+                    right = mid;
+                }
+            }
+            return left;
+        }
+
+        private int countLess(T key, int base, int len) {
+            int left = 0;
+            int right = len;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (c.compare(a[base + mid], key) < 0) {
+                    left = mid + 1;
+                } else {
+                    right = mid;
+                }
+            }
+            return left;
+        }
+
+        private Object[] ensureCapacity(int length) {
+            if (tmp.length < length) {
+                tmp = new Object[Math.max(length, Math.min(tmp.length * 2, a.length / 2 + 1))];
+            }
+            return tmp;
+        }
+
+        /**
+         * Merges from the front, with run 1 (the shorter) in the buffer.
+         */
+        @SuppressWarnings("unchecked")
+        private void mergeLo(int base1, int len1, int base2, int len2) {
+            Object[] t = ensureCapacity(len1);
+            System.arraycopy(a, base1, t, 0, len1);
+            int i = 0;
+            int j = base2;
+            int jEnd = base2 + len2;
+            int k = base1;
+            while (i < len1 && j < jEnd) {
+                // take from run 1 on ties, so the sort is stable
+                if (c.compare(a[j], (T) t[i]) < 0) {
+                    a[k++] = a[j++];
+                } else {
+                    a[k++] = (T) t[i++];
+                }
+            }
+            System.arraycopy(t, i, a, k, len1 - i);
+            Arrays.fill(t, 0, len1, null);
+        }
+
+        /**
+         * Merges from the back, with run 2 (the shorter) in the buffer.
+         */
+        @SuppressWarnings("unchecked")
+        private void mergeHi(int base1, int len1, int base2, int len2) {
+            Object[] t = ensureCapacity(len2);
+            System.arraycopy(a, base2, t, 0, len2);
+            int i = base1 + len1 - 1;
+            int j = len2 - 1;
+            int k = base2 + len2 - 1;
+            while (i >= base1 && j >= 0) {
+                // take from run 2 on ties, so the sort is stable
+                if (c.compare((T) t[j], a[i]) < 0) {
+                    a[k--] = a[i--];
+                } else {
+                    a[k--] = (T) t[j--];
+                }
+            }
+            System.arraycopy(t, 0, a, k - j, j + 1);
+            Arrays.fill(t, 0, len2, null);
+        }
+    }
+}
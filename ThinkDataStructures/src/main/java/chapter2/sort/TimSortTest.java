@@ -0,0 +1,122 @@
+package chapter2.sort;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import chapter2.MyArrayList;
+
+/**
+ * Tests for TimSort, through MyArrayList.sort.
+ *
+ */
+public class TimSortTest {
+
+	private Random random;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		random = new Random(3);
+	}
+
+	/**
+	 * Sorts a MyArrayList and an ArrayList the same way and compares them.
+	 */
+	private void checkSort(List<Integer> values, Comparator<Integer> comparator) {
+		List<Integer> expected = new ArrayList<Integer>(values);
+		expected.sort(comparator);
+		List<Integer> mylist = new MyArrayList<Integer>();
+		mylist.addAll(values);
+		mylist.sort(comparator);
+		assertThat(mylist.size(), is(expected.size()));
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(mylist.get(i), is(expected.get(i)));
+		}
+	}
+
+	@Test
+	public void testSmall() {
+		for (int n = 0; n < 100; n++) {
+			List<Integer> values = new ArrayList<Integer>();
+			for (int i = 0; i < n; i++) {
+				values.add(random.nextInt());
+			}
+			checkSort(values, null);
+		}
+	}
+
+	@Test
+	public void testRandom() {
+		List<Integer> values = new ArrayList<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			values.add(random.nextInt());
+		}
+		checkSort(values, null);
+		checkSort(values, Collections.reverseOrder());
+	}
+
+	/**
+	 * Runs of different lengths, ascending and descending, so the merges
+	 * go both ways.
+	 */
+	@Test
+	public void testRuns() {
+		List<Integer> values = new ArrayList<Integer>();
+		for (int run = 0; run < 500; run++) {
+			int length = 1 + random.nextInt(1000);
+			int start = random.nextInt(100000);
+			int step = random.nextBoolean() ? 1 : -1;
+			for (int i = 0; i < length; i++) {
+				values.add(start + step * i);
+			}
+		}
+		checkSort(values, null);
+	}
+
+	/**
+	 * Elements that compare equal keep their order.
+	 */
+	@Test
+	public void testStable() {
+		List<Integer> values = new ArrayList<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			// the key is the value mod 10; the rest records the original order
+			values.add(i * 10 + random.nextInt(10));
+		}
+		Comparator<Integer> byKey = Comparator.comparing(x -> x % 10);
+		List<Integer> mylist = new MyArrayList<Integer>();
+		mylist.addAll(values);
+		mylist.sort(byKey);
+		for (int i = 1; i < mylist.size(); i++) {
+			int a = mylist.get(i - 1);
+			int b = mylist.get(i);
+			if (a % 10 == b % 10) {
+				assertThat(a < b, is(true));
+			}
+		}
+	}
+
+	@Test
+	public void testRange() {
+		Integer[] array = new Integer[1000];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = array.length - i;
+		}
+		new TimSort().sort(array, 100, 900, null);
+		assertThat(array[99], is(901));
+		assertThat(array[100], is(101));
+		assertThat(array[899], is(900));
+		assertThat(array[900], is(100));
+	}
+}
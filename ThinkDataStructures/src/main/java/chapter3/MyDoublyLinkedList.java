@@ -0,0 +1,297 @@
+/**
+ *
+ */
+package chapter3;
+
+import java.util.AbstractSequentialList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
+
+/**
+ * Doubly-linked list with sentinel nodes at both ends.
+ *
+ * Because of the sentinels, adding and removing never has to check for an
+ * empty list or an end of the list, and both ends can be reached in
+ * constant time.  Looking up an index walks from whichever end is closer.
+ * The ListIterator adds and removes at the cursor in constant time.
+ *
+ * @param <E>
+ *
+ */
+public class MyDoublyLinkedList<E> extends AbstractSequentialList<E> implements List<E>, MemoryFootprint {
+
+    private static class Node<E> {
+        public E data;
+        public Node<E> prev;
+        public Node<E> next;
+
+        public Node(E data) {
+            this.data = data;
+        }
+
+        public String toString() {
+            return "Node(" + data + ")";
+        }
+    }
+
+    private final Node<E> head = new Node<E>(null);     // sentinel before the first node
+    private final Node<E> tail = new Node<E>(null);     // sentinel after the last node
+    private int size;
+
+    public MyDoublyLinkedList() {
+        head.next = tail;
+        tail.prev = head;
+        size = 0;
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        // run a few simple tests
+        List<Integer> mll = new MyDoublyLinkedList<Integer>();
+        mll.add(1);
+        mll.add(2);
+        mll.add(3);
+        System.out.println(Arrays.toString(mll.toArray()) + " size = " + mll.size());
+
+        mll.remove(new Integer(2));
+        System.out.println(Arrays.toString(mll.toArray()) + " size = " + mll.size());
+    }
+
+    /**
+     * Puts a new node with `element` in front of `node`.
+     */
+    private void linkBefore(E element, Node<E> node) {
+        Node<E> added = new Node<E>(element);
+        added.prev = node.prev;
+        added.next = node;
+        node.prev.next = added;
+        node.prev = added;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Takes `node` out of the list and returns its element.
+     */
+    private E unlink(Node<E> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        size--;
+        modCount++;
+        return node.data;
+    }
+
+    /**
+     * Returns the node at `index`, walking from the closer end.  An index
+     * of `size` gives the tail sentinel.
+     *
+     * @param index
+     * @return
+     */
+    private Node<E> getNode(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (index < size / 2) {
+            Node<E> node = head.next;
+            for (int i = 0; i < index; i++) {
+                node = node.next;
+            }
+            return node;
+        }
+        Node<E> node = tail;
+        for (int i = size; i > index; i--) {
+            node = node.prev;
+        }
+        return node;
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    @Override
+    public boolean add(E element) {
+        linkBefore(element, tail);
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        linkBefore(element, getNode(index));
+    }
+
+    /**
+     * Adds `element` at the front of the list.
+     *
+     * @param element
+     */
+    public void addFirst(E element) {
+        linkBefore(element, head.next);
+    }
+
+    /**
+     * Adds `element` at the end of the list.
+     *
+     * @param element
+     */
+    public void addLast(E element) {
+        linkBefore(element, tail);
+    }
+
+    @Override
+    public void clear() {
+        head.next = tail;
+        tail.prev = head;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public E get(int index) {
+        checkElementIndex(index);
+        return getNode(index).data;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkElementIndex(index);
+        Node<E> node = getNode(index);
+        E old = node.data;
+        node.data = element;
+        return old;
+    }
+
+    @Override
+    public E remove(int index) {
+        checkElementIndex(index);
+        return unlink(getNode(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the list, the two sentinels and one node per element.
+     */
+    @Override
+    public long estimatedBytes() {
+        return MemoryLayout.object(2, 8) + (size + 2) * MemoryLayout.object(3, 0);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return new ListItr(index);
+    }
+
+    private class ListItr implements ListIterator<E> {
+        private Node<E> next;                // node next() returns; tail at the end
+        private int nextIndex;
+        private Node<E> lastReturned = null;
+        private int expectedModCount = modCount;
+
+        ListItr(int index) {
+            next = getNode(index);
+            nextIndex = index;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.next;
+            nextIndex++;
+            return lastReturned.data;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            next = next.prev;
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.data;
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (next == lastReturned) {
+                // the last call was previous, so the cursor stays put
+                next = lastReturned.next;
+            } else {
+                nextIndex--;
+            }
+            unlink(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E element) {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            lastReturned.data = element;
+        }
+
+        @Override
+        public void add(E element) {
+            checkForComodification();
+            linkBefore(element, next);
+            nextIndex++;
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ *
+ */
+package chapter3;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.ListIterator;
+
+import chapter2.MyArrayListTest;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the MyArrayList tests against MyDoublyLinkedList.
+ *
+ */
+public class MyDoublyLinkedListTest extends MyArrayListTest {
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		list = new ArrayList<Integer>();
+		list.add(1);
+		list.add(2);
+		list.add(3);
+
+		mylist = new MyDoublyLinkedList<Integer>();
+		mylist.addAll(list);
+	}
+
+	/**
+	 * Test method for {@link MyDoublyLinkedList#addFirst(Object)} and
+	 * {@link MyDoublyLinkedList#addLast(Object)}.
+	 */
+	@Test
+	public void testAddFirstLast() {
+		MyDoublyLinkedList<Integer> dll = (MyDoublyLinkedList<Integer>) mylist;
+		dll.addFirst(0);
+		dll.addLast(4);
+		assertThat(dll.toString(), is("[0, 1, 2, 3, 4]"));
+		assertThat(dll.get(4), is(4));
+		assertThat(dll.get(0), is(0));
+	}
+
+	/**
+	 * Adding and removing at the cursor, moving both ways.
+	 */
+	@Test
+	public void testListIteratorEdits() {
+		ListIterator<Integer> iter = mylist.listIterator();
+		while (iter.hasNext()) {
+			int x = iter.next();
+			if (x == 2) {
+				iter.remove();
+				iter.add(20);
+				iter.add(21);
+			}
+		}
+		assertThat(mylist.toString(), is("[1, 20, 21, 3]"));
+
+		// walk back and drop every other element
+		while (iter.hasPrevious()) {
+			iter.previous();
+			iter.remove();
+			if (iter.hasPrevious()) {
+				iter.previous();
+			}
+		}
+		assertThat(mylist.toString(), is("[1, 21]"));
+		assertThat(iter.nextIndex(), is(0));
+	}
+}
@@ -11,12 +11,15 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
+
 /**
  * @author downey
  * @param <E>
  *
  */
-public class MyLinkedList<E> implements List<E> {
+public class MyLinkedList<E> implements List<E>, MemoryFootprint {
 
     private class Node {
         public E data;
@@ -253,6 +256,15 @@ public class MyLinkedList<E> implements List<E> {
         return size;
     }
 
+    /**
+     * Counts the list and one node per element; a node holds the element,
+     * the next node and the list it belongs to.
+     */
+    @Override
+    public long estimatedBytes() {
+        return MemoryLayout.object(1, 4) + size * MemoryLayout.object(3, 0);
+    }
+
     @Override
     public List<E> subList(int fromIndex, int toIndex) {
         if (fromIndex < 0 || toIndex >= size || fromIndex > toIndex) {
@@ -0,0 +1,468 @@
+/**
+ *
+ */
+package chapter3;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import chapter4.MemoryFootprint;
+import chapter4.MemoryLayout;
+
+/**
+ * Unrolled linked list: a doubly-linked list of nodes that each hold up to
+ * `capacity` elements in an array.
+ *
+ * A node costs about as much as one MyLinkedList node but holds many
+ * elements, so the list uses a fraction of the memory and a scan follows
+ * one pointer per node instead of one per element.  Inserting in the
+ * middle shifts at most one node's array, splitting it in half when it is
+ * full.  Appends fill the last node before starting a new one, so a list
+ * built by appending has full nodes.
+ *
+ * With compressed references, a MyLinkedList node costs 24 bytes per
+ * element.  A full node here costs about 300 bytes, node and array, for
+ * 64 elements, under 5 bytes per element; nodes that were split by middle
+ * inserts are half full, about 9 bytes per element.
+ *
+ * @param <E>
+ *
+ */
+public class MyUnrolledLinkedList<E> extends AbstractList<E> implements List<E>, MemoryFootprint {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private class Node {
+        final Object[] elements = new Object[capacity];
+        int count = 0;
+        Node prev = null;
+        Node next = null;
+    }
+
+    private final int capacity;
+    private Node first = null;
+    private Node last = null;
+    private int size = 0;
+
+    // set by locate
+    private Node foundNode;
+    private int foundOffset;
+
+    public MyUnrolledLinkedList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity elements per node, at least 2
+     */
+    public MyUnrolledLinkedList(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        // run a few simple tests
+        List<Integer> mll = new MyUnrolledLinkedList<Integer>(4);
+        for (int i = 1; i <= 10; i++) {
+            mll.add(i);
+        }
+        System.out.println(Arrays.toString(mll.toArray()) + " size = " + mll.size());
+
+        mll.remove(new Integer(2));
+        System.out.println(Arrays.toString(mll.toArray()) + " size = " + mll.size());
+    }
+
+    /**
+     * Finds the node that holds element `index` and the offset of the
+     * element in it, walking from whichever end is closer, and leaves them
+     * in `foundNode` and `foundOffset`.
+     */
+    private void locate(int index) {
+        if (index < size / 2) {
+            Node node = first;
+            while (index >= node.count) {
+                index -= node.count;
+                node = node.next;
+            }
+            foundNode = node;
+            foundOffset = index;
+        } else {
+            Node node = last;
+            int start = size - node.count;
+            while (index < start) {
+                node = node.prev;
+                start -= node.count;
+            }
+            foundNode = node;
+            foundOffset = index - start;
+        }
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Makes a new empty node and links it after `node`, or at the front if
+     * `node` is null.
+     */
+    private Node insertNodeAfter(Node node) {
+        Node added = new Node();
+        added.prev = node;
+        added.next = node == null ? first : node.next;
+        if (added.next == null) {
+            last = added;
+        } else {
+            added.next.prev = added;
+        }
+        if (node == null) {
+            first = added;
+        } else {
+            node.next = added;
+        }
+        return added;
+    }
+
+    private void unlinkNode(Node node) {
+        if (node.prev == null) {
+            first = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            last = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+    }
+
+    @Override
+    public boolean add(E element) {
+        if (last == null || last.count == capacity) {
+            insertNodeAfter(last);
+        }
+        last.elements[last.count++] = element;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (index == size) {
+            add(element);
+            return;
+        }
+        locate(index);
+        Node node = foundNode;
+        int offset = foundOffset;
+        if (node.count == capacity) {
+            if (offset == 0 && node.prev != null && node.prev.count < capacity) {
+                // there is room at the end of the previous node
+                node = node.prev;
+                offset = node.count;
+            } else {
+                // move the back half to a new node
+                Node right = insertNodeAfter(node);
+                int half = capacity / 2;
+                right.count = capacity - half;
+                System.arraycopy(node.elements, half, right.elements, 0, right.count);
+                Arrays.fill(node.elements, half, capacity, null);
+                node.count = half;
+                if (offset > half) {
+                    node = right;
+                    offset -= half;
+                }
+            }
+        }
+        System.arraycopy(node.elements, offset, node.elements, offset + 1, node.count - offset);
+        node.elements[offset] = element;
+        node.count++;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> collection) {
+        for (E element : collection) {
+            add(element);
+        }
+        return !collection.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        first = null;
+        last = null;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkElementIndex(index);
+        locate(index);
+        return (E) foundNode.elements[foundOffset];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        checkElementIndex(index);
+        locate(index);
+        E old = (E) foundNode.elements[foundOffset];
+        foundNode.elements[foundOffset] = element;
+        return old;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        checkElementIndex(index);
+        locate(index);
+        Node node = foundNode;
+        int offset = foundOffset;
+        E old = (E) node.elements[offset];
+        System.arraycopy(node.elements, offset + 1, node.elements, offset, node.count - offset - 1);
+        node.count--;
+        node.elements[node.count] = null;
+        size--;
+        modCount++;
+
+        if (node.count == 0) {
+            unlinkNode(node);
+        } else if (node.next != null && node.count + node.next.count <= capacity / 2) {
+            // merge with the next node, so nodes don't end up mostly empty
+            Node next = node.next;
+            System.arraycopy(next.elements, 0, node.elements, node.count, next.count);
+            node.count += next.count;
+            unlinkNode(next);
+        }
+        return old;
+    }
+
+    @Override
+    public int indexOf(Object target) {
+        int index = 0;
+        for (Node node = first; node != null; node = node.next) {
+            for (int i = 0; i < node.count; i++) {
+                if (equals(target, node.elements[i])) {
+                    return index + i;
+                }
+            }
+            index += node.count;
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object target) {
+        int index = size;
+        for (Node node = last; node != null; node = node.prev) {
+            index -= node.count;
+            for (int i = node.count - 1; i >= 0; i--) {
+                if (equals(target, node.elements[i])) {
+                    return index + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Checks whether an element of the array is the target.
+     *
+     * Handles the special case that the target is null.
+     *
+     * @param target
+     * @param element
+     */
+    private boolean equals(Object target, Object element) {
+        if (target == null) {
+            return element == null;
+        } else {
+            return target.equals(element);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the list and every node with its array, full or not.
+     */
+    @Override
+    public long estimatedBytes() {
+        long nodeBytes = MemoryLayout.object(4, 4) + MemoryLayout.referenceArray(capacity);
+        long total = MemoryLayout.object(3, 16);
+        for (Node node = first; node != null; node = node.next) {
+            total += nodeBytes;
+        }
+        return total;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] array = new Object[size];
+        int i = 0;
+        for (Node node = first; node != null; node = node.next) {
+            System.arraycopy(node.elements, 0, array, i, node.count);
+            i += node.count;
+        }
+        return array;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new ListItr(0);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new ListItr(index);
+    }
+
+    /**
+     * Walks the nodes directly, so a scan does not locate every index.
+     *
+     * Adding or removing through the iterator goes through the list and
+     * then finds the cursor again, which takes time proportional to the
+     * number of nodes.
+     */
+    private class ListItr implements ListIterator<E> {
+        private Node node;          // node of the next element; null at the end
+        private int offset;
+        private int nextIndex;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        ListItr(int index) {
+            moveTo(index);
+        }
+
+        private void moveTo(int index) {
+            nextIndex = index;
+            if (index < size) {
+                locate(index);
+                node = foundNode;
+                offset = foundOffset;
+            } else {
+                node = null;
+                offset = 0;
+            }
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            E element = (E) node.elements[offset];
+            lastReturned = nextIndex++;
+            if (++offset == node.count) {
+                node = node.next;
+                offset = 0;
+            }
+            return element;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            if (node == null) {
+                node = last;
+                offset = node.count;
+            }
+            if (offset == 0) {
+                node = node.prev;
+                offset = node.count;
+            }
+            offset--;
+            lastReturned = --nextIndex;
+            return (E) node.elements[offset];
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            MyUnrolledLinkedList.this.remove(lastReturned);
+            moveTo(lastReturned);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E element) {
+            checkForComodification();
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            MyUnrolledLinkedList.this.set(lastReturned, element);
+        }
+
+        @Override
+        public void add(E element) {
+            checkForComodification();
+            MyUnrolledLinkedList.this.add(nextIndex, element);
+            moveTo(nextIndex + 1);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+    }
+}
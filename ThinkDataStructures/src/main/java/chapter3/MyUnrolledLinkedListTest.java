@@ -0,0 +1,111 @@
+/**
+ *
+ */
+package chapter3;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import chapter2.MyArrayListTest;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the MyArrayList tests, which are also the MyLinkedList tests,
+ * against MyUnrolledLinkedList, including the iterator and subList tests
+ * MyLinkedListTest skips.
+ *
+ */
+public class MyUnrolledLinkedListTest extends MyArrayListTest {
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		list = new ArrayList<Integer>();
+		list.add(1);
+		list.add(2);
+		list.add(3);
+
+		// small nodes, so even the short lists in the tests span several
+		mylist = new MyUnrolledLinkedList<Integer>(2);
+		mylist.addAll(list);
+	}
+
+	/**
+	 * Random inserts and removes, so nodes split and merge, checked
+	 * against an ArrayList.
+	 */
+	@Test
+	public void testRandomEdits() {
+		List<Integer> expected = new ArrayList<Integer>();
+		List<Integer> actual = new MyUnrolledLinkedList<Integer>(4);
+		Random random = new Random(17);
+		for (int i = 0; i < 2000; i++) {
+			if (expected.isEmpty() || random.nextInt(3) > 0) {
+				int index = random.nextInt(expected.size() + 1);
+				expected.add(index, i);
+				actual.add(index, i);
+			} else {
+				int index = random.nextInt(expected.size());
+				assertThat(actual.remove(index), is(expected.remove(index)));
+			}
+		}
+		assertThat(actual.size(), is(expected.size()));
+		assertThat(actual, is(expected));
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(actual.get(i), is(expected.get(i)));
+		}
+	}
+
+	/**
+	 * Walking backward across node boundaries.
+	 */
+	@Test
+	public void testListIteratorBackward() {
+		for (int i = 4; i <= 9; i++) {
+			mylist.add(i);
+		}
+		ListIterator<Integer> iter = mylist.listIterator(mylist.size());
+		int expected = 9;
+		while (iter.hasPrevious()) {
+			assertThat(iter.previousIndex(), is(expected - 1));
+			assertThat(iter.previous(), is(expected--));
+		}
+		assertThat(expected, is(0));
+	}
+
+	/**
+	 * Adding and removing at the cursor, moving both ways.
+	 */
+	@Test
+	public void testListIteratorEdits() {
+		ListIterator<Integer> iter = mylist.listIterator();
+		while (iter.hasNext()) {
+			int x = iter.next();
+			if (x == 2) {
+				iter.remove();
+				iter.add(20);
+				iter.add(21);
+			}
+		}
+		assertThat(mylist.toString(), is("[1, 20, 21, 3]"));
+
+		// walk back and drop every other element
+		while (iter.hasPrevious()) {
+			iter.previous();
+			iter.remove();
+			if (iter.hasPrevious()) {
+				iter.previous();
+			}
+		}
+		assertThat(mylist.toString(), is("[1, 21]"));
+		assertThat(iter.nextIndex(), is(0));
+	}
+}
@@ -0,0 +1,22 @@
+package chapter4;
+
+/**
+ * Implemented by data structures that can estimate how much heap they use.
+ *
+ * The estimate covers the objects the structure owns: the structure
+ * itself, its arrays, nodes and entries.  It does not cover the elements,
+ * keys and values, which the caller made and may share with other
+ * structures, or small constant extras like cached views and iterators.
+ * MemoryLayout has the sizes the estimates are made from.
+ *
+ */
+public interface MemoryFootprint {
+
+    /**
+     * Returns the estimated number of bytes retained by the structure, not
+     * counting its elements.
+     *
+     * @return
+     */
+    public long estimatedBytes();
+}
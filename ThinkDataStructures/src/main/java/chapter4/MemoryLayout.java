@@ -0,0 +1,123 @@
+package chapter4;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * Sizes of objects and arrays on a HotSpot JVM, for MemoryFootprint
+ * estimates.
+ *
+ * An object is a header followed by its fields, rounded up to the object
+ * alignment; an array also has a length field.  With compressed
+ * references, the default for heaps under 32 GB, a header is 12 bytes and
+ * a reference 4; without them, 16 and 8.  The JVM may leave gaps between
+ * fields of different sizes, so the sizes here can be a few bytes low.
+ *
+ */
+public final class MemoryLayout {
+
+    public static final boolean COMPRESSED_REFERENCES = vmOption("UseCompressedOops", true);
+
+    public static final int REFERENCE_BYTES = COMPRESSED_REFERENCES ? 4 : 8;
+
+    public static final int OBJECT_HEADER_BYTES = COMPRESSED_REFERENCES ? 12 : 16;
+
+    public static final int ARRAY_HEADER_BYTES = OBJECT_HEADER_BYTES + 4;
+
+    public static final int ALIGNMENT = 8;
+
+    // the default capacity of an ArrayList that has had an element added
+    private static final int ARRAY_LIST_DEFAULT_CAPACITY = 10;
+
+    private MemoryLayout() {
+    }
+
+    /**
+     * Reads a boolean flag of the running JVM, or returns `otherwise` if
+     * the JVM doesn't have the diagnostic bean.
+     */
+    private static boolean vmOption(String name, boolean otherwise) {
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return Boolean.parseBoolean(bean.getVMOption(name).getValue());
+        } catch (RuntimeException | LinkageError e) {
+            return otherwise;
+        }
+    }
+
+    /**
+     * Rounds `bytes` up to a multiple of the object alignment.
+     *
+     * @param bytes
+     * @return
+     */
+    public static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Returns the size of an object with `references` reference fields and
+     * `primitiveBytes` bytes of primitive fields.  Remember the hidden
+     * reference to the outer object in a non-static inner class.
+     *
+     * @param references
+     * @param primitiveBytes
+     * @return
+     */
+    public static long object(int references, int primitiveBytes) {
+        return align(OBJECT_HEADER_BYTES + (long) references * REFERENCE_BYTES + primitiveBytes);
+    }
+
+    /**
+     * Returns the size of an array of `length` references.
+     *
+     * @param length
+     * @return
+     */
+    public static long referenceArray(int length) {
+        return array(length, REFERENCE_BYTES);
+    }
+
+    /**
+     * Returns the size of an array of `length` primitives of `elementBytes`
+     * bytes each.
+     *
+     * @param length
+     * @param elementBytes
+     * @return
+     */
+    public static long array(int length, int elementBytes) {
+        return align(ARRAY_HEADER_BYTES + (long) length * elementBytes);
+    }
+
+    /**
+     * Returns the size of a java.util.ArrayList with room for `capacity`
+     * elements: the list, with its size, modCount and array fields, and the
+     * array.  Empty lists share one empty array, so it is not counted.
+     *
+     * @param capacity
+     * @return
+     */
+    public static long arrayList(int capacity) {
+        return object(1, 8) + (capacity == 0 ? 0 : referenceArray(capacity));
+    }
+
+    /**
+     * Returns the capacity a java.util.ArrayList made with the default
+     * constructor has after `size` adds: 10, then growing by half.
+     *
+     * @param size
+     * @return
+     */
+    public static int arrayListCapacity(int size) {
+        if (size == 0) {
+            return 0;
+        }
+        int capacity = ARRAY_LIST_DEFAULT_CAPACITY;
+        while (capacity < size) {
+            capacity += capacity >> 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,120 @@
+package chapter4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.data.xy.XYDataItem;
+import org.jfree.data.xy.XYSeries;
+
+/**
+ * A Profiler that also reports how many bytes the structure costs per
+ * element, so structures can be compared by memory as well as by time.
+ *
+ * The Timeable has to say which structure it built.  After timingLoop,
+ * footprintLoop builds the structure again for each problem size in the
+ * time series and asks it for its MemoryFootprint estimate, which does
+ * not include the elements themselves.
+ *
+ * With a display the bytes per element are plotted in a second window;
+ * in headless mode they are written to <title>-memory.csv and .json next
+ * to the timing results.
+ *
+ */
+public class MemoryProfiler extends Profiler {
+
+    /**
+     * A Timeable that builds a structure that can estimate its size.
+     *
+     */
+    public interface Measurable extends Timeable {
+        /** Returns the structure the last timeMe call built. */
+        public MemoryFootprint structure();
+    }
+
+    private String title;
+    private Measurable measurable;
+
+    public MemoryProfiler(String title, Measurable measurable) {
+        super(title, measurable);
+        this.title = title;
+        this.measurable = measurable;
+    }
+
+    /**
+     * Builds the structure for each problem size in `times` and returns
+     * the estimated bytes per element.
+     *
+     * @param times a series from timingLoop
+     * @return
+     */
+    public XYSeries footprintLoop(XYSeries times) {
+        final XYSeries series = new XYSeries("Bytes per element");
+        for (int i = 0; i < times.getItemCount(); i++) {
+            int n = (int) times.getX(i).doubleValue();
+            measurable.setup(n);
+            measurable.timeMe(n);
+            long bytes = measurable.structure().estimatedBytes();
+            series.add(n, (double) bytes / n);
+            System.out.printf("%d, %d bytes, %.2f bytes per element%n", n, bytes, (double) bytes / n);
+        }
+        return series;
+    }
+
+    /**
+     * Reports the timing results as Profiler does, and the bytes per
+     * element next to them.
+     *
+     * @param times
+     * @param footprint
+     * @param maxSlope
+     * @throws IOException
+     */
+    public void reportResults(XYSeries times, XYSeries footprint, double maxSlope) throws IOException {
+        if (isHeadless()) {
+            // before the timing results, whose slope check may throw
+            writeFootprint(footprint, outputDir());
+        } else {
+            showChart(title + " memory", footprint, new NumberAxis("Bytes per element"));
+        }
+        reportResults(times, maxSlope);
+    }
+
+    /**
+     * Writes the bytes per element to `dir` as <title>-memory.csv and
+     * <title>-memory.json.
+     *
+     * @param footprint
+     * @param dir
+     * @throws IOException
+     */
+    public void writeFootprint(XYSeries footprint, File dir) throws IOException {
+        dir.mkdirs();
+        String name = fileName() + "-memory";
+
+        try (PrintWriter out = new PrintWriter(new File(dir, name + ".csv"), "UTF-8")) {
+            out.println("n,bytesPerElement");
+            for (int i = 0; i < footprint.getItemCount(); i++) {
+                XYDataItem xy = footprint.getDataItem(i);
+                out.println((long) xy.getXValue() + "," + xy.getYValue());
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(new File(dir, name + ".json"), "UTF-8")) {
+            out.println("{");
+            out.println("  \"title\": \"" + title.replace("\"", "\\\"") + "\",");
+            out.println("  \"series\": \"" + footprint.getKey() + "\",");
+            out.println("  \"compressedReferences\": " + MemoryLayout.COMPRESSED_REFERENCES + ",");
+            out.println("  \"points\": [");
+            for (int i = 0; i < footprint.getItemCount(); i++) {
+                XYDataItem xy = footprint.getDataItem(i);
+                out.print("    {\"n\": " + (long) xy.getXValue() + ", \"bytesPerElement\": " + xy.getYValue() + "}");
+                out.println(i < footprint.getItemCount() - 1 ? "," : "");
+            }
+            out.println("  ]");
+            out.println("}");
+        }
+        System.out.println("Wrote " + new File(dir, name + ".json"));
+    }
+}
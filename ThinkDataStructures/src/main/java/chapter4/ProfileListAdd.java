@@ -1,11 +1,18 @@
 package chapter4;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import org.jfree.data.xy.XYSeries;
+import chapter2.MyCircularArrayList;
+import chapter3.MyDoublyLinkedList;
+import chapter3.MyUnrolledLinkedList;
 import chapter4.Profiler.Timeable;
 
 public class ProfileListAdd {
@@ -13,18 +20,63 @@ public class ProfileListAdd {
     /**
      * @param args
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (Profiler.isHeadless()) {
+            // on CI, run every profile and fail if any of them is slower than expected
+            profileArrayListAddEnd();
+            profileArrayListAddBeginning();
+            profileLinkedListAddBeginning();
+            profileLinkedListAddEnd();
+            profileCircularArrayListAddBeginning();
+            profileDoublyLinkedListAddBeginning();
+            profileDoublyLinkedListAddEnd();
+            profileUnrolledLinkedListAddBeginning();
+            profileUnrolledLinkedListAddMiddle();
+            profileUnrolledLinkedListAddEnd();
+            return;
+        }
 //        profileArrayListAddEnd();
 //        profileArrayListAddBeginning();
 //        profileLinkedListAddBeginning();
         profileLinkedListAddEnd();
     }
 
+    /**
+     * Returns a factory for every Timeable in this class, keyed by name.
+     *
+     * The JMH benchmarks in src/jmh use this to run the same workloads.
+     *
+     * @return
+     */
+    public static Map<String, Supplier<Timeable>> timeables() {
+        Map<String, Supplier<Timeable>> map = new LinkedHashMap<String, Supplier<Timeable>>();
+        map.put("ArrayListAddEnd", ProfileListAdd::arrayListAddEnd);
+        map.put("ArrayListAddBeginning", ProfileListAdd::arrayListAddBeginning);
+        map.put("LinkedListAddBeginning", ProfileListAdd::linkedListAddBeginning);
+        map.put("LinkedListAddEnd", ProfileListAdd::linkedListAddEnd);
+        map.put("CircularArrayListAddBeginning", ProfileListAdd::circularArrayListAddBeginning);
+        map.put("DoublyLinkedListAddBeginning", ProfileListAdd::doublyLinkedListAddBeginning);
+        map.put("DoublyLinkedListAddEnd", ProfileListAdd::doublyLinkedListAddEnd);
+        map.put("UnrolledLinkedListAddBeginning", ProfileListAdd::unrolledLinkedListAddBeginning);
+        map.put("UnrolledLinkedListAddMiddle", ProfileListAdd::unrolledLinkedListAddMiddle);
+        map.put("UnrolledLinkedListAddEnd", ProfileListAdd::unrolledLinkedListAddEnd);
+        return map;
+    }
+
     /**
      * Characterize the run time of adding to the end of an ArrayList
      */
-    public static void profileArrayListAddEnd() {
-        Timeable timeable = new Timeable() {
+    public static void profileArrayListAddEnd() throws IOException {
+        int startN = 1000;
+        int endMillis = 1000;
+        runProfiler("ArrayList add end", "ArrayListAddEnd", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Adds `n` elements to the end of an ArrayList.
+     */
+    public static Timeable arrayListAddEnd() {
+        return new Timeable() {
             List<String> list;
 
             public void setup(int n) {
@@ -37,16 +89,22 @@ public class ProfileListAdd {
                 }
             }
         };
-        int startN = 64000;
-        int endMillis = 1000;
-        runProfiler("ArrayList add end", timeable, startN, endMillis);
     }
 
     /**
      * Characterize the run time of adding to the beginning of an ArrayList
      */
-    public static void profileArrayListAddBeginning() {
-        Timeable timeable = new Timeable() {
+    public static void profileArrayListAddBeginning() throws IOException {
+        int startN = 500;
+        int endMillis = 10000;
+        runProfiler("ArrayList add Beginning", "ArrayListAddBeginning", startN, endMillis, 2.5);
+    }
+
+    /**
+     * Adds `n` elements to the beginning of an ArrayList.
+     */
+    public static Timeable arrayListAddBeginning() {
+        return new Timeable() {
             List<String> list;
 
             @Override
@@ -60,17 +118,22 @@ public class ProfileListAdd {
                     list.add(0, "a string");
             }
         };
-
-        int startN = 4000;
-        int endMillis = 10000;
-        runProfiler("ArrayList add Beginning", timeable, startN, endMillis);
     }
 
     /**
      * Characterize the run time of adding to the beginning of a LinkedList
      */
-    public static void profileLinkedListAddBeginning() {
-        Timeable timeable = new Timeable() {
+    public static void profileLinkedListAddBeginning() throws IOException {
+        int startN = 1000;
+        int endMillis = 2000;
+        runProfiler("LinkedList add Beginning", "LinkedListAddBeginning", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Adds `n` elements to the beginning of a LinkedList.
+     */
+    public static Timeable linkedListAddBeginning() {
+        return new Timeable() {
             List<String> list;
 
             @Override
@@ -84,17 +147,23 @@ public class ProfileListAdd {
                     list.add(0, "a string");
             }
         };
-
-        int startN = 128000;
-        int endMillis = 2000;
-        runProfiler("LinkedList add Beginning", timeable, startN, endMillis);
     }
 
     /**
      * Characterize the run time of adding to the end of a LinkedList
      */
-    public static void profileLinkedListAddEnd() {
-        Timeable timeable = new Timeable() {
+    public static void profileLinkedListAddEnd() throws IOException {
+        int startN = 1000;
+        int endMillis = 1000;
+        runProfiler("LinkedList add End", "LinkedListAddEnd", startN, endMillis, 1.5);
+
+    }
+
+    /**
+     * Adds `n` elements to the end of a LinkedList.
+     */
+    public static Timeable linkedListAddEnd() {
+        return new Timeable() {
             List<String> list;
 
             @Override
@@ -108,23 +177,199 @@ public class ProfileListAdd {
                     list.add("a string");
             }
         };
+    }
+
+    /**
+     * Characterize the run time of adding to the beginning of a MyCircularArrayList
+     */
+    public static void profileCircularArrayListAddBeginning() throws IOException {
+        int startN = 1000;
+        int endMillis = 1000;
+        runProfiler("MyCircularArrayList add Beginning", "CircularArrayListAddBeginning", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Adds `n` elements to the beginning of a MyCircularArrayList.
+     */
+    public static Timeable circularArrayListAddBeginning() {
+        return new Timeable() {
+            List<String> list;
+
+            @Override
+            public void setup(int n) {
+                list = new MyCircularArrayList<String>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                for (int i = 0; i < n; i++)
+                    list.add(0, "a string");
+            }
+        };
+    }
 
-        int startN = 64000;
+    /**
+     * Characterize the run time of adding to the beginning of a MyDoublyLinkedList
+     */
+    public static void profileDoublyLinkedListAddBeginning() throws IOException {
+        int startN = 1000;
         int endMillis = 1000;
-        runProfiler("LinkedList add End", timeable, startN, endMillis);
+        runProfiler("MyDoublyLinkedList add Beginning", "DoublyLinkedListAddBeginning", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Adds `n` elements to the beginning of a MyDoublyLinkedList.
+     */
+    public static Timeable doublyLinkedListAddBeginning() {
+        return new Timeable() {
+            List<String> list;
+
+            @Override
+            public void setup(int n) {
+                list = new MyDoublyLinkedList<String>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                for (int i = 0; i < n; i++)
+                    list.add(0, "a string");
+            }
+        };
+    }
+
+    /**
+     * Characterize the run time of adding to the end of a MyDoublyLinkedList
+     */
+    public static void profileDoublyLinkedListAddEnd() throws IOException {
+        int startN = 1000;
+        int endMillis = 1000;
+        runProfiler("MyDoublyLinkedList add End", "DoublyLinkedListAddEnd", startN, endMillis, 1.5);
+    }
 
+    /**
+     * Adds `n` elements to the end of a MyDoublyLinkedList.
+     */
+    public static Timeable doublyLinkedListAddEnd() {
+        return new Timeable() {
+            List<String> list;
+
+            @Override
+            public void setup(int n) {
+                list = new MyDoublyLinkedList<String>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                for (int i = 0; i < n; i++)
+                    list.add("a string");
+            }
+        };
+    }
+
+    /**
+     * Characterize the run time of adding to the beginning of a MyUnrolledLinkedList
+     */
+    public static void profileUnrolledLinkedListAddBeginning() throws IOException {
+        int startN = 1000;
+        int endMillis = 1000;
+        runProfiler("MyUnrolledLinkedList add Beginning", "UnrolledLinkedListAddBeginning", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Adds `n` elements to the beginning of a MyUnrolledLinkedList.
+     */
+    public static Timeable unrolledLinkedListAddBeginning() {
+        return new Timeable() {
+            List<String> list;
+
+            @Override
+            public void setup(int n) {
+                list = new MyUnrolledLinkedList<String>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                for (int i = 0; i < n; i++)
+                    list.add(0, "a string");
+            }
+        };
+    }
+
+    /**
+     * Characterize the run time of adding to the middle of a MyUnrolledLinkedList
+     *
+     * Each add walks to the middle, so this is quadratic, but the walk
+     * takes one step per node rather than one per element.
+     */
+    public static void profileUnrolledLinkedListAddMiddle() throws IOException {
+        int startN = 1000;
+        int endMillis = 2000;
+        runProfiler("MyUnrolledLinkedList add Middle", "UnrolledLinkedListAddMiddle", startN, endMillis, 2.5);
+    }
+
+    /**
+     * Adds `n` elements to the middle of a MyUnrolledLinkedList.
+     */
+    public static Timeable unrolledLinkedListAddMiddle() {
+        return new Timeable() {
+            List<String> list;
+
+            @Override
+            public void setup(int n) {
+                list = new MyUnrolledLinkedList<String>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                for (int i = 0; i < n; i++)
+                    list.add(list.size() / 2, "a string");
+            }
+        };
+    }
+
+    /**
+     * Characterize the run time of adding to the end of a MyUnrolledLinkedList
+     */
+    public static void profileUnrolledLinkedListAddEnd() throws IOException {
+        int startN = 1000;
+        int endMillis = 1000;
+        runProfiler("MyUnrolledLinkedList add End", "UnrolledLinkedListAddEnd", startN, endMillis, 1.5);
+    }
+
+    /**
+     * Adds `n` elements to the end of a MyUnrolledLinkedList.
+     */
+    public static Timeable unrolledLinkedListAddEnd() {
+        return new Timeable() {
+            List<String> list;
+
+            @Override
+            public void setup(int n) {
+                list = new MyUnrolledLinkedList<String>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                for (int i = 0; i < n; i++)
+                    list.add("a string");
+            }
+        };
     }
 
     /**
      * Runs the profiles and displays results.
      *
-     * @param timeable
+     * @param name key of the Timeable in `timeables()`
      * @param startN
      * @param endMillis
+     * @param maxSlope largest slope accepted in headless mode
+     * @throws IOException
      */
-    private static void runProfiler(String title, Timeable timeable, int startN, int endMillis) {
-        Profiler profiler = new Profiler(title, timeable);
+    private static void runProfiler(String title, String name, int startN, int endMillis, double maxSlope)
+            throws IOException {
+        Profiler profiler = new Profiler(title, timeables().get(name).get());
+        profiler.setForkSource(ProfileListAdd.class, name);
         XYSeries series = profiler.timingLoop(startN, endMillis);
-        profiler.plotResults(series);
+        profiler.reportResults(series, maxSlope);
     }
 }
\ No newline at end of file
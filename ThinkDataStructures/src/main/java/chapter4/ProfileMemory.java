@@ -0,0 +1,280 @@
+package chapter4;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.jfree.data.xy.XYSeries;
+import chapter11.MyBetterMap;
+import chapter11.MyHashMap;
+import chapter11.MyLinearMap;
+import chapter12.MyTreeMap;
+import chapter2.MyArrayList;
+import chapter3.MyLinkedList;
+import chapter4.MemoryProfiler.Measurable;
+import chapter4.Profiler.Timeable;
+
+/**
+ * Profiles building each of the book's structures, timing the adds and
+ * estimating the bytes per element.
+ *
+ * The elements are Integers, which the estimates leave out; with
+ * compressed references each one costs 16 more bytes unless it is shared.
+ *
+ */
+public class ProfileMemory {
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws IOException {
+        if (Profiler.isHeadless()) {
+            // on CI, run every profile and fail if any of them is slower than expected
+            profileMyArrayList();
+            profileMyLinkedList();
+            profileMyLinearMap();
+            profileMyBetterMap();
+            profileMyHashMap();
+            profileMyTreeMap();
+            return;
+        }
+        profileMyArrayList();
+//        profileMyLinkedList();
+//        profileMyHashMap();
+//        profileMyTreeMap();
+    }
+
+    /**
+     * Returns a factory for every Timeable in this class, keyed by name.
+     *
+     * @return
+     */
+    public static Map<String, Supplier<Timeable>> timeables() {
+        Map<String, Supplier<Timeable>> map = new LinkedHashMap<String, Supplier<Timeable>>();
+        map.put("MyArrayList", ProfileMemory::myArrayList);
+        map.put("MyLinkedList", ProfileMemory::myLinkedList);
+        map.put("MyLinearMap", ProfileMemory::myLinearMap);
+        map.put("MyBetterMap", ProfileMemory::myBetterMap);
+        map.put("MyHashMap", ProfileMemory::myHashMap);
+        map.put("MyTreeMap", ProfileMemory::myTreeMap);
+        return map;
+    }
+
+    /**
+     * Characterize the time and memory of appending to a MyArrayList
+     */
+    public static void profileMyArrayList() throws IOException {
+        runProfiler("MyArrayList add", "MyArrayList", 1000, 1000, 1.5);
+    }
+
+    /**
+     * Appends `n` elements to a MyArrayList.
+     */
+    public static Timeable myArrayList() {
+        return new Measurable() {
+            MyArrayList<Integer> list;
+
+            @Override
+            public void setup(int n) {
+                list = new MyArrayList<Integer>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                addAll(list, n);
+            }
+
+            @Override
+            public MemoryFootprint structure() {
+                return list;
+            }
+        };
+    }
+
+    /**
+     * Characterize the time and memory of adding to a MyLinkedList
+     */
+    public static void profileMyLinkedList() throws IOException {
+        runProfiler("MyLinkedList add", "MyLinkedList", 1000, 1000, 1.5);
+    }
+
+    /**
+     * Adds `n` elements to the beginning of a MyLinkedList.
+     */
+    public static Timeable myLinkedList() {
+        return new Measurable() {
+            MyLinkedList<Integer> list;
+
+            @Override
+            public void setup(int n) {
+                list = new MyLinkedList<Integer>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                // MyLinkedList.add walks to the end, so add at the front
+                for (int i = 0; i < n; i++) {
+                    list.add(0, i);
+                }
+            }
+
+            @Override
+            public MemoryFootprint structure() {
+                return list;
+            }
+        };
+    }
+
+    /**
+     * Characterize the time and memory of putting keys in a MyLinearMap
+     */
+    public static void profileMyLinearMap() throws IOException {
+        // the tree index makes each put log n
+        runProfiler("MyLinearMap put", "MyLinearMap", 1000, 1000, 1.5);
+    }
+
+    /**
+     * Puts `n` keys in a MyLinearMap.
+     */
+    public static Timeable myLinearMap() {
+        return new Measurable() {
+            MyLinearMap<Integer, Integer> map;
+
+            @Override
+            public void setup(int n) {
+                map = new MyLinearMap<Integer, Integer>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                putAll(map, n);
+            }
+
+            @Override
+            public MemoryFootprint structure() {
+                return map;
+            }
+        };
+    }
+
+    /**
+     * Characterize the time and memory of putting keys in a MyBetterMap
+     */
+    public static void profileMyBetterMap() throws IOException {
+        runProfiler("MyBetterMap put", "MyBetterMap", 1000, 1000, 1.5);
+    }
+
+    /**
+     * Puts `n` keys in a MyBetterMap.
+     */
+    public static Timeable myBetterMap() {
+        return new Measurable() {
+            MyBetterMap<Integer, Integer> map;
+
+            @Override
+            public void setup(int n) {
+                map = new MyBetterMap<Integer, Integer>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                putAll(map, n);
+            }
+
+            @Override
+            public MemoryFootprint structure() {
+                return map;
+            }
+        };
+    }
+
+    /**
+     * Characterize the time and memory of putting keys in a MyHashMap
+     */
+    public static void profileMyHashMap() throws IOException {
+        // MyHashMap.size() adds up the sub-maps, so put is linear, not constant
+        runProfiler("MyHashMap put", "MyHashMap", 250, 2000, 2.5);
+    }
+
+    /**
+     * Puts `n` keys in a MyHashMap.
+     */
+    public static Timeable myHashMap() {
+        return new Measurable() {
+            MyHashMap<Integer, Integer> map;
+
+            @Override
+            public void setup(int n) {
+                map = new MyHashMap<Integer, Integer>();
+            }
+
+            @Override
+            public void timeMe(int n) {
+                putAll(map, n);
+            }
+
+            @Override
+            public MemoryFootprint structure() {
+                return map;
+            }
+        };
+    }
+
+    /**
+     * Characterize the time and memory of putting keys in a balanced MyTreeMap
+     */
+    public static void profileMyTreeMap() throws IOException {
+        runProfiler("MyTreeMap put", "MyTreeMap", 1000, 1000, 1.5);
+    }
+
+    /**
+     * Puts `n` keys in a balanced MyTreeMap.
+     */
+    public static Timeable myTreeMap() {
+        return new Measurable() {
+            MyTreeMap<Integer, Integer> map;
+
+            @Override
+            public void setup(int n) {
+                map = new MyTreeMap<Integer, Integer>(true);
+            }
+
+            @Override
+            public void timeMe(int n) {
+                putAll(map, n);
+            }
+
+            @Override
+            public MemoryFootprint structure() {
+                return map;
+            }
+        };
+    }
+
+    private static void addAll(List<Integer> list, int n) {
+        for (int i = 0; i < n; i++) {
+            list.add(i);
+        }
+    }
+
+    private static void putAll(Map<Integer, Integer> map, int n) {
+        for (int i = 0; i < n; i++) {
+            map.put(i, i);
+        }
+    }
+
+    /**
+     * Runs the timeable `name` through a MemoryProfiler and reports both
+     * series.
+     */
+    private static void runProfiler(String title, String name, int startN, int endMillis, double maxSlope)
+            throws IOException {
+        MemoryProfiler profiler = new MemoryProfiler(title, (Measurable) timeables().get(name).get());
+        profiler.setForkSource(ProfileMemory.class, name);
+        XYSeries times = profiler.timingLoop(startN, endMillis);
+        XYSeries footprint = profiler.footprintLoop(times);
+        profiler.reportResults(times, footprint, maxSlope);
+    }
+}
@@ -4,6 +4,19 @@
 package chapter4;
 
 import java.awt.Color;
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 import org.jfree.chart.ChartFactory;
@@ -23,13 +36,12 @@ import org.jfree.ui.RefineryUtilities;
  * @author downey
  * 문제 크기의 범위를 인자로 받아 실행하는 코드를 포함하며 실행시간을 측정하고 결과를 그래프에 출력
  *
+ * In headless mode (-Dprofiler.headless=true, or no display) the results are
+ * written to CSV and JSON files instead, and the run fails if the estimated
+ * slope is above the allowed maximum.
+ *
  */
-public class Profiler extends ApplicationFrame {
-
-    /**
-     * This is here because extending ApplicationFrame requires it.
-     */
-    private static final long serialVersionUID = 1L;
+public class Profiler {
 
     /**
      * Timeable defines the methods an object must provide to work with Profiler
@@ -47,44 +59,60 @@ public class Profiler extends ApplicationFrame {
         public void timeMe(int n);
     }
 
+    private String title;
     private Timeable timeable;
 
+    // defaults can be set with -Dprofiler.warmup, -Dprofiler.iterations and -Dprofiler.forks
+    private int warmupIterations = Integer.getInteger("profiler.warmup", 3);
+    private int measurementIterations = Integer.getInteger("profiler.iterations", 15);
+    private int forks = Integer.getInteger("profiler.forks", 0);
+    private double minMillis = 0.1;
+
+    private Class<?> forkOwner;
+    private String forkName;
+
+    private List<Stats> stats;
+
     public Profiler(String title, Timeable timeable) {
-        super(title);
+        this.title = title;
         this.timeable = timeable;
     }
 
     /**
-     * Invokes timeIt with a range of `n` from `startN` until runtime exceeds `endMillis`.
+     * Returns true if results should be written to files rather than plotted.
      *
-     * @param data.timeable
-     * @param n
+     * @return
+     */
+    public static boolean isHeadless() {
+        return Boolean.getBoolean("profiler.headless") || GraphicsEnvironment.isHeadless();
+    }
+
+    /**
+     * Invokes measure with a range of `n` from `startN` until runtime exceeds `endMillis`.
+     *
+     * Each point in the series is the median runtime of one timeMe call.
+     *
+     * @param startN
+     * @param endMillis
      * @return
      */
     public XYSeries timingLoop(int startN, int endMillis) {
         final XYSeries series = new XYSeries("Time (ms)");
+        stats = new ArrayList<Stats>();
 
         int n = startN;
-        for (int i = 0; i < 20; i++) {
-            // run it once to warm up
-            timeIt(n);
-
-            // then start timing
-            long total = 0;
+        for (int i = 0; i < 30; i++) {
+            Stats result = measure(n);
+            System.out.println(result);
 
-            // run 10 times and add up total runtime
-            for (int j = 0; j < 10; j++) {
-                total += timeIt(n);
+            // don't store data until the median is well above the timer noise
+            if (result.median / 1e6 > minMillis) {
+                series.add(n, result.median / 1e6);
+                stats.add(result);
             }
-            System.out.println(n + ", " + total);
 
-            // don't store data until we get to 4ms
-            if (total > 4) {
-                series.add(n, total);
-            }
-
-            // stop when the runtime exceeds the end threshold
-            if (total > endMillis) {
+            // stop when the total runtime exceeds the end threshold
+            if (result.total / 1e6 > endMillis || n > Integer.MAX_VALUE / 2) {
                 break;
             }
             // otherwise double the size and continue
@@ -94,19 +122,287 @@ public class Profiler extends ApplicationFrame {
     }
 
     /**
-     * Invokes setup and timeMe on the embedded Timeable.
+     * Times `measurementIterations` calls of timeMe(n) after `warmupIterations`
+     * untimed ones, in this JVM or in `forks` fresh JVMs.
      *
      * @param n
      * @return
      */
+    public Stats measure(int n) {
+        List<Long> samples = new ArrayList<Long>();
+        List<Boolean> gcFlags = new ArrayList<Boolean>();
+
+        if (forks > 0) {
+            for (int i = 0; i < forks; i++) {
+                runFork(n, samples, gcFlags);
+            }
+        } else {
+            runSamples(timeable, n, warmupIterations, measurementIterations, samples, gcFlags);
+        }
+        return new Stats(n, samples, gcFlags);
+    }
+
+    /**
+     * Runs the warm-up and timed calls, recording the runtime of each timed
+     * call and whether a garbage collection happened during it.
+     */
+    private static void runSamples(Timeable timeable, int n, int warmup, int iterations,
+                                   List<Long> samples, List<Boolean> gcFlags) {
+        for (int i = 0; i < warmup; i++) {
+            timeIt(timeable, n);
+        }
+        for (int i = 0; i < iterations; i++) {
+            long collections = gcCount();
+            samples.add(timeIt(timeable, n));
+            gcFlags.add(gcCount() != collections);
+        }
+    }
+
+    /**
+     * Runs the samples for one size in a new JVM with the same classpath.
+     */
+    private void runFork(int n, List<Long> samples, List<Boolean> gcFlags) {
+        if (forkOwner == null) {
+            throw new IllegalStateException(title + ": call setForkSource before using forks");
+        }
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                Profiler.class.getName(), forkOwner.getName(), forkName,
+                Integer.toString(n), Integer.toString(warmupIterations), Integer.toString(measurementIterations));
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+        try {
+            Process process = builder.start();
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] fields = line.split(",");
+                    samples.add(Long.parseLong(fields[0]));
+                    gcFlags.add(Boolean.parseBoolean(fields[1]));
+                }
+            }
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException(title + ": forked JVM exited with " + process.exitValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(title + ": could not run forked JVM", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(title + ": interrupted while waiting for forked JVM", e);
+        }
+    }
+
+    /**
+     * Invokes setup and timeMe on the embedded Timeable.
+     *
+     * @param n
+     * @return runtime of timeMe in nanoseconds
+     */
     public long timeIt(int n) {
+        return timeIt(timeable, n);
+    }
+
+    private static long timeIt(Timeable timeable, int n) {
         timeable.setup(n);
-        final long startTime = System.currentTimeMillis();
+        final long startTime = System.nanoTime();
         timeable.timeMe(n);
-        final long endTime = System.currentTimeMillis();
+        final long endTime = System.nanoTime();
         return endTime - startTime;
     }
 
+    /**
+     * Returns the number of collections so far, summed over all collectors.
+     */
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    /**
+     * Returns the stats for the points in the series from the last timingLoop.
+     *
+     * @return
+     */
+    public List<Stats> getStats() {
+        return stats;
+    }
+
+    public void setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+
+    public void setMeasurementIterations(int measurementIterations) {
+        this.measurementIterations = measurementIterations;
+    }
+
+    /**
+     * Sets the number of JVMs to fork for each size; 0 runs in this JVM.
+     *
+     * @param forks
+     */
+    public void setForks(int forks) {
+        this.forks = forks;
+    }
+
+    /**
+     * Sets the smallest median runtime, in ms, that is added to the series.
+     *
+     * @param minMillis
+     */
+    public void setMinMillis(double minMillis) {
+        this.minMillis = minMillis;
+    }
+
+    /**
+     * Tells the forked JVMs how to make the Timeable: `owner` must have a
+     * static `timeables()` method returning a Map from name to Supplier.
+     *
+     * @param owner
+     * @param name
+     */
+    public void setForkSource(Class<?> owner, String name) {
+        this.forkOwner = owner;
+        this.forkName = name;
+    }
+
+    /**
+     * Summary of the samples for one problem size, in nanoseconds.
+     *
+     * Samples that overlapped a garbage collection are dropped, as long as at
+     * least half of the samples are left, and so are samples above the outer
+     * Tukey fence (Q3 + 3 IQR).
+     */
+    public static class Stats {
+        public final int n;
+        public final int kept;
+        public final int rejected;
+        public final long total;
+        public final double median;
+        public final double p99;
+        public final double mean;
+        public final double stddev;
+
+        public Stats(int n, List<Long> samples, List<Boolean> gcFlags) {
+            this.n = n;
+
+            long sum = 0;
+            List<Long> clean = new ArrayList<Long>();
+            for (int i = 0; i < samples.size(); i++) {
+                sum += samples.get(i);
+                if (!gcFlags.get(i)) {
+                    clean.add(samples.get(i));
+                }
+            }
+            this.total = sum;
+            if (clean.size() * 2 < samples.size()) {
+                // most samples saw a GC, so the GC is part of the cost
+                clean = new ArrayList<Long>(samples);
+            }
+
+            double[] sorted = new double[clean.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = clean.get(i);
+            }
+            Arrays.sort(sorted);
+            double fence = percentile(sorted, 75) + 3 * (percentile(sorted, 75) - percentile(sorted, 25));
+            int end = sorted.length;
+            while (end > 1 && sorted[end - 1] > fence) {
+                end--;
+            }
+            double[] values = Arrays.copyOf(sorted, end);
+
+            this.kept = values.length;
+            this.rejected = samples.size() - values.length;
+            this.median = percentile(values, 50);
+            this.p99 = percentile(values, 99);
+
+            double keptSum = 0;
+            for (double x : values) {
+                keptSum += x;
+            }
+            this.mean = keptSum / values.length;
+            double squares = 0;
+            for (double x : values) {
+                squares += (x - mean) * (x - mean);
+            }
+            this.stddev = values.length > 1 ? Math.sqrt(squares / (values.length - 1)) : 0;
+        }
+
+        /**
+         * Returns the `p`th percentile of a sorted array, interpolating between ranks.
+         */
+        private static double percentile(double[] sorted, double p) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            double rank = p / 100 * (sorted.length - 1);
+            int low = (int) Math.floor(rank);
+            int high = (int) Math.ceil(rank);
+            return sorted[low] + (rank - low) * (sorted[high] - sorted[low]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d, median %.3f ms, p99 %.3f ms, stddev %.3f ms, %d samples (%d rejected)",
+                    n, median / 1e6, p99 / 1e6, stddev / 1e6, kept, rejected);
+        }
+    }
+
+    /**
+     * Plots the results, or in headless mode writes them to files and checks the slope.
+     *
+     * The output directory defaults to build/reports/profiler and can be set with
+     * -Dprofiler.outputDir.  The limit of one profile can be overridden with
+     * -Dprofiler.maxSlope.<name>, where <name> is the title as it appears in
+     * the file names, and -Dprofiler.maxSlopeScale multiplies the limit of
+     * every profile, so one run can loosen them all without making the
+     * O(n) and O(n^2) profiles share a limit.
+     *
+     * @param series
+     * @param maxSlope
+     * @throws IOException
+     */
+    public void reportResults(XYSeries series, double maxSlope) throws IOException {
+        if (!isHeadless()) {
+            plotResults(series);
+            return;
+        }
+        File dir = outputDir();
+        String limit = System.getProperty("profiler.maxSlope." + fileName());
+        if (limit != null) {
+            maxSlope = Double.parseDouble(limit);
+        }
+        String scale = System.getProperty("profiler.maxSlopeScale");
+        if (scale != null) {
+            maxSlope *= Double.parseDouble(scale);
+        }
+        writeResults(series, maxSlope, dir);
+        checkSlope(series, maxSlope);
+    }
+
+    /**
+     * Returns the directory for headless results: build/reports/profiler,
+     * or -Dprofiler.outputDir.
+     *
+     * @return
+     */
+    protected static File outputDir() {
+        return new File(System.getProperty("profiler.outputDir", "build/reports/profiler"));
+    }
+
+    /**
+     * Returns the title, made safe to use in a file name.
+     *
+     * @return
+     */
+    protected String fileName() {
+        return title.replaceAll("[^A-Za-z0-9]+", "-").toLowerCase();
+    }
+
     /**
      * Plots the results.
      *
@@ -115,7 +411,17 @@ public class Profiler extends ApplicationFrame {
     public void plotResults(XYSeries series) {
         double slope = estimateSlope(series);
         System.out.println("Estimated slope= " + slope);
+        showChart(title, series, new LogarithmicAxis("Runtime (ms)"));
+    }
 
+    /**
+     * Shows `series` in a window, against a logarithmic problem size axis.
+     *
+     * @param frameTitle
+     * @param series
+     * @param rangeAxis
+     */
+    protected void showChart(String frameTitle, XYSeries series, NumberAxis rangeAxis) {
         final XYSeriesCollection dataset = new XYSeriesCollection();
         dataset.addSeries(series);
 
@@ -132,17 +438,99 @@ public class Profiler extends ApplicationFrame {
 
         final XYPlot plot = chart.getXYPlot();
         final NumberAxis domainAxis = new LogarithmicAxis("Problem size (n)");
-        final NumberAxis rangeAxis = new LogarithmicAxis("Runtime (ms)");
         plot.setDomainAxis(domainAxis);
         plot.setRangeAxis(rangeAxis);
         chart.setBackgroundPaint(Color.white);
         plot.setOutlinePaint(Color.black);
         final ChartPanel chartPanel = new ChartPanel(chart);
         chartPanel.setPreferredSize(new java.awt.Dimension(1000, 600));
-        setContentPane(chartPanel);
-        pack();
-        RefineryUtilities.centerFrameOnScreen(this);
-        setVisible(true);
+
+        // the frame is only made here so the rest of the class works without a display
+        final ApplicationFrame frame = new ApplicationFrame(frameTitle);
+        frame.setContentPane(chartPanel);
+        frame.pack();
+        RefineryUtilities.centerFrameOnScreen(frame);
+        frame.setVisible(true);
+    }
+
+    /**
+     * Writes the series to `dir` as <title>.csv and <title>.json.
+     *
+     * The JSON file also holds the estimated slope and the allowed maximum.
+     *
+     * @param series
+     * @param maxSlope
+     * @param dir
+     * @throws IOException
+     */
+    public void writeResults(XYSeries series, double maxSlope, File dir) throws IOException {
+        dir.mkdirs();
+        String name = fileName();
+        double slope = estimateSlope(series);
+
+        try (PrintWriter out = new PrintWriter(new File(dir, name + ".csv"), "UTF-8")) {
+            out.println("n,time,p99,stddev,samples");
+            for (int i = 0; i < series.getItemCount(); i++) {
+                XYDataItem xy = series.getDataItem(i);
+                out.print((long) xy.getXValue() + "," + xy.getYValue());
+                Stats point = statsFor(series, i);
+                out.println(point == null ? ",,," : "," + point.p99 / 1e6 + "," + point.stddev / 1e6 + "," + point.kept);
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(new File(dir, name + ".json"), "UTF-8")) {
+            out.println("{");
+            out.println("  \"title\": \"" + title.replace("\"", "\\\"") + "\",");
+            out.println("  \"series\": \"" + series.getKey() + "\",");
+            out.println("  \"slope\": " + (Double.isNaN(slope) ? "null" : slope) + ",");
+            out.println("  \"maxSlope\": " + maxSlope + ",");
+            out.println("  \"points\": [");
+            for (int i = 0; i < series.getItemCount(); i++) {
+                XYDataItem xy = series.getDataItem(i);
+                out.print("    {\"n\": " + (long) xy.getXValue() + ", \"time\": " + xy.getYValue());
+                Stats point = statsFor(series, i);
+                if (point != null) {
+                    out.print(", \"p99\": " + point.p99 / 1e6 + ", \"stddev\": " + point.stddev / 1e6
+                            + ", \"samples\": " + point.kept + ", \"rejected\": " + point.rejected);
+                }
+                out.print("}");
+                out.println(i < series.getItemCount() - 1 ? "," : "");
+            }
+            out.println("  ]");
+            out.println("}");
+        }
+        System.out.println("Wrote " + new File(dir, name + ".json"));
+    }
+
+    /**
+     * Returns the stats behind point `i` of the series, if it came from the last timingLoop.
+     */
+    private Stats statsFor(XYSeries series, int i) {
+        if (stats == null || stats.size() != series.getItemCount()) {
+            return null;
+        }
+        return stats.get(i);
+    }
+
+    /**
+     * Fails if the estimated slope of the series is above `maxSlope`.
+     *
+     * A slope of 1 means the timed operation is linear in n; a regression that
+     * turns a constant time operation into a linear one pushes it towards 2.
+     *
+     * @param series
+     * @param maxSlope
+     * @throws IllegalStateException if the slope is too high or can't be estimated
+     */
+    public void checkSlope(XYSeries series, double maxSlope) {
+        double slope = estimateSlope(series);
+        System.out.println(title + ": estimated slope= " + slope + " (max " + maxSlope + ")");
+        if (Double.isNaN(slope)) {
+            throw new IllegalStateException(title + ": not enough data points to estimate the slope");
+        }
+        if (slope > maxSlope) {
+            throw new IllegalStateException(title + ": estimated slope " + slope + " is above " + maxSlope);
+        }
     }
 
     /**
@@ -151,7 +539,7 @@ public class Profiler extends ApplicationFrame {
      * @param series
      * @return
      */
-    public double estimateSlope(XYSeries series) {
+    public static double estimateSlope(XYSeries series) {
         SimpleRegression regression = new SimpleRegression();
 
         for (Object item : series.getItems()) {
@@ -160,4 +548,29 @@ public class Profiler extends ApplicationFrame {
         }
         return regression.getSlope();
     }
+
+    /**
+     * Entry point for forked JVMs: prints one "nanos,gc" line per timed call.
+     *
+     * Arguments: owner class, Timeable name, n, warm-up iterations, measurement iterations.
+     *
+     * @param args
+     * @throws ReflectiveOperationException
+     */
+    public static void main(String[] args) throws ReflectiveOperationException {
+        Class<?> owner = Class.forName(args[0]);
+        Map<?, ?> timeables = (Map<?, ?>) owner.getMethod("timeables").invoke(null);
+        Supplier<?> supplier = (Supplier<?>) timeables.get(args[1]);
+        if (supplier == null) {
+            throw new IllegalArgumentException("No Timeable named " + args[1] + " in " + args[0]);
+        }
+
+        List<Long> samples = new ArrayList<Long>();
+        List<Boolean> gcFlags = new ArrayList<Boolean>();
+        runSamples((Timeable) supplier.get(), Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]), samples, gcFlags);
+        for (int i = 0; i < samples.size(); i++) {
+            System.out.println(samples.get(i) + "," + gcFlags.get(i));
+        }
+    }
 }